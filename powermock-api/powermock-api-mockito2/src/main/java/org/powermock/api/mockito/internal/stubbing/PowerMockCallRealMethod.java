@@ -21,14 +21,17 @@ package org.powermock.api.mockito.internal.stubbing;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.powermock.core.spi.support.MockFrameworkInvocation;
 
 public class PowerMockCallRealMethod implements Answer {
     @Override
     public Object answer(InvocationOnMock invocation) throws Throwable {
         MockitoRealMethodInvocation.mockitoInvocationStarted();
+        MockFrameworkInvocation.invocationStarted();
         try {
             return Mockito.CALLS_REAL_METHODS.answer(invocation);
         } finally {
+            MockFrameworkInvocation.invocationFinished();
             MockitoRealMethodInvocation.mockitoInvocationFinished();
         }
     }
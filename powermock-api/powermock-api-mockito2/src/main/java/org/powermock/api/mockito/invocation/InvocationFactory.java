@@ -23,7 +23,6 @@ import org.mockito.invocation.Invocation;
 import org.mockito.mock.MockCreationSettings;
 import org.powermock.api.support.SafeExceptionRethrower;
 import org.powermock.core.MockGateway;
-import org.powermock.core.MockRepository;
 import org.powermock.reflect.Whitebox;
 
 import java.lang.reflect.InvocationTargetException;
@@ -49,7 +48,7 @@ class InvocationFactory {
                 final Class<?> type = Whitebox.getType(delegator);
                 final boolean isFinalSystemClass = type.getName().startsWith("java.") && Modifier.isFinal(type.getModifiers());
                 if (!isFinalSystemClass) {
-                    MockRepository.putAdditionalState(MockGateway.DONT_MOCK_NEXT_CALL, true);
+                    MockGateway.dontMockNextCall();
                 }
                 try {
                     return method.invoke(delegator, arguments);
@@ -27,6 +27,7 @@ import org.mockito.invocation.MockHandler;
 import org.mockito.mock.MockCreationSettings;
 import org.powermock.api.mockito.internal.invocation.InvocationControlAssertionError;
 import org.powermock.core.MockRepository;
+import org.powermock.core.spi.support.MockFrameworkInvocation;
 
 import java.lang.reflect.Method;
 
@@ -60,6 +61,7 @@ public class MockHandlerAdaptor<T> {
         
         Invocation invocation = createInvocation(mock, method, arguments);
         
+        MockFrameworkInvocation.invocationStarted();
         try {
             return getMockHandler().handle(invocation);
         } catch (NotAMockException e) {
@@ -74,6 +76,8 @@ public class MockHandlerAdaptor<T> {
         } catch (MockitoAssertionError e) {
             InvocationControlAssertionError.updateErrorMessageForMethodInvocation(e);
             throw e;
+        } finally {
+            MockFrameworkInvocation.invocationFinished();
         }
     }
     
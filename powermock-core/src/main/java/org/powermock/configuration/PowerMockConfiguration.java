@@ -31,6 +31,12 @@ import org.powermock.utils.ArrayUtil;
 public class PowerMockConfiguration implements Configuration<PowerMockConfiguration> {
     private String[] globalIgnore;
     private ByteCodeFramework byteCodeFramework;
+    private Boolean useCallSiteIds;
+    private String transformationCacheDirectory;
+    private Integer transformationCacheSize;
+    private Boolean reuseClassLoaders;
+    private Boolean fuseTransformers;
+    private Boolean eagerTransformation;
     
     public String[] getGlobalIgnore() {
         return globalIgnore;
@@ -48,6 +54,83 @@ public class PowerMockConfiguration implements Configuration<PowerMockConfigurat
         this.byteCodeFramework = byteCodeFramework;
     }
     
+    /**
+     * @return {@code true} if instrumented methods should pass a call site id to the
+     * {@link org.powermock.core.MockGateway} instead of the method name and signature.
+     * @see org.powermock.core.CallSiteRegistry
+     */
+    public Boolean getUseCallSiteIds() {
+        return useCallSiteIds;
+    }
+    
+    public void setUseCallSiteIds(final Boolean useCallSiteIds) {
+        this.useCallSiteIds = useCallSiteIds;
+    }
+    
+    /**
+     * @return the directory where classes transformed by a {@link org.powermock.core.classloader.MockClassLoader}
+     * are stored to be reused by the next JVM runs, or {@code null} if transformed classes should not be stored.
+     * @see org.powermock.core.classloader.TransformedClassCache
+     */
+    public String getTransformationCacheDirectory() {
+        return transformationCacheDirectory;
+    }
+    
+    public void setTransformationCacheDirectory(final String transformationCacheDirectory) {
+        this.transformationCacheDirectory = transformationCacheDirectory;
+    }
+    
+    /**
+     * @return the maximum size of the {@link #getTransformationCacheDirectory()} in megabytes. The least recently
+     * used classes are removed when the cache grows above the size.
+     */
+    public Integer getTransformationCacheSize() {
+        return transformationCacheSize;
+    }
+    
+    public void setTransformationCacheSize(final Integer transformationCacheSize) {
+        this.transformationCacheSize = transformationCacheSize;
+    }
+    
+    /**
+     * @return {@code true} if test classes with the same PowerMock configuration should share a
+     * {@link org.powermock.core.classloader.MockClassLoader}. Static state of the classes loaded by a shared class loader
+     * is not reset between test classes.
+     */
+    public Boolean getReuseClassLoaders() {
+        return reuseClassLoaders;
+    }
+    
+    public void setReuseClassLoaders(final Boolean reuseClassLoaders) {
+        this.reuseClassLoaders = reuseClassLoaders;
+    }
+    
+    /**
+     * @return {@code true} if the Javassist transformers of the default chain should be applied as one transformer
+     * which visits every member of a class only once.
+     * @see org.powermock.core.transformers.javassist.FusedMockTransformer
+     */
+    public Boolean getFuseTransformers() {
+        return fuseTransformers;
+    }
+    
+    public void setFuseTransformers(final Boolean fuseTransformers) {
+        this.fuseTransformers = fuseTransformers;
+    }
+    
+    /**
+     * @return {@code true} if the classes of the packages prepared for test should be transformed in parallel when a
+     * {@link org.powermock.core.classloader.MockClassLoader} is created instead of one by one when they are loaded.
+     * Only the Javassist class loader supports the eager transformation.
+     */
+    public Boolean getEagerTransformation() {
+        return eagerTransformation;
+    }
+    
+    public void setEagerTransformation(final Boolean eagerTransformation) {
+        this.eagerTransformation = eagerTransformation;
+    }
+    
     @Override
     public PowerMockConfiguration merge(final PowerMockConfiguration configuration) {
         if (configuration == null) {
@@ -63,6 +146,36 @@ public class PowerMockConfiguration implements Configuration<PowerMockConfigurat
             }else {
                 powerMockConfiguration.setByteCodeFramework(configuration.byteCodeFramework);
             }
+            if (configuration.useCallSiteIds == null) {
+                powerMockConfiguration.setUseCallSiteIds(useCallSiteIds);
+            } else {
+                powerMockConfiguration.setUseCallSiteIds(configuration.useCallSiteIds);
+            }
+            if (configuration.transformationCacheDirectory == null) {
+                powerMockConfiguration.setTransformationCacheDirectory(transformationCacheDirectory);
+            } else {
+                powerMockConfiguration.setTransformationCacheDirectory(configuration.transformationCacheDirectory);
+            }
+            if (configuration.transformationCacheSize == null) {
+                powerMockConfiguration.setTransformationCacheSize(transformationCacheSize);
+            } else {
+                powerMockConfiguration.setTransformationCacheSize(configuration.transformationCacheSize);
+            }
+            if (configuration.reuseClassLoaders == null) {
+                powerMockConfiguration.setReuseClassLoaders(reuseClassLoaders);
+            } else {
+                powerMockConfiguration.setReuseClassLoaders(configuration.reuseClassLoaders);
+            }
+            if (configuration.fuseTransformers == null) {
+                powerMockConfiguration.setFuseTransformers(fuseTransformers);
+            } else {
+                powerMockConfiguration.setFuseTransformers(configuration.fuseTransformers);
+            }
+            if (configuration.eagerTransformation == null) {
+                powerMockConfiguration.setEagerTransformation(eagerTransformation);
+            } else {
+                powerMockConfiguration.setEagerTransformation(configuration.eagerTransformation);
+            }
             
             return powerMockConfiguration;
         }
@@ -122,6 +122,30 @@ class ConfigurationMapper<T extends Configuration> {
                 }
             }
         },
+        BooleanWriter {
+            @Override
+            public void writeProperty(final PropertyDescriptor pd, final Object target, final String value) {
+                try {
+                    if (value != null) {
+                        pd.getWriteMethod().invoke(target, Boolean.valueOf(value.trim()));
+                    }
+                } catch (Exception e) {
+                    throw new PowerMockInternalException(e);
+                }
+            }
+        },
+        IntegerWriter {
+            @Override
+            public void writeProperty(final PropertyDescriptor pd, final Object target, final String value) {
+                try {
+                    if (value != null) {
+                        pd.getWriteMethod().invoke(target, Integer.valueOf(value.trim()));
+                    }
+                } catch (Exception e) {
+                    throw new PowerMockInternalException(e);
+                }
+            }
+        },
         EnumWriter {
             @Override
             public void writeProperty(final PropertyDescriptor pd, final Object target, final String value) {
@@ -148,6 +172,10 @@ class ConfigurationMapper<T extends Configuration> {
         private static PropertyWriter forProperty(final PropertyDescriptor pd) {
             if (String[].class.isAssignableFrom(pd.getPropertyType())) {
                 return ArrayWriter;
+            } else if (Boolean.class == pd.getPropertyType() || boolean.class == pd.getPropertyType()) {
+                return BooleanWriter;
+            } else if (Integer.class == pd.getPropertyType() || int.class == pd.getPropertyType()) {
+                return IntegerWriter;
             } else if (Enum.class.isAssignableFrom(pd.getPropertyType())) {
                 return EnumWriter;
             } else {
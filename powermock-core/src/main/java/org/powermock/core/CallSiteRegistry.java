@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core;
+
+import org.powermock.core.classloader.MockClassLoader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table of the call sites instrumented in classes loaded by a {@link MockClassLoader}.
+ * <p>
+ * A transformer registers the method name, descriptor and return type of each instrumented
+ * method (or call to a system method) and gets a stable integer id in return. The generated
+ * code passes only that id to {@link MockGateway#methodCall(Object, Class, int, Object[])},
+ * so neither the {@code Class[]} signature nor the method name have to be built on each call.
+ * </p>
+ */
+public class CallSiteRegistry {
+
+    private final ClassLoader classLoader;
+    private final Map<String, Integer> ids;
+    private volatile CallSite[] callSites;
+    private int size;
+
+    public CallSiteRegistry(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        this.ids = new HashMap<String, Integer>();
+        this.callSites = new CallSite[64];
+    }
+
+    /**
+     * @return the registry that contains call sites instrumented in the {@code type} or
+     * {@code null} if the type has not been loaded by a {@link MockClassLoader}.
+     */
+    static CallSiteRegistry forType(Class<?> type) {
+        final ClassLoader classLoader = type.getClassLoader();
+        if (classLoader instanceof MockClassLoader) {
+            return ((MockClassLoader) classLoader).getCallSiteRegistry();
+        }
+        return null;
+    }
+
+    /**
+     * Register a call site.
+     *
+     * @param methodName         The name of the called method.
+     * @param descriptor         The JVM descriptor of the called method.
+     * @param returnTypeAsString The return type of the method as it is passed to
+     *                           the {@link MockGateway}, empty for {@code void} methods.
+     * @return The id of the call site. Call sites with the same method name, descriptor and
+     * return type share the same id.
+     */
+    public synchronized int register(String methodName, String descriptor, String returnTypeAsString) {
+        final String key = methodName + descriptor + returnTypeAsString;
+        final Integer existingId = ids.get(key);
+        if (existingId != null) {
+            return existingId;
+        }
+        CallSite[] current = callSites;
+        if (size == current.length) {
+            CallSite[] grown = new CallSite[size * 2];
+            System.arraycopy(current, 0, grown, 0, size);
+            current = grown;
+        }
+        final int id = size++;
+        current[id] = new CallSite(methodName, descriptor, returnTypeAsString);
+        // volatile write publishes the new call site to readers of the table
+        callSites = current;
+        ids.put(key, id);
+        return id;
+    }
+
+    public CallSite get(int id) {
+        return callSites[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    public static class CallSite {
+        private final String methodName;
+        private final String descriptor;
+        private final String returnTypeAsString;
+        private volatile Class<?>[] parameterTypes;
+
+        private CallSite(String methodName, String descriptor, String returnTypeAsString) {
+            this.methodName = methodName;
+            this.descriptor = descriptor;
+            this.returnTypeAsString = returnTypeAsString;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        public String getReturnTypeAsString() {
+            return returnTypeAsString;
+        }
+
+        /**
+         * The parameter types are resolved on the first call, because the call site is registered
+         * while the class containing it is being transformed and could not be loaded yet.
+         */
+        Class<?>[] getParameterTypes(ClassLoader classLoader) throws ClassNotFoundException {
+            Class<?>[] types = parameterTypes;
+            if (types == null) {
+                types = resolveParameterTypes(descriptor, classLoader);
+                parameterTypes = types;
+            }
+            return types;
+        }
+
+        private static Class<?>[] resolveParameterTypes(String descriptor, ClassLoader classLoader) throws ClassNotFoundException {
+            final int end = descriptor.indexOf(')');
+            final List<Class<?>> types = new ArrayList<Class<?>>();
+            int i = 1;
+            while (i < end) {
+                int start = i;
+                while (descriptor.charAt(i) == '[') {
+                    i++;
+                }
+                if (descriptor.charAt(i) == 'L') {
+                    i = descriptor.indexOf(';', i);
+                }
+                i++;
+                types.add(resolveType(descriptor.substring(start, i), classLoader));
+            }
+            return types.toArray(new Class<?>[types.size()]);
+        }
+
+        private static Class<?> resolveType(String typeDescriptor, ClassLoader classLoader) throws ClassNotFoundException {
+            switch (typeDescriptor.charAt(0)) {
+                case 'Z':
+                    return boolean.class;
+                case 'B':
+                    return byte.class;
+                case 'C':
+                    return char.class;
+                case 'S':
+                    return short.class;
+                case 'I':
+                    return int.class;
+                case 'J':
+                    return long.class;
+                case 'F':
+                    return float.class;
+                case 'D':
+                    return double.class;
+                case 'L':
+                    final String className = typeDescriptor.substring(1, typeDescriptor.length() - 1).replace('/', '.');
+                    return Class.forName(className, false, classLoader);
+                default:
+                    return Class.forName(typeDescriptor.replace('/', '.'), false, classLoader);
+            }
+        }
+    }
+}
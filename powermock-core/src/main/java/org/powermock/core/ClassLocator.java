@@ -15,8 +15,50 @@
  */
 package org.powermock.core;
 
+import org.powermock.core.StackFrameWalker.FrameVisitor;
+
+import java.util.Iterator;
+
+/**
+ * Locates the class that called the {@link MockGateway}. The caller is the fifth frame below
+ * {@link #getCallerClass()}: MockRepository, the two {@code MockGateway.doMethodCall} methods and
+ * {@code MockGateway.methodCall} are in between.
+ * <p>
+ * On Java 9 and later the frames are walked with {@code java.lang.StackWalker}, which stops as soon as
+ * the caller is found. Older versions read the full class context of the {@link SecurityManager}.
+ * </p>
+ */
 public class ClassLocator extends SecurityManager {
+
+    private static final int CALLER_FRAME = 5;
+
+    private static final StackFrameWalker CALLER_WALKER = StackFrameWalker.forVisitor(new FrameVisitor() {
+        @Override
+        public Object visit(Iterator<Class<?>> frames) {
+            int framesBelowLocator = -1;
+            while (frames.hasNext()) {
+                final Class<?> frameClass = frames.next();
+                if (framesBelowLocator >= 0) {
+                    framesBelowLocator++;
+                } else if (frameClass == ClassLocator.class) {
+                    framesBelowLocator = 0;
+                }
+                if (framesBelowLocator == CALLER_FRAME) {
+                    return frameClass;
+                }
+            }
+            return null;
+        }
+    });
+
     public static Class getCallerClass() {
-        return new ClassLocator().getClassContext()[5];
+        if (CALLER_WALKER != null) {
+            final Class callerClass = (Class) CALLER_WALKER.walk();
+            if (callerClass == null) {
+                throw new IllegalStateException("Cannot locate the class calling the MockGateway.");
+            }
+            return callerClass;
+        }
+        return new ClassLocator().getClassContext()[CALLER_FRAME];
     }
-}
\ No newline at end of file
+}
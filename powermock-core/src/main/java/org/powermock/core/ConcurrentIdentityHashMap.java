@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread safe map that compares keys by identity, the same way as {@link ListMap} does, but with
+ * hash based lookups. Neither {@code equals} nor {@code hashCode} of a key is ever called, which
+ * matters for mocks where these methods may be stubbed.
+ * <p>
+ * The map does not hold {@code null} values, putting a {@code null} value removes the key.
+ * </p>
+ */
+public class ConcurrentIdentityHashMap<K, V> {
+
+    private final ConcurrentMap<IdentityKey, V> entries;
+
+    public ConcurrentIdentityHashMap() {
+        entries = new ConcurrentHashMap<IdentityKey, V>();
+    }
+
+    public V get(K key) {
+        return entries.get(new IdentityKey(key));
+    }
+
+    public boolean containsKey(K key) {
+        return entries.containsKey(new IdentityKey(key));
+    }
+
+    public V put(K key, V value) {
+        if (value == null) {
+            return remove(key);
+        }
+        return entries.put(new IdentityKey(key), value);
+    }
+
+    public V remove(K key) {
+        return entries.remove(new IdentityKey(key));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static class IdentityKey {
+        private final Object key;
+        private final int hashCode;
+
+        private IdentityKey(Object key) {
+            this.key = key;
+            this.hashCode = System.identityHashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).key == key;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core;
+
+import org.powermock.core.classloader.MockClassLoader;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the {@link Method} that {@link MockGateway} resolves for an intercepted call, so
+ * the reflective search is done only once per (type, method name, signature). The {@link Field}
+ * resolved for an intercepted field read is cached the same way per (type, field name).
+ * <p>
+ * Each {@link MockClassLoader} owns its own instance, so the cached methods are discarded
+ * together with the class loader. Classes loaded by the bootstrap class loader can never be
+ * unloaded and share a single JVM wide instance.
+ * </p>
+ */
+public class MethodResolutionCache {
+
+    private static final MethodResolutionCache BOOTSTRAP_CACHE = new MethodResolutionCache();
+
+    private final ConcurrentMap<MemberKey, Method> methods;
+    private final ConcurrentMap<MemberKey, Field> fields;
+
+    public MethodResolutionCache() {
+        methods = new ConcurrentHashMap<MemberKey, Method>();
+        fields = new ConcurrentHashMap<MemberKey, Field>();
+    }
+
+    /**
+     * @return the cache that should be used for methods resolved from the {@code type} or {@code null}
+     * if methods of the type should not be cached.
+     */
+    static MethodResolutionCache forType(Class<?> type) {
+        final ClassLoader classLoader = type.getClassLoader();
+        if (classLoader == null) {
+            return BOOTSTRAP_CACHE;
+        } else if (classLoader instanceof MockClassLoader) {
+            return ((MockClassLoader) classLoader).getMethodResolutionCache();
+        }
+        return null;
+    }
+
+    public Method get(Class<?> type, String methodName, Class<?>[] sig) {
+        return methods.get(new MemberKey(type, methodName, sig));
+    }
+
+    public void put(Class<?> type, String methodName, Class<?>[] sig, Method method) {
+        methods.put(new MemberKey(type, methodName, sig), method);
+    }
+
+    public Field getField(Class<?> type, String fieldName) {
+        return fields.get(new MemberKey(type, fieldName, null));
+    }
+
+    public void putField(Class<?> type, String fieldName, Field field) {
+        fields.put(new MemberKey(type, fieldName, null), field);
+    }
+
+    public int size() {
+        return methods.size() + fields.size();
+    }
+
+    public void clear() {
+        methods.clear();
+        fields.clear();
+    }
+
+    private static class MemberKey {
+        private final Class<?> type;
+        private final String name;
+        private final Class<?>[] sig; // null for fields
+        private final int hashCode;
+
+        private MemberKey(Class<?> type, String name, Class<?>[] sig) {
+            this.type = type;
+            this.name = name;
+            this.sig = sig;
+            this.hashCode = 31 * (31 * System.identityHashCode(type) + name.hashCode()) + Arrays.hashCode(sig);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MemberKey)) {
+                return false;
+            }
+            MemberKey that = (MemberKey) o;
+            return type == that.type && name.equals(that.name) && Arrays.equals(sig, that.sig);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
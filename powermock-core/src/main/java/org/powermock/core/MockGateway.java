@@ -15,14 +15,19 @@
  */
 package org.powermock.core;
 
+import org.powermock.core.CallSiteRegistry.CallSite;
+import org.powermock.core.StackFrameWalker.FrameVisitor;
 import org.powermock.core.spi.MethodInvocationControl;
 import org.powermock.core.spi.NewInvocationControl;
+import org.powermock.core.spi.support.MockFrameworkInvocation;
 import org.powermock.reflect.internal.TypeUtils;
 import org.powermock.reflect.internal.WhiteboxImpl;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Modifier;
+import java.util.Iterator;
 
 /**
  * All mock invocations are routed through this gateway. This includes method
@@ -39,6 +44,28 @@ public class MockGateway {
         static final boolean noMockito = Package.getPackage("org.mockito") == null;
         private NoMockito() {}
     }
+
+    /**
+     * {@link MockitoFrameWalker#WALKER} is wrapped into it's own static class to make sure that {@code StackWalker} is not
+     * looked up until {@link #calledFromMockito()} needs it.
+     */
+    private static final class MockitoFrameWalker {
+        static final StackFrameWalker WALKER = StackFrameWalker.forVisitor(new FrameVisitor() {
+            @Override
+            public Object visit(Iterator<Class<?>> frames) {
+                for (int i = 0; i < MOCKITO_FRAMES_SEARCH_DEPTH && frames.hasNext(); i++) {
+                    if (isMockitoClass(frames.next().getName())) {
+                        return Boolean.TRUE;
+                    }
+                }
+                return null;
+            }
+        });
+        private MockitoFrameWalker() {}
+    }
+
+    private static final int MOCKITO_FRAMES_SEARCH_DEPTH = 32;
+
     public static final Object PROCEED = new Object();
     public static final Object SUPPRESS = new Object();
 
@@ -46,9 +73,22 @@ public class MockGateway {
      * Used to tell the MockGateway that the next call should not be mocked
      * regardless if a {@link MethodInvocationControl} is found in the
      * {@link MockRepository}. Used to allow for e.g. recursive partial mocking.
+     * The key is still honoured when it is put as additional state in the
+     * {@link MockRepository}, but {@link #dontMockNextCall()} should be used
+     * instead, because the additional state is shared by all threads.
      */
     public static final String DONT_MOCK_NEXT_CALL = "DontMockNextCall";
 
+    /**
+     * Tell the MockGateway that the next call in the current thread for which
+     * a {@link MethodInvocationControl} is found should not be mocked, for
+     * instance because a mock framework invokes the real method of a partial
+     * mock. Calls in other threads are not affected.
+     */
+    public static void dontMockNextCall() {
+        MockRepository.setDontMockNextCall(true);
+    }
+
     /**
      * Tells PowerMock to mock standard methods. These are
      * {@link Object#toString()}, {@link Object#hashCode()} and
@@ -89,15 +129,41 @@ public class MockGateway {
         return PROCEED;
     }
 
+    /**
+     * Called by instrumented field reads before the arguments for {@code fieldCall} are prepared.
+     *
+     * @return {@code false} if no field read can be intercepted.
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    public static boolean hasSuppressedFields() {
+        return MockRepository.hasSuppressedFields();
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     public static Object fieldCall(Object instanceOrClassContainingTheField, Class<?> classDefiningField,
                                    String fieldName, Class<?> fieldType) {
-        if (MockRepository.shouldSuppressField(WhiteboxImpl.getField(classDefiningField, fieldName))) {
+        if (!MockRepository.hasSuppressedFields()) {
+            return PROCEED;
+        }
+        if (MockRepository.shouldSuppressField(findField(classDefiningField, fieldName))) {
             return TypeUtils.getDefaultValue(fieldType);
         }
         return PROCEED;
     }
 
+    private static Field findField(Class<?> type, String fieldName) {
+        final MethodResolutionCache cache = MethodResolutionCache.forType(type);
+        if (cache == null) {
+            return WhiteboxImpl.getField(type, fieldName);
+        }
+        Field field = cache.getField(type, fieldName);
+        if (field == null) {
+            field = WhiteboxImpl.getField(type, fieldName);
+            cache.putField(type, fieldName, field);
+        }
+        return field;
+    }
+
     public static Object staticConstructorCall(String className) {
         if (MockRepository.shouldSuppressStaticInitializerFor(className)) {
             return "suppress";
@@ -131,6 +197,17 @@ public class MockGateway {
      */
     public static boolean MOCK_ANNOTATION_METHODS = false;
 
+    /**
+     * Called by the prologue of instrumented methods before the arguments are prepared for
+     * {@code methodCall}. See {@link MockRepository#isArmed(Class)}.
+     *
+     * @return {@code false} if calls of methods declared in the {@code type} cannot be intercepted.
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    public static boolean isArmed(Class<?> type) {
+        return MockRepository.isArmed(type);
+    }
+
     // used for instance methods
     @SuppressWarnings("UnusedDeclaration")
     public static Object methodCall(Object instance, String methodName, Object[] args, Class<?>[] sig,
@@ -146,6 +223,17 @@ public class MockGateway {
     }
 
 
+    // used for instance and static methods instrumented with call site ids, see CallSiteRegistry
+    @SuppressWarnings("UnusedDeclaration")
+    public static Object methodCall(Object instanceOrType, Class<?> callSiteOwner, int callSiteId,
+                                    Object[] args) throws Throwable {
+        final CallSiteRegistry callSiteRegistry = CallSiteRegistry.forType(callSiteOwner);
+        final CallSite callSite = callSiteRegistry.get(callSiteId);
+        return doMethodCall(instanceOrType, callSite.getMethodName(), args,
+                            callSite.getParameterTypes(callSiteRegistry.getClassLoader()),
+                            callSite.getReturnTypeAsString());
+    }
+
     private static Object doMethodCall(Object object, String methodName, Object[] args, Class<?>[] sig,
                                        String returnTypeAsString) throws Throwable {
         if (!shouldMockMethod(methodName, sig)) {
@@ -242,19 +330,35 @@ public class MockGateway {
         return Modifier.isStatic(mockInvocation.getMethod().getModifiers());
     }
 
+    /**
+     * The Mockito API of PowerMock marks the calls it hands over to Mockito, see {@link MockFrameworkInvocation}.
+     * Calls that Mockito makes on its own, e.g. comparing arguments while verifying, are found by looking for a
+     * Mockito frame on the stack. The {@code StackWalker} only walks the {@link #MOCKITO_FRAMES_SEARCH_DEPTH} top
+     * frames, the stack trace used before Java 9 is captured in full anyway, so all of its frames are searched.
+     */
     private static boolean calledFromMockito() {
         if (NoMockito.noMockito) {
             return false;
         }
+        if (MockFrameworkInvocation.isInProgress()) {
+            return true;
+        }
+        if (MockitoFrameWalker.WALKER != null) {
+            return MockitoFrameWalker.WALKER.walk() != null;
+        }
         StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
         for (StackTraceElement stackTraceElement : stackTrace) {
-            if (stackTraceElement.getClassName().startsWith("org.mockito.")){
+            if (isMockitoClass(stackTraceElement.getClassName())) {
                 return true;
             }
         }
         return false;
     }
 
+    private static boolean isMockitoClass(String className) {
+        return className.startsWith("org.mockito.");
+    }
+
     private static boolean shouldMockMethod(String methodName, Class<?>[] sig) {
         if (isJavaStandardMethod(methodName, sig) && !MOCK_STANDARD_METHODS) {
             return false;
@@ -277,9 +381,11 @@ public class MockGateway {
     }
 
     private static boolean shouldMockThisCall() {
-        Object shouldSkipMockingOfNextCall = MockRepository.getAdditionalState(DONT_MOCK_NEXT_CALL);
-        final boolean shouldMockThisCall = shouldSkipMockingOfNextCall == null;
-        MockRepository.removeAdditionalState(DONT_MOCK_NEXT_CALL);
+        boolean shouldMockThisCall = !MockRepository.setDontMockNextCall(false);
+        if (MockRepository.getAdditionalState(DONT_MOCK_NEXT_CALL) != null) {
+            MockRepository.removeAdditionalState(DONT_MOCK_NEXT_CALL);
+            shouldMockThisCall = false;
+        }
         return shouldMockThisCall;
     }
 
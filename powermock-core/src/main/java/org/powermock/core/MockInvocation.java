@@ -48,6 +48,19 @@ class MockInvocation {
     }
     
     private static Method findMethodToInvoke(String methodName, Class<?>[] sig, Class<?> objectType) {
+        final MethodResolutionCache cache = MethodResolutionCache.forType(objectType);
+        if (cache == null) {
+            return resolveMethodToInvoke(methodName, sig, objectType);
+        }
+        Method method = cache.get(objectType, methodName, sig);
+        if (method == null) {
+            method = resolveMethodToInvoke(methodName, sig, objectType);
+            cache.put(objectType, methodName, sig, method);
+        }
+        return method;
+    }
+    
+    private static Method resolveMethodToInvoke(String methodName, Class<?>[] sig, Class<?> objectType) {
         /*
         * if invocationControl is null or the method is not mocked, invoke
         * original method or suppress the method code otherwise invoke the
@@ -25,79 +25,126 @@ import java.lang.reflect.Method;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Hold mock objects that should be used instead of the concrete implementation.
  * Mock transformers may use this class to gather information on which classes
  * and methods that are mocked.
+ * <p>
+ * The state that is read on each intercepted call is kept in concurrent or
+ * copy-on-write structures, so code under test that runs in several threads
+ * does not contend on a single lock. Methods that modify the state are still
+ * synchronized and therefore never interleave with each other or with
+ * {@link #clear()}.
+ * </p>
  */
 public class MockRepository {
 
 	private static Set<Object> objectsToAutomaticallyReplayAndVerify = new IdentityHashSet<Object>();
 
-	private static Map<Class<?>, NewInvocationControl<?>> newSubstitutions = new HashMap<Class<?>, NewInvocationControl<?>>();
+	private static final ConcurrentMap<Class<?>, NewInvocationControl<?>> newSubstitutions = new ConcurrentHashMap<Class<?>, NewInvocationControl<?>>();
 
 	/**
 	 * Holds info about general method invocation mocks for classes.
 	 */
-	private static Map<Class<?>, MethodInvocationControl> classMocks = new HashMap<Class<?>, MethodInvocationControl>();
+	private static final ConcurrentMap<Class<?>, MethodInvocationControl> classMocks = new ConcurrentHashMap<Class<?>, MethodInvocationControl>();
 
 	/**
-	 * Holds info about general method invocation mocks for instances.
+	 * Holds info about general method invocation mocks for instances. Mocks
+	 * are looked up by identity.
 	 */
-	private static Map<Object, MethodInvocationControl> instanceMocks = new ListMap<Object, MethodInvocationControl>();
+	private static final ConcurrentIdentityHashMap<Object, MethodInvocationControl> instanceMocks = new ConcurrentIdentityHashMap<Object, MethodInvocationControl>();
 
 	/**
 	 * Holds info about which methods that should return a substitute/another
-	 * instance instead of the default instance.
+	 * instance instead of the default instance. The substitute may be
+	 * {@code null}, the map is copied on each modification.
 	 */
-	private static Map<Method, Object> substituteReturnValues = new HashMap<Method, Object>();
+	private static volatile Map<Method, Object> substituteReturnValues = new HashMap<Method, Object>();
 
 	/**
 	 * Holds info about which methods that are proxied.
 	 */
-	private static Map<Method, InvocationHandler> methodProxies = new HashMap<Method, InvocationHandler>();
+	private static final ConcurrentMap<Method, InvocationHandler> methodProxies = new ConcurrentHashMap<Method, InvocationHandler>();
 
 	/**
 	 * Holds info about which class that should have their static initializers
 	 * suppressed.
 	 */
-	private static Set<String> suppressStaticInitializers = new HashSet<String>();
+	private static final Set<String> suppressStaticInitializers = newConcurrentSet();
 
 	/**
 	 * Sometimes mock frameworks needs to store additional state. They can do
 	 * this using this key/value based approach.
 	 */
-	private static Map<String, Object> additionalState = new HashMap<String, Object>();
+	private static final ConcurrentMap<String, Object> additionalState = new ConcurrentHashMap<String, Object>();
 
 	/**
 	 * Set of constructors that should be suppressed.
 	 */
-	private static final Set<Constructor<?>> suppressConstructor = new HashSet<Constructor<?>>();
+	private static final Set<Constructor<?>> suppressConstructor = newConcurrentSet();
 
 	/**
-	 * Set of methods that should be suppressed.
+	 * Methods that should be suppressed. The names of the classes declaring a
+	 * suppressed method are indexed by the method name.
 	 */
-	private static final Set<Method> suppressMethod = new HashSet<Method>();
+	private static final ConcurrentMap<String, Set<String>> suppressMethod = new ConcurrentHashMap<String, Set<String>>();
 
 	/**
 	 * Set of methods that should be suppressed.
 	 */
-	private static final Set<Field> suppressField = new HashSet<Field>();
+	private static final Set<Field> suppressField = newConcurrentSet();
 
 	/**
 	 * Set of field types that should always be suppressed regardless of
 	 * instance.
 	 */
-	private static final Set<String> suppressFieldTypes = new HashSet<String>();
+	private static final Set<String> suppressFieldTypes = newConcurrentSet();
+
+	/**
+	 * {@code true} when a field or field type has been suppressed since the
+	 * last {@link #clear()}.
+	 */
+	private static volatile boolean fieldsSuppressed;
 
     /**
      * Set of runnables that will be executed after the test (method) is completed.
 	 */
 	private static final Set<Runnable> afterMethodRunners = new HashSet<Runnable>();
 
+	/**
+	 * The number of times the repository has been cleared. A thread local flag
+	 * can only be reset by its own thread, so {@link #clear()} resets the flags
+	 * of all threads by starting a new generation.
+	 */
+	private static volatile long generation;
+
+	private static final long DONT_MOCK_NEXT_CALL_NOT_SET = -1;
+
+	/**
+	 * The generation in which the next call in a thread should not be mocked,
+	 * see {@link MockGateway#dontMockNextCall()}.
+	 */
+	private static final ThreadLocal<long[]> dontMockNextCall = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[]{DONT_MOCK_NEXT_CALL_NOT_SET};
+		}
+	};
+
+	/**
+	 * Types for which a mock, a suppressed method, a stubbed method or a method
+	 * proxy has been registered, together with all their super types. The map is
+	 * never modified after it has been published, a new copy is created each
+	 * time a type is armed, so it can be read without locking.
+	 */
+	private static volatile Map<Class<?>, Boolean> armedTypes = Collections.emptyMap();
+
 	/**
 	 * Clear all state of the mock repository except for static initializers.
 	 * The reason for not clearing static initializers is that when running in a
@@ -117,10 +164,14 @@ public class MockRepository {
 		additionalState.clear();
 		suppressConstructor.clear();
 		suppressMethod.clear();
-		substituteReturnValues.clear();
+		substituteReturnValues = new HashMap<Method, Object>();
 		suppressField.clear();
 		suppressFieldTypes.clear();
+		fieldsSuppressed = false;
 		methodProxies.clear();
+		armedTypes = Collections.emptyMap();
+		generation++;
+		dontMockNextCall.remove();
         for (Runnable runnable : afterMethodRunners) {
             runnable.run();
         }
@@ -130,36 +181,34 @@ public class MockRepository {
 	/**
 	 * Removes an object from the MockRepository if it exists.
 	 */
-	public static void remove(Object mock) {
+	public static synchronized void remove(Object mock) {
 		if (mock instanceof Class<?>) {
-			if (newSubstitutions.containsKey(mock)) {
-				newSubstitutions.remove(mock);
-			}
-			if (classMocks.containsKey(mock)) {
-				classMocks.remove(mock);
-			}
-		} else if (instanceMocks.containsKey(mock)) {
+			newSubstitutions.remove(mock);
+			classMocks.remove(mock);
+		} else if (mock != null) {
 			instanceMocks.remove(mock);
 		}
 	}
 
-	public static synchronized MethodInvocationControl getStaticMethodInvocationControl(Class<?> type) {
+	public static MethodInvocationControl getStaticMethodInvocationControl(Class<?> type) {
 		return classMocks.get(type);
 	}
 
 	public static synchronized MethodInvocationControl putStaticMethodInvocationControl(Class<?> type, MethodInvocationControl invocationControl) {
-		return classMocks.put(type, invocationControl);
+		arm(type);
+		return putOrRemove(classMocks, type, invocationControl);
 	}
 
 	public static synchronized MethodInvocationControl removeClassMethodInvocationControl(Class<?> type) {
 		return classMocks.remove(type);
 	}
 
-	public static synchronized MethodInvocationControl getInstanceMethodInvocationControl(Object instance) {
+	public static MethodInvocationControl getInstanceMethodInvocationControl(Object instance) {
 		return instanceMocks.get(instance);
 	}
 
 	public static synchronized MethodInvocationControl putInstanceMethodInvocationControl(Object instance, MethodInvocationControl invocationControl) {
+		arm(instance.getClass());
 		return instanceMocks.put(instance, invocationControl);
 	}
 
@@ -167,12 +216,12 @@ public class MockRepository {
 		return classMocks.remove(type);
 	}
 
-	public static synchronized NewInvocationControl<?> getNewInstanceControl(Class<?> type) {
+	public static NewInvocationControl<?> getNewInstanceControl(Class<?> type) {
 		return newSubstitutions.get(type);
 	}
 
 	public static synchronized NewInvocationControl<?> putNewInstanceControl(Class<?> type, NewInvocationControl<?> control) {
-		return newSubstitutions.put(type, control);
+		return putOrRemove(newSubstitutions, type, control);
 	}
 
 	/**
@@ -208,7 +257,7 @@ public class MockRepository {
 	 *            {@code className} should have its static initializers
 	 *            suppressed, {@code false} otherwise.
 	 */
-	public static synchronized boolean shouldSuppressStaticInitializerFor(String className) {
+	public static boolean shouldSuppressStaticInitializerFor(String className) {
 		return suppressStaticInitializers.contains(className);
 	}
 
@@ -238,10 +287,10 @@ public class MockRepository {
 	 *         {@code null}.
 	 */
 	public static synchronized Object putAdditionalState(String key, Object value) {
-		return additionalState.put(key, value);
+		return putOrRemove(additionalState, key, value);
 	}
 
-	public static synchronized Object removeAdditionalState(String key) {
+	public static Object removeAdditionalState(String key) {
 		return additionalState.remove(key);
 	}
 
@@ -253,7 +302,7 @@ public class MockRepository {
 	 * Retrieve state based on the supplied key.
 	 */
 	@SuppressWarnings("unchecked")
-	public static synchronized <T> T getAdditionalState(String key) {
+	public static <T> T getAdditionalState(String key) {
 		return (T) additionalState.get(key);
 	}
 
@@ -264,7 +313,13 @@ public class MockRepository {
 	 *            The method to suppress.
 	 */
 	public static synchronized void addMethodToSuppress(Method method) {
-		suppressMethod.add(method);
+		arm(method.getDeclaringClass());
+		Set<String> declaringClassNames = suppressMethod.get(method.getName());
+		if (declaringClassNames == null) {
+			declaringClassNames = newConcurrentSet();
+			suppressMethod.put(method.getName(), declaringClassNames);
+		}
+		declaringClassNames.add(method.getDeclaringClass().getName());
 	}
 
 	/**
@@ -275,6 +330,7 @@ public class MockRepository {
 	 */
 	public static synchronized void addFieldToSuppress(Field field) {
 		suppressField.add(field);
+		fieldsSuppressed = true;
 	}
 
 	/**
@@ -286,6 +342,7 @@ public class MockRepository {
 	 */
 	public static synchronized void addFieldTypeToSuppress(String fieldType) {
 		suppressFieldTypes.add(fieldType);
+		fieldsSuppressed = true;
 	}
 
 	/**
@@ -301,33 +358,32 @@ public class MockRepository {
 	/**
 	 * @return {@code true} if the <tt>method</tt> should be proxied.
 	 */
-	public static synchronized boolean hasMethodProxy(Method method) {
+	public static boolean hasMethodProxy(Method method) {
 		return methodProxies.containsKey(method);
 	}
 
 	/**
 	 * @return {@code true} if the <tt>method</tt> should be suppressed.
 	 */
-	public static synchronized boolean shouldSuppressMethod(Method method,
+	public static boolean shouldSuppressMethod(Method method,
 			Class<?> objectType) throws ClassNotFoundException {
-		for (Method suppressedMethod : suppressMethod) {
-			Class<?> suppressedMethodClass = suppressedMethod
-					.getDeclaringClass();
-			if (suppressedMethodClass.getClass().isAssignableFrom(
-					objectType.getClass())
-					&& suppressedMethod.getName().equals(method.getName())
-					&& ClassLocator.getCallerClass().getName()
-							.equals(suppressedMethodClass.getName())) {
-				return true;
-			}
-		}
-		return false;
+		final Set<String> declaringClassNames = suppressMethod.get(method.getName());
+		// A method is suppressed when it is called from the class that declares a suppressed method with the same name
+		return declaringClassNames != null
+				&& declaringClassNames.contains(ClassLocator.getCallerClass().getName());
+	}
+
+	/**
+	 * @return {@code true} if any field or field type should be suppressed.
+	 */
+	public static boolean hasSuppressedFields() {
+		return fieldsSuppressed;
 	}
 
 	/**
 	 * @return {@code true} if the <tt>field</tt> should be suppressed.
 	 */
-	public static synchronized boolean shouldSuppressField(Field field) {
+	public static boolean shouldSuppressField(Field field) {
 		return suppressField.contains(field) || suppressFieldTypes.contains(field.getType().getName());
 	}
 
@@ -335,7 +391,7 @@ public class MockRepository {
 	 * @return {@code true} if the <tt>constructor</tt> should be
 	 *         suppressed.
 	 */
-	public static synchronized boolean shouldSuppressConstructor(Constructor<?> constructor) {
+	public static boolean shouldSuppressConstructor(Constructor<?> constructor) {
 		return suppressConstructor.contains(constructor);
 	}
 
@@ -343,7 +399,7 @@ public class MockRepository {
 	 * @return {@code true} if the <tt>method</tt> has a substitute return
 	 *         value.
 	 */
-	public static synchronized boolean shouldStubMethod(Method method) {
+	public static boolean shouldStubMethod(Method method) {
 		return substituteReturnValues.containsKey(method);
 	}
 
@@ -351,7 +407,7 @@ public class MockRepository {
 	 * @return The substitute return value for a particular method, may be
 	 *         {@code null}.
 	 */
-	public static synchronized Object getMethodToStub(Method method) {
+	public static Object getMethodToStub(Method method) {
 		return substituteReturnValues.get(method);
 	}
 
@@ -362,13 +418,17 @@ public class MockRepository {
 	 * @return The previous substitute value if any.
 	 */
 	public static synchronized Object putMethodToStub(Method method, Object value) {
-		return substituteReturnValues.put(method, value);
+		arm(method.getDeclaringClass());
+		final Map<Method, Object> stubs = new HashMap<Method, Object>(substituteReturnValues);
+		final Object previous = stubs.put(method, value);
+		substituteReturnValues = stubs;
+		return previous;
 	}
 
 	/**
 	 * @return The proxy for a particular method, may be {@code null}.
 	 */
-	public static synchronized InvocationHandler getMethodProxy(Method method) {
+	public static InvocationHandler getMethodProxy(Method method) {
 		return methodProxies.get(method);
 	}
 
@@ -379,6 +439,7 @@ public class MockRepository {
 	 * @return The method proxy if any.
 	 */
 	public static synchronized InvocationHandler putMethodProxy(Method method, InvocationHandler invocationHandler) {
+		arm(method.getDeclaringClass());
 		return methodProxies.put(method, invocationHandler);
 	}
 
@@ -389,4 +450,68 @@ public class MockRepository {
     public static synchronized void addAfterMethodRunner(Runnable runnable) {
         afterMethodRunners.add(runnable);
     }
+
+	/**
+	 * Set whether the next call in the current thread should not be mocked.
+	 *
+	 * @return the previous value.
+	 */
+	static boolean setDontMockNextCall(boolean dontMock) {
+		final long[] flag = dontMockNextCall.get();
+		final long currentGeneration = generation;
+		final boolean previous = flag[0] == currentGeneration;
+		flag[0] = dontMock ? currentGeneration : DONT_MOCK_NEXT_CALL_NOT_SET;
+		return previous;
+	}
+
+	private static <T> Set<T> newConcurrentSet() {
+		return Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+	}
+
+	/**
+	 * {@link ConcurrentMap} does not accept {@code null} values, putting
+	 * {@code null} removes the key instead, so that a subsequent get returns
+	 * {@code null} as before.
+	 */
+	private static <K, V> V putOrRemove(ConcurrentMap<K, V> map, K key, V value) {
+		return value == null ? map.remove(key) : map.put(key, value);
+	}
+
+	/**
+	 * Check whether a method declared in the {@code type} may be intercepted.
+	 * The generated method prologues call this before building the arguments
+	 * for the {@link MockGateway}, so classes for which nothing has been
+	 * registered since the last {@link #clear()} run their original code
+	 * without going through the gateway.
+	 *
+	 * @return {@code true} if a mock, suppression, stub or proxy has been
+	 *         registered for the {@code type} or one of its sub types.
+	 */
+	public static boolean isArmed(Class<?> type) {
+		return armedTypes.containsKey(type);
+	}
+
+	/**
+	 * Arm the {@code type} and all its super classes and interfaces. A call
+	 * may be resolved to a method declared in any of them, for instance when a
+	 * mock of a sub class calls an inherited method.
+	 */
+	private static void arm(Class<?> type) {
+		if (armedTypes.containsKey(type)) {
+			return;
+		}
+		final Map<Class<?>, Boolean> armed = new IdentityHashMap<Class<?>, Boolean>(armedTypes);
+		addTypeHierarchy(armed, type);
+		armedTypes = armed;
+	}
+
+	private static void addTypeHierarchy(Map<Class<?>, Boolean> armed, Class<?> type) {
+		if (type == null || armed.put(type, Boolean.TRUE) != null) {
+			return;
+		}
+		addTypeHierarchy(armed, type.getSuperclass());
+		for (Class<?> anInterface : type.getInterfaces()) {
+			addTypeHierarchy(armed, anInterface);
+		}
+	}
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+
+/**
+ * Walks the frames of the current thread with {@code java.lang.StackWalker}, which is available since Java 9.
+ * Frames are visited lazily from the caller of {@link #walk()} downwards, so that a walk that stops early does
+ * not capture the whole stack.
+ * <p>
+ * PowerMock is compiled for Java 6, so {@code StackWalker} and the stream of frames are used by reflection and
+ * the walking function is a dynamic proxy.
+ * </p>
+ */
+final class StackFrameWalker implements InvocationHandler {
+
+    /**
+     * Visits the declaring classes of the frames.
+     */
+    interface FrameVisitor {
+        /**
+         * @return the result of the walk, or {@code null} if it is not found.
+         */
+        Object visit(Iterator<Class<?>> frames);
+    }
+
+    private static final boolean AVAILABLE;
+    private static Object stackWalker;
+    private static Method walk;
+    private static Method iterator;
+    private static Method getDeclaringClass;
+    private static Class<?> functionClass;
+
+    static {
+        boolean available;
+        try {
+            final Class<?> stackWalkerClass = Class.forName("java.lang.StackWalker");
+            final Class<?> optionClass = Class.forName("java.lang.StackWalker$Option");
+            functionClass = Class.forName("java.util.function.Function");
+            final Object retainClassReference = optionClass.getField("RETAIN_CLASS_REFERENCE").get(null);
+            stackWalker = stackWalkerClass.getMethod("getInstance", optionClass).invoke(null, retainClassReference);
+            walk = stackWalkerClass.getMethod("walk", functionClass);
+            iterator = Class.forName("java.util.stream.BaseStream").getMethod("iterator");
+            getDeclaringClass = Class.forName("java.lang.StackWalker$StackFrame").getMethod("getDeclaringClass");
+            available = true;
+        } catch (Exception e) {
+            available = false;
+        }
+        AVAILABLE = available;
+    }
+
+    /**
+     * @return a walker for the {@code visitor} or {@code null} if {@code StackWalker} is not available.
+     */
+    static StackFrameWalker forVisitor(FrameVisitor visitor) {
+        return AVAILABLE ? new StackFrameWalker(visitor) : null;
+    }
+
+    private final FrameVisitor visitor;
+    private final Object walkFunction;
+
+    private StackFrameWalker(FrameVisitor visitor) {
+        this.visitor = visitor;
+        this.walkFunction = Proxy.newProxyInstance(StackFrameWalker.class.getClassLoader(),
+                                                   new Class<?>[]{functionClass}, this);
+    }
+
+    Object walk() {
+        try {
+            return walk.invoke(stackWalker, walkFunction);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot walk the stack of the current thread.", e);
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (!"apply".equals(method.getName())) {
+            return method.invoke(this, args);
+        }
+        return visitor.visit(new DeclaringClassIterator((Iterator<?>) iterator.invoke(args[0])));
+    }
+
+    private static class DeclaringClassIterator implements Iterator<Class<?>> {
+        private final Iterator<?> frames;
+
+        private DeclaringClassIterator(Iterator<?> frames) {
+            this.frames = frames;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return frames.hasNext();
+        }
+
+        @Override
+        public Class<?> next() {
+            try {
+                return (Class<?>) getDeclaringClass.invoke(frames.next());
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot get the class of a stack frame.", e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
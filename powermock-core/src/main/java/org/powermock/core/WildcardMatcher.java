@@ -19,58 +19,84 @@ import java.util.Collection;
 
 /**
  * Wildcard matcher.
+ * <p>
+ * A pattern which is matched against many texts can be compiled once with {@link #compile(String)}. Patterns that
+ * have wildcards only at the start and/or the end are then matched with {@link String#startsWith(String)},
+ * {@link String#endsWith(String)} or {@link String#contains(CharSequence)}. Other patterns are matched with a
+ * greedy backtracking algorithm, which does not allocate memory.
+ * </p>
  */
-public class WildcardMatcher {
+public abstract class WildcardMatcher {
 
     private static final char WILDCARD = '*';
 
     /**
      * Performs a wildcard matching for the text and pattern provided.
-     * 
+     *
      * @param text
      *            the text to be tested for matches.
-     * 
+     *
      * @param pattern
      *            the pattern to be matched for. This can contain the wildcard
      *            character '*' (asterisk).
-     * 
+     *
      * @return <tt>true</tt> if a match is found, <tt>false</tt> otherwise.
      */
     public static boolean matches(String text, String pattern) {
         if (text == null) {
             throw new IllegalArgumentException("text cannot be null");
         }
+        return globMatches(text, pattern);
+    }
 
-        text += '\0';
-        pattern += '\0';
-
-        int N = pattern.length();
-
-        boolean[] states = new boolean[N + 1];
-        boolean[] old = new boolean[N + 1];
-        old[0] = true;
-
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            states = new boolean[N + 1]; // initialized to false
-            for (int j = 0; j < N; j++) {
-                char p = pattern.charAt(j);
-
-                // hack to handle *'s that match 0 characters
-                if (old[j] && (p == WILDCARD))
-                    old[j + 1] = true;
-
-                if (old[j] && (p == c))
-                    states[j + 1] = true;
-                if (old[j] && (p == WILDCARD))
-                    states[j] = true;
-                if (old[j] && (p == WILDCARD))
-                    states[j + 1] = true;
-            }
-            old = states;
+    /**
+     * Compiles the pattern to a matcher that can be reused to match many texts.
+     *
+     * @param pattern
+     *            the pattern to be matched for. This can contain the wildcard
+     *            character '*' (asterisk).
+     *
+     * @return the matcher for the pattern.
+     */
+    public static WildcardMatcher compile(String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("pattern cannot be null");
+        }
+        int start = 0;
+        while (start < pattern.length() && pattern.charAt(start) == WILDCARD) {
+            start++;
+        }
+        if (start == pattern.length()) {
+            return start == 0 ? new ExactMatcher(pattern) : new AnyMatcher(pattern);
+        }
+        int end = pattern.length();
+        while (pattern.charAt(end - 1) == WILDCARD) {
+            end--;
         }
-        return states[N];
+        final String literal = pattern.substring(start, end);
+        if (literal.indexOf(WILDCARD) >= 0) {
+            return new GlobMatcher(pattern);
+        }
+        final boolean leadingWildcard = start > 0;
+        final boolean trailingWildcard = end < pattern.length();
+        if (leadingWildcard && trailingWildcard) {
+            return new ContainsMatcher(pattern, literal);
+        } else if (leadingWildcard) {
+            return new SuffixMatcher(pattern, literal);
+        } else if (trailingWildcard) {
+            return new PrefixMatcher(pattern, literal);
+        } else {
+            return new ExactMatcher(pattern);
+        }
+    }
 
+    public static WildcardMatcher[] compile(Collection<String> patterns) {
+        final WildcardMatcher[] matchers = new WildcardMatcher[patterns.size()];
+        int i = 0;
+        for (String pattern : patterns) {
+            matchers[i++] = compile(pattern);
+        }
+        return matchers;
     }
 
     public static boolean matchesAny(Collection<String> patterns, String text) {
@@ -99,4 +125,140 @@ public class WildcardMatcher {
         }
         return false;
     }
+
+    public static boolean matchesAny(WildcardMatcher[] matchers, String text) {
+        for (WildcardMatcher matcher : matchers) {
+            if (matcher.matches(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Greedy matching which remembers the position of the last wildcard and backtracks to it when the rest of the
+     * pattern does not match. A wildcard only ever has to be retried at the last one, so no state has to be kept.
+     */
+    private static boolean globMatches(String text, String pattern) {
+        int t = 0;
+        int p = 0;
+        int lastWildcard = -1;
+        int textAtLastWildcard = 0;
+        while (t < text.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == WILDCARD) {
+                lastWildcard = p++;
+                textAtLastWildcard = t;
+            } else if (p < pattern.length() && pattern.charAt(p) == text.charAt(t)) {
+                p++;
+                t++;
+            } else if (lastWildcard >= 0) {
+                p = lastWildcard + 1;
+                t = ++textAtLastWildcard;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == WILDCARD) {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private final String pattern;
+
+    private WildcardMatcher(String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * @param text
+     *            the text to be tested for matches.
+     *
+     * @return <tt>true</tt> if the text matches the compiled pattern, <tt>false</tt> otherwise.
+     */
+    public abstract boolean matches(String text);
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    private static class ExactMatcher extends WildcardMatcher {
+        private ExactMatcher(String pattern) {
+            super(pattern);
+        }
+
+        @Override
+        public boolean matches(String text) {
+            return getPattern().equals(text);
+        }
+    }
+
+    private static class AnyMatcher extends WildcardMatcher {
+        private AnyMatcher(String pattern) {
+            super(pattern);
+        }
+
+        @Override
+        public boolean matches(String text) {
+            return true;
+        }
+    }
+
+    private static class PrefixMatcher extends WildcardMatcher {
+        private final String prefix;
+
+        private PrefixMatcher(String pattern, String prefix) {
+            super(pattern);
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean matches(String text) {
+            return text.startsWith(prefix);
+        }
+    }
+
+    private static class SuffixMatcher extends WildcardMatcher {
+        private final String suffix;
+
+        private SuffixMatcher(String pattern, String suffix) {
+            super(pattern);
+            this.suffix = suffix;
+        }
+
+        @Override
+        public boolean matches(String text) {
+            return text.endsWith(suffix);
+        }
+    }
+
+    private static class ContainsMatcher extends WildcardMatcher {
+        private final String infix;
+
+        private ContainsMatcher(String pattern, String infix) {
+            super(pattern);
+            this.infix = infix;
+        }
+
+        @Override
+        public boolean matches(String text) {
+            return text.contains(infix);
+        }
+    }
+
+    private static class GlobMatcher extends WildcardMatcher {
+        private GlobMatcher(String pattern) {
+            super(pattern);
+        }
+
+        @Override
+        public boolean matches(String text) {
+            return globMatches(text, getPattern());
+        }
+    }
 }
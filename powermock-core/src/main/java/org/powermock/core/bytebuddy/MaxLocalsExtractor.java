@@ -18,27 +18,23 @@
 
 package org.powermock.core.bytebuddy;
 
-import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.jar.asm.ClassVisitor;
 import net.bytebuddy.jar.asm.MethodVisitor;
-import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.utility.OpenedClassReader;
 
 public class MaxLocalsExtractor extends ClassVisitor {
     
-    private MethodMaxLocals methodMaxLocals;
+    private final MethodMaxLocals methodMaxLocals;
     
     public MaxLocalsExtractor() {
-        super(Opcodes.ASM5);
+        super(OpenedClassReader.ASM_API);
+        methodMaxLocals = new MethodMaxLocals();
     }
     
     @Override
     public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature,
                                      final String[] exceptions) {
-        if (MethodDescription.CONSTRUCTOR_INTERNAL_NAME.equals(name)) {
-            methodMaxLocals = new MethodMaxLocals();
-            return new MaxLocalsMethodVisitor(name, desc, methodMaxLocals);
-        }
-        return super.visitMethod(access, name, desc, signature, exceptions);
+        return new MaxLocalsMethodVisitor(name, desc, methodMaxLocals);
     }
     
     public MethodMaxLocals getMethods() {
@@ -54,7 +50,7 @@ public class MaxLocalsExtractor extends ClassVisitor {
         
         private MaxLocalsMethodVisitor(final String name, final String signature,
                                        final MethodMaxLocals methodMaxLocals) {
-            super(Opcodes.ASM5);
+            super(OpenedClassReader.ASM_API);
             this.name = name;
             this.signature = signature;
             this.methodMaxLocals = methodMaxLocals;
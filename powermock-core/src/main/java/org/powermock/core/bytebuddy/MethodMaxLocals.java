@@ -37,8 +37,11 @@ public class MethodMaxLocals {
     }
     
     public int getMethodMaxLocal(final MethodDescription instrumentedMethod) {
-        final String key = instrumentedMethod.getInternalName() + instrumentedMethod.getDescriptor();
-        final Integer maxLocals = methodMaxLocals.get(key);
+        return getMethodMaxLocal(instrumentedMethod.getInternalName(), instrumentedMethod.getDescriptor());
+    }
+    
+    public int getMethodMaxLocal(final String name, final String descriptor) {
+        final Integer maxLocals = methodMaxLocals.get(name + descriptor);
         return maxLocals == null ? 0 : maxLocals;
     }
 }
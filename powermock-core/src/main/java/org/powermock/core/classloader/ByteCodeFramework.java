@@ -6,8 +6,10 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.core.classloader.annotations.PrepareOnlyThisForTest;
 import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
 import org.powermock.core.classloader.annotations.UseClassPathAdjuster;
+import org.powermock.core.classloader.bytebuddy.ByteBuddyMockClassLoader;
 import org.powermock.core.classloader.javassist.JavassistMockClassLoader;
 import org.powermock.core.transformers.MockTransformerChainFactory;
+import org.powermock.core.transformers.bytebuddy.ByteBuddyMockTransformerChainFactory;
 import org.powermock.core.transformers.javassist.JavassistMockTransformerChainFactory;
 
 import java.lang.reflect.AnnotatedElement;
@@ -23,7 +25,24 @@ public enum ByteCodeFramework {
     
         @Override
         MockTransformerChainFactory createTransformerChainFactory() {
-            return new JavassistMockTransformerChainFactory();
+            final Boolean fuseTransformers = GlobalConfiguration.powerMockConfiguration().getFuseTransformers();
+            return new JavassistMockTransformerChainFactory(Boolean.TRUE.equals(fuseTransformers));
+        }
+    },
+    /**
+     * Transforms classes with the ASM bundled with ByteBuddy, the calls of the mock gateway are emitted as byte
+     * code instead of being compiled from Java source. A {@link UseClassPathAdjuster} is only used by Javassist.
+     */
+    ByteBuddy {
+        @Override
+        MockClassLoader createClassloader(final MockClassLoaderConfiguration configuration,
+                                          final UseClassPathAdjuster useClassPathAdjuster) {
+            return new ByteBuddyMockClassLoader(configuration);
+        }
+    
+        @Override
+        MockTransformerChainFactory createTransformerChainFactory() {
+            return new ByteBuddyMockTransformerChainFactory();
         }
     };
     
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Index of the class path of the system class loader, which is shared by all mock class loaders.
+ * <p>
+ * Entries of jars, including jars referenced by the {@code Class-Path} attribute of their manifest, are indexed once
+ * by name, so finding a class file or a resource is a hash lookup instead of a call of the system class loader.
+ * Directories are not indexed, because their content may change while tests run, but they are checked in the
+ * class path order.
+ * </p>
+ * <p>
+ * The index only knows the class path which the system class loader had when the index was built. Callers have to
+ * fall back to the class loader if a name is not found.
+ * </p>
+ */
+class ClassPathIndex {
+
+    private static final String FILE_SEPARATOR = "/";
+    private static final String CLASS_FILE_EXTENSION = ".class";
+
+    private final List<File> directories;
+    private final List<Integer> directoryPositions;
+    /*
+     * URL prefixes of the jar entries by the position of the jar in the class path, null for directories.
+     */
+    private final List<String> jarUrls;
+    private final Map<String, List<Integer>> jarEntries;
+
+    static ClassPathIndex getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    ClassPathIndex(String classPath) {
+        directories = new ArrayList<File>();
+        directoryPositions = new ArrayList<Integer>();
+        jarUrls = new ArrayList<String>();
+        jarEntries = new HashMap<String, List<Integer>>();
+
+        final Set<File> indexed = new HashSet<File>();
+        if (classPath != null) {
+            for (String path : classPath.split(File.pathSeparator)) {
+                if (path.length() > 0) {
+                    addEntry(new File(path), indexed);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return location of the first class file or resource with the name, or {@code null} if the name is not found.
+     */
+    URL findResource(String name) {
+        final List<Integer> jars = jarEntries.get(name);
+        final int firstJar = jars == null ? Integer.MAX_VALUE : jars.get(0);
+        for (int i = 0; i < directories.size() && directoryPositions.get(i) < firstJar; i++) {
+            final URL url = findInDirectory(directories.get(i), name);
+            if (url != null) {
+                return url;
+            }
+        }
+        return jars == null ? null : jarEntryUrl(firstJar, name);
+    }
+
+    /**
+     * @return locations of all class files or resources with the name in the class path order.
+     */
+    Enumeration<URL> findResources(String name) {
+        final List<Integer> jars = jarEntries.get(name);
+        final List<URL> urls = new ArrayList<URL>();
+        int jar = 0;
+        for (int i = 0; i < directories.size(); i++) {
+            while (jars != null && jar < jars.size() && jars.get(jar) < directoryPositions.get(i)) {
+                urls.add(jarEntryUrl(jars.get(jar++), name));
+            }
+            final URL url = findInDirectory(directories.get(i), name);
+            if (url != null) {
+                urls.add(url);
+            }
+        }
+        while (jars != null && jar < jars.size()) {
+            urls.add(jarEntryUrl(jars.get(jar++), name));
+        }
+        return Collections.enumeration(urls);
+    }
+
+    /**
+     * @param prefix the beginning of the class names, e.g. {@code org.example.} for the classes of the package and
+     *               its sub packages.
+     * @return names of all classes in the class path whose name starts with the prefix.
+     */
+    Set<String> findClassNames(String prefix) {
+        final String resourcePrefix = prefix.replace('.', '/');
+        final Set<String> classNames = new TreeSet<String>();
+        for (String name : jarEntries.keySet()) {
+            if (name.startsWith(resourcePrefix)) {
+                addClassName(name, classNames);
+            }
+        }
+        final String path = resourcePrefix.substring(0, resourcePrefix.lastIndexOf('/') + 1);
+        for (File directory : directories) {
+            addClassNames(new File(directory, path), path, resourcePrefix, classNames);
+        }
+        return classNames;
+    }
+
+    private static void addClassNames(File directory, String path, String resourcePrefix, Set<String> classNames) {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            final String name = path + file.getName();
+            if (file.isDirectory()) {
+                if ((name + FILE_SEPARATOR).startsWith(resourcePrefix)) {
+                    addClassNames(file, name + FILE_SEPARATOR, resourcePrefix, classNames);
+                }
+            } else if (name.startsWith(resourcePrefix)) {
+                addClassName(name, classNames);
+            }
+        }
+    }
+
+    private static void addClassName(String name, Set<String> classNames) {
+        // package-info and module-info are not classes which could be loaded
+        if (name.endsWith(CLASS_FILE_EXTENSION) && name.indexOf('-') < 0) {
+            classNames.add(name.substring(0, name.length() - CLASS_FILE_EXTENSION.length()).replace('/', '.'));
+        }
+    }
+
+    private void addEntry(File file, Set<File> indexed) {
+        final File entry = file.getAbsoluteFile();
+        if (!indexed.add(entry)) {
+            return;
+        }
+        if (entry.isDirectory()) {
+            directoryPositions.add(jarUrls.size());
+            directories.add(entry);
+            jarUrls.add(null);
+        } else if (entry.isFile()) {
+            addJar(entry, indexed);
+        }
+    }
+
+    private void addJar(File file, Set<File> indexed) {
+        final JarFile jarFile;
+        final String jarUrl;
+        try {
+            jarUrl = "jar:" + file.toURI().toURL() + "!/";
+            jarFile = new JarFile(file);
+        } catch (IOException e) {
+            // Not a jar, the system class loader ignores the entry too.
+            return;
+        }
+        final List<File> referencedJars = new ArrayList<File>();
+        try {
+            final int jarPosition = jarUrls.size();
+            jarUrls.add(jarUrl);
+            for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
+                final JarEntry jarEntry = entries.nextElement();
+                if (!jarEntry.isDirectory()) {
+                    addJarEntry(jarEntry.getName(), jarPosition);
+                }
+            }
+            addReferencedJars(file, jarFile.getManifest(), referencedJars);
+        } catch (IOException e) {
+            // The entries read so far are indexed, the other names are looked up with the class loader.
+        } finally {
+            try {
+                jarFile.close();
+            } catch (IOException ignored) {
+                // Nothing to do
+            }
+        }
+        // As the system class loader does, jars from the Class-Path attribute are searched right after the jar.
+        for (File referencedJar : referencedJars) {
+            addEntry(referencedJar, indexed);
+        }
+    }
+
+    private void addJarEntry(String name, int jarPosition) {
+        final List<Integer> positions = jarEntries.get(name);
+        if (positions == null) {
+            jarEntries.put(name, Collections.singletonList(jarPosition));
+        } else if (positions.size() == 1) {
+            final List<Integer> morePositions = new ArrayList<Integer>(positions);
+            morePositions.add(jarPosition);
+            jarEntries.put(name, morePositions);
+        } else {
+            positions.add(jarPosition);
+        }
+    }
+
+    private static void addReferencedJars(File file, Manifest manifest, List<File> referencedJars) {
+        if (manifest == null) {
+            return;
+        }
+        final String classPath = manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+        if (classPath == null) {
+            return;
+        }
+        final URI base = file.toURI();
+        for (StringTokenizer tokenizer = new StringTokenizer(classPath); tokenizer.hasMoreTokens(); ) {
+            try {
+                final URI referenced = base.resolve(tokenizer.nextToken());
+                if ("file".equals(referenced.getScheme())) {
+                    referencedJars.add(new File(referenced));
+                }
+            } catch (IllegalArgumentException e) {
+                // Malformed entries are ignored by the system class loader too.
+            }
+        }
+    }
+
+    private URL jarEntryUrl(int jarPosition, String name) {
+        try {
+            return new URL(jarUrls.get(jarPosition) + name);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Cannot create URL of " + name, e);
+        }
+    }
+
+    private static URL findInDirectory(File directory, String name) {
+        if (name.startsWith(FILE_SEPARATOR)) {
+            return null;
+        }
+        final File file = new File(directory, name);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return file.toURI().toURL();
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    private static class Holder {
+        private static final ClassPathIndex INSTANCE = new ClassPathIndex(System.getProperty("java.class.path"));
+    }
+}
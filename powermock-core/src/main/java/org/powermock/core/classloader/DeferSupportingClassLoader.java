@@ -34,6 +34,18 @@ import java.util.concurrent.ConcurrentMap;
  */
 abstract class DeferSupportingClassLoader extends ClassLoader {
     
+    static {
+        /*
+         * ClassLoader.registerAsParallelCapable() is available since Java 7 and registers the class that calls it, so
+         * each class of the hierarchy calls it in its own static initializer.
+         */
+        try {
+            ClassLoader.class.getDeclaredMethod("registerAsParallelCapable").invoke(null);
+        } catch (Exception e) {
+            // Java 6, class loaders cannot be parallel capable.
+        }
+    }
+    
     private final ConcurrentMap<String, SoftReference<Class<?>>> classes;
     private final ConcurrentMap<String, Object> parallelLockMap;
     
@@ -92,15 +104,28 @@ abstract class DeferSupportingClassLoader extends ClassLoader {
     
     @Override
     protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-        synchronized (getClassLoadingLock(name)) {
-            Class<?> clazz = findLoadedClass1(name);
+        Class<?> clazz = findLoadedClass1(name);
+        if (clazz != null) {
+            return clazz;
+        }
+        final Object lock = getClassLoadingLock(name);
+        synchronized (lock) {
+            clazz = findLoadedClass1(name);
             if (clazz == null) {
                 clazz = loadClass1(name, resolve);
             }
+            /*
+             * The class is found without locking from now on, so the lock is not needed anymore. If loading failed
+             * the lock is kept, so threads which load the class again are still serialized.
+             */
+            parallelLockMap.remove(name, lock);
             return clazz;
         }
     }
     
+    /**
+     * @return the lock for loading the class with the name. Classes with different names are loaded in parallel.
+     */
     protected Object getClassLoadingLock(String className) {
         Object lock = this;
         if (parallelLockMap != null) {
@@ -122,6 +147,13 @@ abstract class DeferSupportingClassLoader extends ClassLoader {
      */
     @Override
     protected URL findResource(String name) {
+        final ClassPathIndex classPathIndex = getClassPathIndex();
+        if (classPathIndex != null) {
+            final URL url = classPathIndex.findResource(name);
+            if (url != null) {
+                return url;
+            }
+        }
         try {
             return Whitebox.invokeMethod(deferTo, "findResource", name);
         } catch (Exception e) {
@@ -132,6 +164,13 @@ abstract class DeferSupportingClassLoader extends ClassLoader {
     
     @Override
     protected Enumeration<URL> findResources(String name) throws IOException {
+        final ClassPathIndex classPathIndex = getClassPathIndex();
+        if (classPathIndex != null) {
+            final Enumeration<URL> urls = classPathIndex.findResources(name);
+            if (urls.hasMoreElements()) {
+                return urls;
+            }
+        }
         try {
             return Whitebox.invokeMethod(deferTo, "findResources", name);
         } catch (Exception e) {
@@ -139,6 +178,35 @@ abstract class DeferSupportingClassLoader extends ClassLoader {
         }
     }
     
+    /**
+     * Finds the class file of the class which should be loaded by this class loader.
+     *
+     * @param className the name of the class.
+     * @return a {@code URL} of the class file, or {@code null} if the class file could not be found.
+     */
+    URL findClassFile(String className) {
+        final String path = className.replace('.', '/').concat(".class");
+        /*
+         * Classes from these packages may also be provided by the parents of the system class loader, which are
+         * searched first.
+         */
+        final ClassPathIndex classPathIndex = getClassPathIndex();
+        if (classPathIndex != null && !path.startsWith("java/") && !path.startsWith("javax/")) {
+            final URL url = classPathIndex.findResource(path);
+            if (url != null) {
+                return url;
+            }
+        }
+        return deferTo.getResource(path);
+    }
+    
+    /**
+     * @return index of the class path if this class loader defers to the system class loader, otherwise {@code null}.
+     */
+    ClassPathIndex getClassPathIndex() {
+        return deferTo == ClassLoader.getSystemClassLoader() ? ClassPathIndex.getInstance() : null;
+    }
+    
     private Class<?> loadClass1(String name, boolean resolve) throws ClassNotFoundException {
         Class<?> clazz;
         if (shouldDefer(name)) {
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import org.powermock.core.classloader.MockClassLoader.ConcurrentClassTransformer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transforms classes of a {@link MockClassLoader} in parallel before they are loaded.
+ * <p>
+ * Every worker has its own {@link ConcurrentClassTransformer}, so the class representation of a worker, e.g. a
+ * Javassist {@code ClassPool}, is never used by two threads. The workers take the next class from the shared list
+ * until all classes are transformed. The calling thread is one of the workers, so all classes are transformed even
+ * if every thread of the pool is busy.
+ * </p>
+ * <p>
+ * The workers run in the common {@code ForkJoinPool}. Java 6 and 7 have no common pool, so a pool of daemon threads
+ * is created for each transformation.
+ * </p>
+ */
+final class EagerClassTransformation {
+
+    private static final ExecutorService COMMON_POOL = getCommonPool();
+
+    private final MockClassLoader classLoader;
+    private final List<String> classNames;
+    private final Map<String, byte[]> transformedClasses;
+    private final AtomicInteger nextClass;
+
+    EagerClassTransformation(MockClassLoader classLoader, List<String> classNames, Map<String, byte[]> transformedClasses) {
+        this.classLoader = classLoader;
+        this.classNames = classNames;
+        this.transformedClasses = transformedClasses;
+        this.nextClass = new AtomicInteger();
+    }
+
+    private static ExecutorService getCommonPool() {
+        try {
+            return (ExecutorService) Class.forName("java.util.concurrent.ForkJoinPool").getMethod("commonPool").invoke(null);
+        } catch (Exception e) {
+            // Java 6 and 7, a pool is created for each transformation.
+            return null;
+        }
+    }
+
+    /**
+     * Transforms the classes and puts the transformed byte code into the map, which is complete when the method
+     * returns unless the thread has been interrupted.
+     */
+    void run() {
+        if (classNames.isEmpty()) {
+            return;
+        }
+        final ConcurrentClassTransformer transformer = classLoader.createConcurrentClassTransformer();
+        if (transformer == null) {
+            return;
+        }
+
+        final int workers = Math.min(classNames.size(), Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = COMMON_POOL == null && workers > 1 ? createPool(workers - 1) : COMMON_POOL;
+        try {
+            final List<Worker> pooledWorkers = new ArrayList<Worker>();
+            for (int i = 1; i < workers; i++) {
+                final Worker worker = new Worker(classLoader.createConcurrentClassTransformer());
+                worker.future = executor.submit(worker);
+                pooledWorkers.add(worker);
+            }
+            new Worker(transformer).run();
+            awaitWorkers(pooledWorkers);
+        } finally {
+            if (executor != COMMON_POOL) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private static void awaitWorkers(List<Worker> workers) {
+        for (Worker worker : workers) {
+            // workers which have not been started yet would find no class left to transform
+            if (worker.started.compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                worker.future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // the classes left by the worker are transformed when they are loaded
+            }
+        }
+    }
+
+    private static ExecutorService createPool(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "powermock-transformation-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private class Worker implements Runnable {
+        private final ConcurrentClassTransformer transformer;
+        private final AtomicBoolean started;
+        private volatile Future<?> future;
+
+        private Worker(ConcurrentClassTransformer transformer) {
+            this.transformer = transformer;
+            this.started = new AtomicBoolean();
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            for (int i = nextClass.getAndIncrement(); i < classNames.size(); i = nextClass.getAndIncrement()) {
+                final String name = classNames.get(i);
+                try {
+                    transformedClasses.put(name, classLoader.transformConcurrently(name, transformer));
+                } catch (Exception e) {
+                    // the class is transformed again when it is loaded, which reports the failure
+                }
+            }
+        }
+    }
+}
@@ -16,6 +16,9 @@
  */
 package org.powermock.core.classloader;
 
+import org.powermock.core.CallSiteRegistry;
+import org.powermock.core.MethodResolutionCache;
+import org.powermock.core.MockRepository;
 import org.powermock.core.transformers.ClassWrapper;
 import org.powermock.core.transformers.ClassWrapperFactory;
 import org.powermock.core.transformers.MockTransformer;
@@ -24,12 +27,20 @@ import org.powermock.core.transformers.javassist.support.JavaAssistClassWrapperF
 import org.powermock.core.transformers.support.DefaultMockTransformerChain;
 import org.powermock.tests.utils.IgnorePackagesExtractor;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
 import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <p>
@@ -62,9 +73,26 @@ public abstract class MockClassLoader extends DeferSupportingClassLoader {
      */
     public static final String MODIFY_ALL_CLASSES = "*";
     
+    private static final int DEFAULT_CLASS_FILE_BUFFER_SIZE = 16384;
+    private static final int MAX_REUSED_CLASS_FILE_BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<ClassFileBuffer> CLASS_FILE_BUFFER = new ThreadLocal<ClassFileBuffer>();
+    
+    static {
+        try {
+            ClassLoader.class.getDeclaredMethod("registerAsParallelCapable").invoke(null);
+        } catch (Exception e) {
+            // Java 6, class loaders cannot be parallel capable.
+        }
+    }
+    
     protected ClassMarker classMarker;
     protected ClassWrapperFactory classWrapperFactory;
     private MockTransformerChain mockTransformerChain;
+    private final MethodResolutionCache methodResolutionCache;
+    private final CallSiteRegistry callSiteRegistry;
+    private TransformedClassCache.Fingerprint transformationFingerprint;
+    private final ConcurrentMap<String, byte[]> eagerlyTransformedClasses;
+    private final Set<String> classesWithDeferConstructor;
     
     /**
      * Creates a new instance of the  based on the
@@ -92,6 +120,10 @@ public abstract class MockClassLoader extends DeferSupportingClassLoader {
         super(MockClassLoader.class.getClassLoader(), configuration);
         this.classWrapperFactory = classWrapperFactory;
         this.mockTransformerChain = DefaultMockTransformerChain.newBuilder().build();
+        this.methodResolutionCache = new MethodResolutionCache();
+        this.callSiteRegistry = new CallSiteRegistry(this);
+        this.eagerlyTransformedClasses = new ConcurrentHashMap<String, byte[]>();
+        this.classesWithDeferConstructor = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     }
     
     @Override
@@ -114,9 +146,113 @@ public abstract class MockClassLoader extends DeferSupportingClassLoader {
         return mockTransformerChain;
     }
     
+    /**
+     * Enables sharing of transformed classes with other class loaders through the {@link TransformedClassCache}.
+     *
+     * @param transformationFingerprint fingerprint of the transformer chain of this class loader or {@code null}
+     *                                  if the transformed classes must not be shared.
+     */
+    void setTransformationFingerprint(TransformedClassCache.Fingerprint transformationFingerprint) {
+        this.transformationFingerprint = transformationFingerprint;
+    }
+    
+    TransformedClassCache.Fingerprint getTransformationFingerprint() {
+        return transformationFingerprint;
+    }
+    
+    /**
+     * @return the cache of methods resolved by the {@link org.powermock.core.MockGateway} for classes loaded by
+     * this class loader. The cache is discarded together with the class loader.
+     */
+    public MethodResolutionCache getMethodResolutionCache() {
+        return methodResolutionCache;
+    }
+    
+    /**
+     * @return the table of call sites instrumented in classes loaded by this class loader.
+     * @see org.powermock.core.transformers.CallSiteAwareTransformer
+     */
+    public CallSiteRegistry getCallSiteRegistry() {
+        return callSiteRegistry;
+    }
+    
+    /**
+     * Transforms the classes matched by the wildcard patterns of the classes to modify, e.g. the classes of a
+     * package prepared for test, in parallel, so loading them only has to define the transformed byte code. Only
+     * classes found in the class path of the system class loader are transformed, and classes which cannot be
+     * transformed are transformed again when they are loaded to report the failure.
+     *
+     * @param excludedClasses classes which are transformed only when they are loaded, together with their
+     *                        nested classes.
+     * @return the number of transformed classes.
+     * @see EagerClassTransformation
+     */
+    int transformEagerly(final Collection<String> excludedClasses) {
+        final ClassPathIndex classPathIndex = getClassPathIndex();
+        if (classPathIndex == null) {
+            return 0;
+        }
+        
+        final Set<String> classNames = new LinkedHashSet<String>();
+        for (String pattern : getConfiguration().getClassesToModify()) {
+            final int wildcard = pattern.indexOf('*');
+            // a pattern which starts with a wildcard would transform the whole class path
+            if (wildcard <= 0) {
+                continue;
+            }
+            for (String className : classPathIndex.findClassNames(pattern.substring(0, wildcard))) {
+                if (getConfiguration().shouldMockClass(className) && !isExcluded(className, excludedClasses)
+                        && findLoadedClass(className) == null) {
+                    classNames.add(className);
+                }
+            }
+        }
+        
+        final int sizeBefore = eagerlyTransformedClasses.size();
+        new EagerClassTransformation(this, new ArrayList<String>(classNames), eagerlyTransformedClasses).run();
+        return eagerlyTransformedClasses.size() - sizeBefore;
+    }
+    
+    private static boolean isExcluded(final String className, final Collection<String> excludedClasses) {
+        for (String excludedClass : excludedClasses) {
+            if (className.equals(excludedClass) || className.startsWith(excludedClass + '$')) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return a transformer which transforms classes on another thread while this class loader loads classes, or
+     * {@code null} if the byte code framework cannot transform classes concurrently. Each transformer is used by
+     * one thread only.
+     * @see #transformEagerly(Collection)
+     */
+    protected ConcurrentClassTransformer createConcurrentClassTransformer() {
+        return null;
+    }
+    
+    /**
+     * Transforms the class with the transformer, or gets it from the {@link TransformedClassCache} if it has been
+     * transformed by another class loader with the same transformation fingerprint.
+     */
+    byte[] transformConcurrently(final String name, final ConcurrentClassTransformer transformer) throws Exception {
+        final byte[] originalDigest = isCacheable(name) ? digestOriginalClass(name) : null;
+        if (originalDigest == null) {
+            return transformer.transform(name);
+        }
+        
+        final TransformedClassCache cache = TransformedClassCache.getInstance();
+        byte[] clazz = cache.get(name, transformationFingerprint, originalDigest);
+        if (clazz == null) {
+            clazz = transformer.transform(name);
+            cache.put(name, transformationFingerprint, originalDigest, clazz);
+        }
+        return clazz;
+    }
+    
     protected Class<?> loadUnmockedClass(final String name, final ProtectionDomain protectionDomain) throws ClassNotFoundException {
-        String path = name.replace('.', '/').concat(".class");
-        URL res = deferTo.getResource(path);
+        URL res = findClassFile(name);
         if (res != null) {
             try {
                 return defineClass(name, res, protectionDomain);
@@ -128,59 +264,150 @@ public abstract class MockClassLoader extends DeferSupportingClassLoader {
         }
     }
     
-    private Class<?> defineClass(String name, URL url, final ProtectionDomain protectionDomain) throws IOException {
-        byte[] b = readClass(url);
-        return defineClass(name, b, 0, b.length, protectionDomain);
+    /**
+     * Defines the class directly from the original class file, without modifying it. The class file is read into a
+     * buffer which is reused by the following classes defined by the current thread.
+     *
+     * @param name             the name of the class.
+     * @param url              the location of the class file.
+     * @param protectionDomain the protection domain of the class.
+     * @return the defined class.
+     * @throws IOException if the class file cannot be read.
+     */
+    protected Class<?> defineClass(String name, URL url, final ProtectionDomain protectionDomain) throws IOException {
+        final URLConnection connection = url.openConnection();
+        return defineClass(name, connection.getInputStream(), connection.getContentLength(), protectionDomain);
     }
     
-    private byte[] readClass(final URL url) throws IOException {
-        final URLConnection connection = url.openConnection();
-        
-        final InputStream in = connection.getInputStream();
-        ByteArrayOutputStream tmpOut = null;
-        
+    private Class<?> defineClass(String name, InputStream in, int contentLength, ProtectionDomain protectionDomain) throws IOException {
+        ClassFileBuffer buffer = CLASS_FILE_BUFFER.get();
+        // Classes defined while this class is defined, e.g. its super class, use their own buffer.
+        CLASS_FILE_BUFFER.remove();
+        if (buffer == null) {
+            buffer = new ClassFileBuffer();
+        }
         try {
-            
-            final int contentLength = connection.getContentLength();
-            
-            // To avoid having to resize the array over and over and over as
-            // bytes are written to the array, provide an accurate estimate of
-            // the ultimate size of the byte array
-            
-            if (contentLength != -1) {
-                tmpOut = new ByteArrayOutputStream(contentLength);
-            } else {
-                tmpOut = new ByteArrayOutputStream(16384);
-            }
-            
-            byte[] buf = new byte[512];
-            while (true) {
-                int len = in.read(buf);
-                if (len == -1) {
-                    break;
-                }
-                tmpOut.write(buf, 0, len);
-            }
-            return tmpOut.toByteArray();
+            buffer.read(in, contentLength);
+            return defineClass(name, ByteBuffer.wrap(buffer.bytes, 0, buffer.length), protectionDomain);
         } finally {
-            in.close();
-            if (tmpOut != null) {
-                tmpOut.close();
+            if (buffer.bytes.length <= MAX_REUSED_CLASS_FILE_BUFFER_SIZE) {
+                CLASS_FILE_BUFFER.set(buffer);
             }
         }
     }
     
+    /**
+     * @param name the name of the class.
+     * @return the original class file of the class, or {@code null} if the class file is not found.
+     * @throws IOException if the class file cannot be read.
+     */
+    protected byte[] readClassFile(final String name) throws IOException {
+        final URL url = findClassFile(name);
+        return url == null ? null : readClass(url);
+    }
+
+    private byte[] readClass(final URL url) throws IOException {
+        final URLConnection connection = url.openConnection();
+        final ClassFileBuffer buffer = new ClassFileBuffer();
+        buffer.read(connection.getInputStream(), connection.getContentLength());
+        return buffer.bytes.length == buffer.length ? buffer.bytes : Arrays.copyOf(buffer.bytes, buffer.length);
+    }
+    
     private Class<?> loadMockClass(String name, ProtectionDomain protectionDomain) throws ClassNotFoundException {
-        final byte[] clazz = defineAndTransformClass(name, protectionDomain);
+        byte[] clazz = eagerlyTransformedClasses.remove(name);
+        if (clazz == null) {
+            if (isCacheable(name)) {
+                clazz = defineAndTransformCachedClass(name, protectionDomain);
+            } else {
+                clazz = defineAndTransformClass(name, protectionDomain);
+            }
+        }
     
         return defineClass(name, protectionDomain, clazz);
     }
     
+    /**
+     * Whether the static initializer of a class is suppressed is read from the {@link MockRepository} while the class
+     * is transformed, so such a class is never taken from the cache nor put into it.
+     */
+    private boolean isCacheable(String name) {
+        return transformationFingerprint != null && transformationFingerprint.isCacheable(name)
+                   && !MockRepository.shouldSuppressStaticInitializerFor(name);
+    }
+    
+    private byte[] defineAndTransformCachedClass(String name, ProtectionDomain protectionDomain) throws ClassNotFoundException {
+        final byte[] originalDigest = digestOriginalClass(name);
+        if (originalDigest == null) {
+            return defineAndTransformClass(name, protectionDomain);
+        }
+        
+        final TransformedClassCache cache = TransformedClassCache.getInstance();
+        byte[] clazz = cache.get(name, transformationFingerprint, originalDigest);
+        if (clazz == null) {
+            clazz = defineAndTransformClass(name, protectionDomain);
+            cache.put(name, transformationFingerprint, originalDigest, clazz);
+        }
+        return clazz;
+    }
+    
+    /**
+     * @return the digest of the original class file, or {@code null} if the class file is not found or cannot be read.
+     * If transformed classes are stored for the next JVM runs, the class files which the transformation of the class
+     * may read are digested too.
+     * @see TransformationDependencies
+     */
+    private byte[] digestOriginalClass(String name) {
+        final URL res = findClassFile(name);
+        if (res == null) {
+            return null;
+        }
+        try {
+            final byte[] clazz = readClass(res);
+            if (TransformedClassCache.getInstance().isPersistent()) {
+                return TransformationDependencies.digest(this, name, clazz);
+            }
+            return TransformedClassCache.digest(clazz);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
     public Class<?> defineClass(final String name, final ProtectionDomain protectionDomain, final byte[] clazz) {
+        final String superClassName = getSuperClassName(clazz);
+        if (superClassName != null && !getConfiguration().shouldDefer(superClassName)) {
+            classesWithDeferConstructor.add(superClassName);
+        }
         return defineClass(name, clazz, 0, clazz.length, protectionDomain);
     }
     
+    /**
+     * A suppressed constructor call delegates to the defer constructor of the super class. A class which is defined
+     * from the {@link TransformedClassCache} has not been transformed by this class loader, so the class loader
+     * remembers the super classes of the classes it defines, and the defer constructor is added to a super class which
+     * is defined later.
+     *
+     * @param name the name of the class.
+     * @return {@code true} if a class defined by this class loader extends the class.
+     */
+    protected boolean isDeferConstructorNeeded(final String name) {
+        return classesWithDeferConstructor.contains(name);
+    }
+    
+    /**
+     * @param clazz the class file of a class.
+     * @return the name of the super class of the class, or {@code null} if the class has no super class.
+     */
+    protected abstract String getSuperClassName(final byte[] clazz);
+    
     protected <T> ClassWrapper<T> transformClass(ClassWrapper<T> wrappedType) throws Exception {
+        return transformClass(wrappedType, classMarker);
+    }
+    
+    /**
+     * Transforms the class with the transformer chain and marks it with the marker, which belongs to the class
+     * representation of the thread transforming the class.
+     */
+    protected <T> ClassWrapper<T> transformClass(ClassWrapper<T> wrappedType, ClassMarker classMarker) throws Exception {
         wrappedType = mockTransformerChain.transform(wrappedType);
         
         if (classMarker != null) {
@@ -190,4 +417,50 @@ public abstract class MockClassLoader extends DeferSupportingClassLoader {
     }
     
     protected abstract byte[] defineAndTransformClass(final String name, final ProtectionDomain protectionDomain) throws ClassNotFoundException;
+    
+    /**
+     * Transforms classes on a thread which does not load them.
+     *
+     * @see #createConcurrentClassTransformer()
+     */
+    protected interface ConcurrentClassTransformer {
+        /**
+         * @param name the name of the class.
+         * @return the transformed byte code of the class.
+         * @throws Exception if the class is not found or cannot be transformed.
+         */
+        byte[] transform(String name) throws Exception;
+    }
+    
+    private static class ClassFileBuffer {
+        private byte[] bytes = new byte[DEFAULT_CLASS_FILE_BUFFER_SIZE];
+        private int length;
+        
+        private void read(InputStream in, int contentLength) throws IOException {
+            try {
+                // Provide an accurate size of the buffer to avoid having to resize it as bytes are read.
+                if (contentLength > bytes.length) {
+                    bytes = new byte[contentLength];
+                }
+                length = 0;
+                while (true) {
+                    if (length == bytes.length) {
+                        final int next = in.read();
+                        if (next == -1) {
+                            break;
+                        }
+                        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                        bytes[length++] = (byte) next;
+                    }
+                    final int read = in.read(bytes, length, bytes.length - length);
+                    if (read == -1) {
+                        break;
+                    }
+                    length += read;
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
 }
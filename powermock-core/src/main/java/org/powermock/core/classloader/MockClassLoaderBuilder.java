@@ -17,14 +17,21 @@
 
 package org.powermock.core.classloader;
 
+import org.powermock.configuration.GlobalConfiguration;
 import org.powermock.core.classloader.annotations.UseClassPathAdjuster;
+import org.powermock.core.transformers.CallSiteAwareTransformer;
+import org.powermock.core.transformers.MockTargets;
+import org.powermock.core.transformers.MockTargetsAwareTransformer;
 import org.powermock.core.transformers.MockTransformer;
 import org.powermock.core.transformers.MockTransformerChain;
 import org.powermock.core.transformers.MockTransformerChainFactory;
 import org.powermock.core.transformers.TestClassAwareTransformer;
+import org.powermock.core.transformers.TestClassTransformer;
+import org.powermock.core.transformers.support.DefaultMockTransformerChain;
 import org.powermock.utils.ArrayUtil;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.powermock.core.transformers.support.FilterPredicates.isInstanceOf;
@@ -37,6 +44,7 @@ public class MockClassLoaderBuilder {
     private final ByteCodeFramework byteCodeFramework;
     private String[] packagesToIgnore;
     private String[] classesToModify;
+    private String[] suppressedStaticInitializers;
     
     public static MockClassLoaderBuilder create(ByteCodeFramework byteCodeFramework) {
         return new MockClassLoaderBuilder(byteCodeFramework);
@@ -44,6 +52,8 @@ public class MockClassLoaderBuilder {
     
     private UseClassPathAdjuster useClassPathAdjuster;
     private Class<?> testClass;
+    private MockTargets mockTargets;
+    private boolean mockTargetsExtracted;
     
     private MockClassLoaderBuilder(final ByteCodeFramework byteCodeFramework) {
         this.byteCodeFramework = byteCodeFramework;
@@ -57,12 +67,32 @@ public class MockClassLoaderBuilder {
         final MockClassLoaderConfiguration configuration = new MockClassLoaderConfiguration(classesToModify, packagesToIgnore);
         final MockClassLoader classLoader = byteCodeFramework.createClassloader(configuration, useClassPathAdjuster);
     
-        classLoader.setMockTransformerChain(createTransformerChain());
+        final MockTransformerChain mockTransformerChain = createTransformerChain(classLoader);
+        classLoader.setMockTransformerChain(mockTransformerChain);
+        classLoader.setTransformationFingerprint(createTransformationFingerprint(mockTransformerChain));
 
         return classLoader;
     }
     
-    private MockTransformerChain createTransformerChain() {
+    /**
+     * Transforms the classes of prepared packages before they are loaded, if eager transformation is enabled. It has
+     * to be called after the mock policies have been initialized, because the static initializers suppressed by
+     * them change how classes are transformed.
+     *
+     * @param classLoader the class loader built by this builder.
+     */
+    void transformEagerly(final MockClassLoader classLoader) {
+        /*
+         * The extra transformers may not be safe to use from several threads, and the test class hierarchy is
+         * modified by the test class transformer depending on the test which is run.
+         */
+        if (Boolean.TRUE.equals(GlobalConfiguration.powerMockConfiguration().getEagerTransformation())
+                && !hasStatefulExtraTransformers()) {
+            classLoader.transformEagerly(getTestClassHierarchy());
+        }
+    }
+    
+    private MockTransformerChain createTransformerChain(final MockClassLoader classLoader) {
         final MockTransformerChain mockTransformerChain = transformerChainFactory.createDefaultChain(extraMockTransformers);
         
         final Iterable<MockTransformer> testAwareTransformer = mockTransformerChain.filter(isInstanceOf(TestClassAwareTransformer.class));
@@ -70,9 +100,168 @@ public class MockClassLoaderBuilder {
             ((TestClassAwareTransformer) transformer).setTestClass(testClass);
         }
         
+        final MockTargets mockTargets = getMockTargets();
+        if (mockTargets != null) {
+            final Iterable<MockTransformer> mockTargetsAwareTransformers = mockTransformerChain.filter(isInstanceOf(MockTargetsAwareTransformer.class));
+            for (MockTransformer transformer : mockTargetsAwareTransformers) {
+                ((MockTargetsAwareTransformer) transformer).setMockTargets(mockTargets);
+            }
+        }
+        
+        if (Boolean.TRUE.equals(GlobalConfiguration.powerMockConfiguration().getUseCallSiteIds())) {
+            final Iterable<MockTransformer> callSiteAwareTransformers = mockTransformerChain.filter(isInstanceOf(CallSiteAwareTransformer.class));
+            for (MockTransformer transformer : callSiteAwareTransformers) {
+                ((CallSiteAwareTransformer) transformer).setCallSiteRegistry(classLoader.getCallSiteRegistry());
+            }
+        }
+        
         return mockTransformerChain;
     }
     
+    /**
+     * Transformed classes are shared between class loaders only if the result of transformation does not depend on
+     * the class loader. Call site ids are registered in the class loader and the extra transformers (except the
+     * {@link TestClassTransformer} which modifies only the test class) may keep any state, so classes
+     * transformed with them are never shared.
+     */
+    private TransformedClassCache.Fingerprint createTransformationFingerprint(final MockTransformerChain mockTransformerChain) {
+        if (Boolean.TRUE.equals(GlobalConfiguration.powerMockConfiguration().getUseCallSiteIds())) {
+            return null;
+        }
+        if (hasStatefulExtraTransformers()) {
+            return null;
+        }
+        
+        final StringBuilder value = new StringBuilder(byteCodeFramework.name());
+        if (useClassPathAdjuster != null) {
+            value.append(';').append(useClassPathAdjuster.value().getName());
+        }
+        for (MockTransformer transformer : mockTransformerChain.filter(isInstanceOf(MockTransformer.class))) {
+            value.append(';').append(transformer.getClass().getName());
+            if (transformer instanceof TestClassAwareTransformer) {
+                value.append('[').append(testClass.getName()).append(']');
+            }
+            if (transformer instanceof MockTargetsAwareTransformer && getMockTargets() != null) {
+                value.append(getMockTargets());
+            }
+        }
+        
+        return new TransformedClassCache.Fingerprint(value.toString(), getTestClassHierarchy());
+    }
+    
+    /**
+     * @return {@code true} if an extra transformer, except the {@link TestClassTransformer}, has been added.
+     */
+    private boolean hasStatefulExtraTransformers() {
+        for (MockTransformer transformer : extraMockTransformers) {
+            if (!(transformer instanceof TestClassTransformer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return the key identifying class loaders built with the same configuration, except the test class, or
+     * {@code null} if the class loader cannot be shared with other test classes.
+     * @see MockClassLoaderPool
+     */
+    String getPoolKey() {
+        if (hasStatefulExtraTransformers()) {
+            return null;
+        }
+        
+        final StringBuilder key = new StringBuilder(byteCodeFramework.name());
+        if (useClassPathAdjuster != null) {
+            key.append(';').append(useClassPathAdjuster.value().getName());
+        }
+        final MockTransformerChain defaultChain = transformerChainFactory.createDefaultChain(new ArrayList<MockTransformer>());
+        if (!defaultChain.filter(isInstanceOf(TestClassAwareTransformer.class)).isEmpty()) {
+            key.append(';').append(testClass.getName());
+        }
+        key.append(';').append(sortedWithout(classesToModify, testClass.getName()));
+        // classes are transformed without their static initializers only if they are suppressed for the test class
+        key.append(';').append(sortedWithout(suppressedStaticInitializers, null));
+        key.append(';').append(sortedWithout(packagesToIgnore, null));
+        if (getMockTargets() != null) {
+            key.append(';').append(getMockTargets());
+        }
+        return key.toString();
+    }
+    
+    /**
+     * @return the mock targets of the test class, or {@code null} if all call sites have to be instrumented.
+     * @see org.powermock.core.classloader.annotations.PowerMockTargets
+     */
+    private MockTargets getMockTargets() {
+        if (!mockTargetsExtracted) {
+            mockTargets = MockTargetsExtractor.extract(testClass, classesToModify);
+            mockTargetsExtracted = true;
+        }
+        return mockTargets;
+    }
+    
+    private static List<String> sortedWithout(final String[] values, final String excluded) {
+        final List<String> sorted = new ArrayList<String>();
+        if (values != null) {
+            for (String value : values) {
+                if (!value.equals(excluded) && !sorted.contains(value)) {
+                    sorted.add(value);
+                }
+            }
+        }
+        Collections.sort(sorted);
+        return sorted;
+    }
+    
+    /**
+     * Prepares the class loader built by this builder for another test class to run the test class in it.
+     */
+    void attachTo(final MockClassLoader classLoader) {
+        if (classesToModify != null) {
+            classLoader.getConfiguration().addClassesToModify(classesToModify);
+        }
+        
+        final List<MockTransformer> mockTransformers = new ArrayList<MockTransformer>();
+        for (MockTransformer transformer : classLoader.getMockTransformerChain().filter(isInstanceOf(MockTransformer.class))) {
+            // the test class transformers of the previous test class are replaced by the ones of this test class
+            if (!(transformer instanceof TestClassTransformer)) {
+                mockTransformers.add(transformer);
+            }
+        }
+        classLoader.setMockTransformerChain(
+            DefaultMockTransformerChain.newBuilder()
+                                       .append(mockTransformers)
+                                       .append(extraMockTransformers)
+                                       .build()
+        );
+        
+        final TransformedClassCache.Fingerprint fingerprint = classLoader.getTransformationFingerprint();
+        if (fingerprint != null) {
+            classLoader.setTransformationFingerprint(fingerprint.excluding(getTestClassHierarchy()));
+        }
+    }
+    
+    /**
+     * @return names of the test class and all its super types, which are modified by the {@link TestClassTransformer}.
+     */
+    List<String> getTestClassHierarchy() {
+        final List<String> testClassHierarchy = new ArrayList<String>();
+        addTypeHierarchy(testClass, testClassHierarchy);
+        return testClassHierarchy;
+    }
+    
+    private void addTypeHierarchy(final Class<?> type, final List<String> typeNames) {
+        if (type == null || typeNames.contains(type.getName())) {
+            return;
+        }
+        typeNames.add(type.getName());
+        addTypeHierarchy(type.getSuperclass(), typeNames);
+        for (Class<?> anInterface : type.getInterfaces()) {
+            addTypeHierarchy(anInterface, typeNames);
+        }
+    }
+    
     public MockClassLoaderBuilder addIgnorePackage(String[] packagesToIgnore) {
         this.packagesToIgnore = ArrayUtil.addAll(this.packagesToIgnore, packagesToIgnore);
         return this;
@@ -83,6 +272,15 @@ public class MockClassLoaderBuilder {
         return this;
     }
     
+    /**
+     * @param suppressedStaticInitializers the classes whose static initializers are suppressed for the test class,
+     *                                     which are also in the classes to modify.
+     */
+    public MockClassLoaderBuilder addSuppressedStaticInitializers(String[] suppressedStaticInitializers) {
+        this.suppressedStaticInitializers = ArrayUtil.addAll(this.suppressedStaticInitializers, suppressedStaticInitializers);
+        return this;
+    }
+    
     public MockClassLoaderBuilder addExtraMockTransformers(MockTransformer... mockTransformers) {
         if (mockTransformers != null) {
             for (MockTransformer mockTransformer : mockTransformers) {
@@ -19,11 +19,11 @@
 package org.powermock.core.classloader;
 
 import org.powermock.core.ClassReplicaCreator;
-import org.powermock.core.WildcardMatcher;
 import org.powermock.core.spi.PowerMockPolicy;
 import org.powermock.core.spi.support.InvocationSubstitute;
 import org.powermock.utils.ArrayUtil;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -56,6 +56,8 @@ public class MockClassLoaderConfiguration {
         "org.jacoco.agent.rt.*"
     };
     
+    private static final WildcardPatternSet PACKAGES_TO_BE_DEFERRED_PATTERNS = WildcardPatternSet.compile(Arrays.asList(PACKAGES_TO_BE_DEFERRED));
+    
     /*
      * Classes not deferred but loaded by the mock class loader but they're not
      * modified.
@@ -81,6 +83,14 @@ public class MockClassLoaderConfiguration {
     private final Set<String> modify = Collections.synchronizedSet(new HashSet<String>());
     private String[] deferPackages;
     
+    /*
+     * Patterns are compiled once and recompiled only when classes to modify or packages to defer are changed. The
+     * defer patterns are kept with the array of packages they are compiled from and are recompiled when the array
+     * is replaced, so the packages to defer stay the only source of truth.
+     */
+    private volatile DeferPatterns deferPatterns;
+    private volatile WildcardPatternSet modifyPatterns;
+    
     /**
      * Create an instance of configuration without any classes to mock or ignore.
      */
@@ -132,16 +142,19 @@ public class MockClassLoaderConfiguration {
      */
     public final void addClassesToModify(String... classes) {
         if (classes != null) {
-            for (String clazz : classes) {
-                if (!shouldDefer(PACKAGES_TO_BE_DEFERRED, clazz)) {
-                    modify.add(clazz);
+            synchronized (modify) {
+                for (String clazz : classes) {
+                    if (!shouldDefer(PACKAGES_TO_BE_DEFERRED_PATTERNS, clazz)) {
+                        modify.add(clazz);
+                    }
                 }
+                modifyPatterns = null;
             }
         }
     }
     
     boolean shouldDefer(String className) {
-        return shouldDefer(deferPackages, className);
+        return shouldDefer(getDeferPatterns(), className);
     }
     
     boolean shouldMockClass(String className) {
@@ -152,27 +165,17 @@ public class MockClassLoaderConfiguration {
         return ArrayUtil.clone(deferPackages);
     }
     
-    private boolean shouldDefer(String[] packages, String name) {
-        for (String packageToCheck : packages) {
-            if (deferConditionMatches(name, packageToCheck)) {
-                return true;
-            }
+    /**
+     * @return the names and the wildcard patterns of the classes to modify.
+     */
+    String[] getClassesToModify() {
+        synchronized (modify) {
+            return modify.toArray(new String[modify.size()]);
         }
-        return false;
-    }
-    
-    private boolean deferConditionMatches(String name, String packageName) {
-        final boolean wildcardMatch = WildcardMatcher.matches(name, packageName);
-        return wildcardMatch && !(shouldLoadUnmodifiedClass(name) || shouldModifyClass(name));
     }
     
-    private boolean shouldIgnore(String[] packages, String name) {
-        for (String ignore : packages) {
-            if (WildcardMatcher.matches(name, ignore)) {
-                return true;
-            }
-        }
-        return false;
+    private boolean shouldDefer(WildcardPatternSet packages, String name) {
+        return packages.matches(name) && !(shouldLoadUnmodifiedClass(name) || shouldModifyClass(name));
     }
     
     private boolean shouldLoadUnmodifiedClass(String className) {
@@ -201,7 +204,7 @@ public class MockClassLoaderConfiguration {
     }
     
     private boolean shouldIgnore(String className) {
-        return shouldIgnore(deferPackages, className);
+        return getDeferPatterns().matches(className);
     }
     
     boolean shouldModify(String className) {
@@ -215,10 +218,34 @@ public class MockClassLoaderConfiguration {
              * classes added by prepared for test should (i.e. those added in "modify")
              * have precedence over ignored packages.
              */
-            return WildcardMatcher.matchesAny(modify, className);
+            return getModifyPatterns().matches(className);
         }
     }
     
+    private WildcardPatternSet getDeferPatterns() {
+        final String[] packages = deferPackages;
+        DeferPatterns patterns = deferPatterns;
+        if (patterns == null || patterns.packages != packages) {
+            patterns = new DeferPatterns(packages);
+            deferPatterns = patterns;
+        }
+        return patterns.patterns;
+    }
+    
+    private WildcardPatternSet getModifyPatterns() {
+        WildcardPatternSet patterns = modifyPatterns;
+        if (patterns == null) {
+            synchronized (modify) {
+                patterns = modifyPatterns;
+                if (patterns == null) {
+                    patterns = WildcardPatternSet.compile(new HashSet<String>(modify));
+                    modifyPatterns = patterns;
+                }
+            }
+        }
+        return patterns;
+    }
+    
     private boolean shouldModifyAll() {
         return (modify.size() == 1 && modify.iterator().next().equals(MODIFY_ALL_CLASSES));
     }
@@ -236,4 +263,14 @@ public class MockClassLoaderConfiguration {
         }
         return PACKAGES_TO_BE_DEFERRED;
     }
+    
+    private static class DeferPatterns {
+        private final String[] packages;
+        private final WildcardPatternSet patterns;
+        
+        private DeferPatterns(String[] packages) {
+            this.packages = packages;
+            this.patterns = WildcardPatternSet.compile(Arrays.asList(packages));
+        }
+    }
 }
@@ -17,6 +17,7 @@
 
 package org.powermock.core.classloader;
 
+import org.powermock.configuration.GlobalConfiguration;
 import org.powermock.core.classloader.annotations.MockPolicy;
 import org.powermock.core.classloader.annotations.PrepareEverythingForTest;
 import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
@@ -60,37 +61,38 @@ public class MockClassLoaderFactory {
     
     public ClassLoader createForClass(final MockTransformer... extraMockTransformer) {
         final ByteCodeFramework byteCodeFramework = ByteCodeFramework.getByteCodeFrameworkForTestClass(testClass);
+        final String[] suppressStaticClasses = suppressionExtractor.getTestClasses(testClass);
         if (testClass.isAnnotationPresent(PrepareEverythingForTest.class)) {
-            return create(byteCodeFramework, new String[]{MockClassLoader.MODIFY_ALL_CLASSES}, extraMockTransformer);
+            return create(byteCodeFramework, new String[]{MockClassLoader.MODIFY_ALL_CLASSES}, suppressStaticClasses, extraMockTransformer);
         } else {
             final String[] prepareForTestClasses = prepareForTestExtractor.getTestClasses(testClass);
-            final String[] suppressStaticClasses = suppressionExtractor.getTestClasses(testClass);
-            return create(byteCodeFramework, arrayMerger.mergeArrays(String.class, prepareForTestClasses, suppressStaticClasses), extraMockTransformer);
+            return create(byteCodeFramework, arrayMerger.mergeArrays(String.class, prepareForTestClasses, suppressStaticClasses),
+                          suppressStaticClasses, extraMockTransformer);
         }
     }
     
     public ClassLoader createForMethod(final Method method, final MockTransformer... extraMockTransformers) {
         final ByteCodeFramework byteCodeFramework = ByteCodeFramework.getByteCodeFrameworkForMethod(testClass, method);
+        final String[] suppressStaticClasses = getStaticSuppressionClasses(method);
         if (method.isAnnotationPresent(PrepareEverythingForTest.class)) {
             final String[] classesToLoadByMockClassloader = {MockClassLoader.MODIFY_ALL_CLASSES};
-            return create(byteCodeFramework, classesToLoadByMockClassloader, extraMockTransformers);
+            return create(byteCodeFramework, classesToLoadByMockClassloader, suppressStaticClasses, extraMockTransformers);
         } else {
-            final String[] suppressStaticClasses = getStaticSuppressionClasses(method);
             final String[] prepareForTestClasses = prepareForTestExtractor.getTestClasses(method);
             final String[] classesToLoadByMockClassloader = arrayMerger.mergeArrays(String.class, prepareForTestClasses, suppressStaticClasses);
-            return create(byteCodeFramework, classesToLoadByMockClassloader, extraMockTransformers);
+            return create(byteCodeFramework, classesToLoadByMockClassloader, suppressStaticClasses, extraMockTransformers);
         }
     }
     
     private ClassLoader create(final ByteCodeFramework byteCodeFramework, final String[] prepareForTestClasses,
-                               final MockTransformer... extraMockTransformer) {
+                               final String[] suppressStaticClasses, final MockTransformer... extraMockTransformer) {
         final String[] classesToLoadByMockClassloader = makeSureArrayContainsTestClassName(prepareForTestClasses, testClass.getName());
         
         final ClassLoader mockLoader;
         if (isContextClassLoaderShouldBeUsed(classesToLoadByMockClassloader)) {
             mockLoader = Thread.currentThread().getContextClassLoader();
         } else {
-            mockLoader = createMockClassLoader(byteCodeFramework, classesToLoadByMockClassloader, extraMockTransformer);
+            mockLoader = createMockClassLoader(byteCodeFramework, classesToLoadByMockClassloader, suppressStaticClasses, extraMockTransformer);
         }
         return mockLoader;
     }
@@ -107,38 +109,50 @@ public class MockClassLoaderFactory {
     
     private ClassLoader createMockClassLoader(final ByteCodeFramework byteCodeFramework,
                                               final String[] classesToLoadByMockClassloader,
+                                              final String[] suppressStaticClasses,
                                               final MockTransformer... extraMockTransformer) {
         
-        final ClassLoader mockLoader = createWithPrivilegeAccessController(byteCodeFramework, classesToLoadByMockClassloader, extraMockTransformer);
+        final UseClassPathAdjuster useClassPathAdjuster = testClass.getAnnotation(UseClassPathAdjuster.class);
+        final MockClassLoaderBuilder builder = MockClassLoaderBuilder.create(byteCodeFramework)
+                                                                     .forTestClass(testClass)
+                                                                     .addIgnorePackage(packagesToIgnore)
+                                                                     .addClassesToModify(classesToLoadByMockClassloader)
+                                                                     .addSuppressedStaticInitializers(suppressStaticClasses)
+                                                                     .addClassPathAdjuster(useClassPathAdjuster)
+                                                                     .addExtraMockTransformers(extraMockTransformer);
+        
+        final MockClassLoader mockLoader = createWithPrivilegeAccessController(builder);
     
         initialize(mockLoader);
         
+        builder.transformEagerly(mockLoader);
+        
         return mockLoader;
     }
     
-    private ClassLoader createWithPrivilegeAccessController(final ByteCodeFramework byteCodeFramework,
-                                                            final String[] classesToLoadByMockClassloader,
-                                                            final MockTransformer... extraMockTransformer) {
+    private MockClassLoader createWithPrivilegeAccessController(final MockClassLoaderBuilder builder) {
         return AccessController.doPrivileged(new PrivilegedAction<MockClassLoader>() {
                 @Override
                 public MockClassLoader run() {
-                    final UseClassPathAdjuster useClassPathAdjuster = testClass.getAnnotation(UseClassPathAdjuster.class);
-                    return MockClassLoaderFactory.this.createMockClassLoader(byteCodeFramework, classesToLoadByMockClassloader, useClassPathAdjuster, extraMockTransformer);
+                    return MockClassLoaderFactory.this.createMockClassLoader(builder);
                 }
             });
     }
     
-    private MockClassLoader createMockClassLoader(final ByteCodeFramework byteCodeFramework,
-                                                  final String[] classesToLoadByMockClassloader,
-                                                  final UseClassPathAdjuster useClassPathAdjuster,
-                                                  final MockTransformer... extraMockTransformer) {
-        return MockClassLoaderBuilder.create(byteCodeFramework)
-                                     .forTestClass(testClass)
-                                     .addIgnorePackage(packagesToIgnore)
-                                     .addClassesToModify(classesToLoadByMockClassloader)
-                                     .addClassPathAdjuster(useClassPathAdjuster)
-                                     .addExtraMockTransformers(extraMockTransformer)
-                                     .build();
+    private MockClassLoader createMockClassLoader(final MockClassLoaderBuilder builder) {
+        if (isClassLoaderShouldBeReused()) {
+            return MockClassLoaderPool.getInstance().getOrBuild(builder);
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Mock policies modify the configuration of the class loader for the test class, so class loaders with
+     * mock policies are never reused.
+     */
+    private boolean isClassLoaderShouldBeReused() {
+        return Boolean.TRUE.equals(GlobalConfiguration.powerMockConfiguration().getReuseClassLoaders())
+                   && !testClass.isAnnotationPresent(MockPolicy.class);
     }
     
     private void initialize(final ClassLoader mockLoader) {
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shares a {@link MockClassLoader} between test classes which prepare the same classes for test, ignore the
+ * same packages and use the same bytecode framework, so classes are loaded and defined once instead of once per
+ * test class.
+ * <p>
+ * The test class and its super types are modified for each test class by its
+ * {@link org.powermock.core.transformers.TestClassTransformer}, so a class loader is shared only between test
+ * classes that do not have common super types loaded by the class loader.
+ * </p>
+ * <p>
+ * Static state of classes loaded by a shared class loader is not reset between test classes, so the pool is
+ * used only if it is enabled with {@link org.powermock.configuration.PowerMockConfiguration#getReuseClassLoaders()}.
+ * </p>
+ */
+class MockClassLoaderPool {
+
+    private static final MockClassLoaderPool INSTANCE = new MockClassLoaderPool();
+
+    private final Map<String, List<PooledClassLoader>> classLoaders;
+
+    MockClassLoaderPool() {
+        classLoaders = new HashMap<String, List<PooledClassLoader>>();
+    }
+
+    static MockClassLoaderPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return a class loader created for another test class with the same configuration, or a new class loader
+     * built by the {@code builder} if there is no such class loader.
+     */
+    synchronized MockClassLoader getOrBuild(MockClassLoaderBuilder builder) {
+        final String key = builder.getPoolKey();
+        if (key == null) {
+            return builder.build();
+        }
+
+        List<PooledClassLoader> pooled = classLoaders.get(key);
+        if (pooled == null) {
+            pooled = new ArrayList<PooledClassLoader>();
+            classLoaders.put(key, pooled);
+        }
+
+        final List<String> testClassHierarchy = builder.getTestClassHierarchy();
+        for (Iterator<PooledClassLoader> iterator = pooled.iterator(); iterator.hasNext(); ) {
+            final PooledClassLoader pooledClassLoader = iterator.next();
+            final MockClassLoader classLoader = pooledClassLoader.get();
+            if (classLoader == null) {
+                iterator.remove();
+            } else if (pooledClassLoader.reserve(testClassHierarchy)) {
+                builder.attachTo(classLoader);
+                return classLoader;
+            }
+        }
+
+        final MockClassLoader classLoader = builder.build();
+        final PooledClassLoader pooledClassLoader = new PooledClassLoader(classLoader);
+        pooledClassLoader.reserve(testClassHierarchy);
+        pooled.add(pooledClassLoader);
+        return classLoader;
+    }
+
+    synchronized void clear() {
+        classLoaders.clear();
+    }
+
+    private static class PooledClassLoader {
+        private final SoftReference<MockClassLoader> classLoader;
+        private final Set<String> testClassHierarchies;
+
+        private PooledClassLoader(MockClassLoader classLoader) {
+            this.classLoader = new SoftReference<MockClassLoader>(classLoader);
+            this.testClassHierarchies = new HashSet<String>();
+        }
+
+        private MockClassLoader get() {
+            return classLoader.get();
+        }
+
+        /**
+         * @return {@code false} if a type of the test class hierarchy, that is loaded by the class loader, is part
+         * of hierarchy of a test class which already uses the class loader.
+         */
+        private boolean reserve(List<String> testClassHierarchy) {
+            final MockClassLoader mockClassLoader = classLoader.get();
+            if (mockClassLoader == null) {
+                return false;
+            }
+            final List<String> loadedTypes = new ArrayList<String>();
+            for (String type : testClassHierarchy) {
+                if (!mockClassLoader.getConfiguration().shouldDefer(type)) {
+                    if (testClassHierarchies.contains(type)) {
+                        return false;
+                    }
+                    loadedTypes.add(type);
+                }
+            }
+            testClassHierarchies.addAll(loadedTypes);
+            return true;
+        }
+    }
+}
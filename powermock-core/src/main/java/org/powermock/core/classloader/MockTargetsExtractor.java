@@ -0,0 +1,128 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.classloader;
+
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.CodeAttribute;
+import javassist.bytecode.CodeIterator;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+import org.powermock.core.classloader.annotations.PowerMockTargets;
+import org.powermock.core.transformers.MockTargets;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects the {@link MockTargets} of a test class annotated with {@link PowerMockTargets}. Besides the declared
+ * classes and the classes prepared for test, the class files of the test class are scanned for class literals, which
+ * is how the classes passed to e.g. {@code whenNew} or {@code mockStatic} are usually referenced.
+ */
+final class MockTargetsExtractor {
+
+    private MockTargetsExtractor() {
+    }
+
+    /**
+     * @return the mock targets of the test class, or {@code null} if the test class is not annotated with
+     * {@link PowerMockTargets} and all call sites have to be instrumented.
+     */
+    static MockTargets extract(final Class<?> testClass, final String[] classesToModify) {
+        final PowerMockTargets powerMockTargets = testClass.getAnnotation(PowerMockTargets.class);
+        if (powerMockTargets == null) {
+            return null;
+        }
+
+        final Set<String> targets = new HashSet<String>();
+        for (Class<?> target : powerMockTargets.value()) {
+            targets.add(target.getName());
+        }
+        Collections.addAll(targets, powerMockTargets.fullyQualifiedNames());
+        if (classesToModify != null) {
+            Collections.addAll(targets, classesToModify);
+        }
+        addClassLiterals(testClass, targets, new HashSet<Class<?>>());
+        return new MockTargets(targets);
+    }
+
+    private static void addClassLiterals(final Class<?> type, final Set<String> targets, final Set<Class<?>> visited) {
+        if (type == null || type.getClassLoader() == null || !visited.add(type)) {
+            return;
+        }
+        try {
+            addClassLiterals(readClassFile(type), targets);
+        } catch (IOException e) {
+            // the class file is not available, only the declared targets are used
+        } catch (BadBytecode e) {
+            // the class file cannot be read by Javassist, only the declared targets are used
+        }
+        addClassLiterals(type.getSuperclass(), targets, visited);
+        for (Class<?> nestedClass : type.getDeclaredClasses()) {
+            addClassLiterals(nestedClass, targets, visited);
+        }
+    }
+
+    private static ClassFile readClassFile(final Class<?> type) throws IOException {
+        final InputStream in = type.getClassLoader().getResourceAsStream(type.getName().replace('.', '/') + ".class");
+        if (in == null) {
+            throw new IOException("Class file of " + type.getName() + " is not found.");
+        }
+        try {
+            return new ClassFile(new DataInputStream(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void addClassLiterals(final ClassFile classFile, final Set<String> targets) throws BadBytecode {
+        final ConstPool constPool = classFile.getConstPool();
+        for (MethodInfo method : classFile.getMethods()) {
+            final CodeAttribute codeAttribute = method.getCodeAttribute();
+            if (codeAttribute == null) {
+                continue;
+            }
+            final CodeIterator iterator = codeAttribute.iterator();
+            while (iterator.hasNext()) {
+                final int index = iterator.next();
+                final int opcode = iterator.byteAt(index);
+                final int constant;
+                if (opcode == Opcode.LDC) {
+                    constant = iterator.byteAt(index + 1);
+                } else if (opcode == Opcode.LDC_W) {
+                    constant = iterator.u16bitAt(index + 1);
+                } else {
+                    continue;
+                }
+                if (constPool.getTag(constant) == ConstPool.CONST_Class) {
+                    final String className = constPool.getClassInfo(constant);
+                    // arrays are never instantiated with a constructor call
+                    if (!className.startsWith("[") && !className.endsWith("[]")) {
+                        targets.add(className);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import net.bytebuddy.jar.asm.ClassReader;
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.FieldVisitor;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Type;
+import net.bytebuddy.utility.OpenedClassReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Digests a class file together with the class files which may be read while the class is transformed.
+ * <p>
+ * A transformer does not only read the class it transforms: the defer constructor is added to the super classes,
+ * a called method is resolved in the super classes of the class it is called on, and the type of an accessed field
+ * decides how the field is mocked. The classes referred to by the class, and their super classes and interfaces,
+ * may change between two JVM runs while the class itself does not, so the {@link TransformedClassStore} keys a
+ * stored class by the digest of all of them.
+ * </p>
+ */
+final class TransformationDependencies {
+
+    private static final byte[] MISSING_CLASS = new byte[0];
+
+    private TransformationDependencies() {
+    }
+
+    /**
+     * @param classLoader the class loader which reads the class files.
+     * @param className   the name of the class.
+     * @param clazz       the original class file of the class.
+     * @return the digest of the class file and the class files of the classes it depends on.
+     * @throws IOException if a class file cannot be read.
+     */
+    static byte[] digest(final MockClassLoader classLoader, final String className, final byte[] clazz) throws IOException {
+        final Map<String, byte[]> digests = new TreeMap<String, byte[]>();
+        final LinkedList<String> pending = new LinkedList<String>(referencedClasses(clazz));
+        while (!pending.isEmpty()) {
+            final String name = pending.removeFirst();
+            if (name.equals(className) || digests.containsKey(name)) {
+                continue;
+            }
+            final byte[] dependency = classLoader.readClassFile(name);
+            if (dependency == null) {
+                digests.put(name, MISSING_CLASS);
+            } else {
+                digests.put(name, TransformedClassCache.digest(dependency));
+                pending.addAll(superTypes(dependency));
+            }
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(TransformedClassCache.digest(clazz));
+        for (Map.Entry<String, byte[]> entry : digests.entrySet()) {
+            out.write(entry.getKey().getBytes("UTF-8"));
+            out.write(0);
+            out.write(entry.getValue());
+        }
+        return TransformedClassCache.digest(out.toByteArray());
+    }
+
+    private static Collection<String> superTypes(final byte[] clazz) {
+        final ClassReader reader = OpenedClassReader.of(clazz);
+        final List<String> superTypes = new ArrayList<String>();
+        addInternalName(superTypes, reader.getSuperName());
+        for (String interfaceName : reader.getInterfaces()) {
+            addInternalName(superTypes, interfaceName);
+        }
+        return superTypes;
+    }
+
+    private static Set<String> referencedClasses(final byte[] clazz) {
+        final ReferencedClassesCollector collector = new ReferencedClassesCollector();
+        OpenedClassReader.of(clazz).accept(collector, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return collector.classes;
+    }
+
+    /**
+     * System classes are never transformed, and do not change as long as the stored classes are valid.
+     */
+    private static void addInternalName(final Collection<String> classes, final String internalName) {
+        if (internalName == null) {
+            return;
+        }
+        if (internalName.startsWith("[")) {
+            addType(classes, Type.getType(internalName));
+        } else if (!internalName.startsWith("java/")) {
+            classes.add(internalName.replace('/', '.'));
+        }
+    }
+
+    private static void addType(final Collection<String> classes, final Type type) {
+        if (type.getSort() == Type.ARRAY) {
+            addType(classes, type.getElementType());
+        } else if (type.getSort() == Type.OBJECT) {
+            addInternalName(classes, type.getInternalName());
+        }
+    }
+
+    private static void addMethodDescriptor(final Collection<String> classes, final String descriptor) {
+        for (Type argumentType : Type.getArgumentTypes(descriptor)) {
+            addType(classes, argumentType);
+        }
+        addType(classes, Type.getReturnType(descriptor));
+    }
+
+    private static class ReferencedClassesCollector extends ClassVisitor {
+        private final Set<String> classes = new TreeSet<String>();
+
+        private ReferencedClassesCollector() {
+            super(OpenedClassReader.ASM_API);
+        }
+
+        @Override
+        public void visit(final int version, final int access, final String name, final String signature,
+                          final String superName, final String[] interfaces) {
+            addInternalName(classes, superName);
+            if (interfaces != null) {
+                for (String interfaceName : interfaces) {
+                    addInternalName(classes, interfaceName);
+                }
+            }
+        }
+
+        @Override
+        public FieldVisitor visitField(final int access, final String name, final String descriptor,
+                                       final String signature, final Object value) {
+            addType(classes, Type.getType(descriptor));
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(final int access, final String name, final String descriptor,
+                                         final String signature, final String[] exceptions) {
+            addMethodDescriptor(classes, descriptor);
+            return new MethodVisitor(OpenedClassReader.ASM_API) {
+                @Override
+                public void visitTypeInsn(final int opcode, final String type) {
+                    addInternalName(classes, type);
+                }
+
+                @Override
+                public void visitFieldInsn(final int opcode, final String owner, final String name, final String descriptor) {
+                    addInternalName(classes, owner);
+                    addType(classes, Type.getType(descriptor));
+                }
+
+                @Override
+                public void visitMethodInsn(final int opcode, final String owner, final String name,
+                                            final String descriptor, final boolean isInterface) {
+                    addInternalName(classes, owner);
+                    addMethodDescriptor(classes, descriptor);
+                }
+            };
+        }
+    }
+}
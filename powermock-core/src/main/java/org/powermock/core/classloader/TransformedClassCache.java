@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import org.powermock.configuration.GlobalConfiguration;
+import org.powermock.configuration.PowerMockConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * JVM wide cache of the bytecode produced by the transformer chain of a {@link MockClassLoader}.
+ * <p>
+ * Every test class (and often every test method) gets a new {@link MockClassLoader} that transforms the same
+ * classes with the same transformers again. The transformation does not depend on the class loader, so the
+ * bytecode produced by the first class loader is cached here and the next class loaders only have to define it.
+ * </p>
+ * <p>
+ * An entry is keyed by the class name and the {@link Fingerprint} of the transformer chain, and is valid only
+ * as long as the digest of the original bytecode matches. The transformed bytecode is softly referenced, so
+ * the cache never causes an {@link OutOfMemoryError}.
+ * </p>
+ * <p>
+ * If {@link PowerMockConfiguration#getTransformationCacheDirectory()} is configured, transformed classes are also
+ * stored in the directory and reused by the next JVM runs.
+ * </p>
+ */
+public class TransformedClassCache {
+
+    private static final TransformedClassCache INSTANCE = new TransformedClassCache(createStore());
+
+    private final ConcurrentMap<CacheKey, Entry> entries;
+    private final TransformedClassStore store;
+
+    TransformedClassCache() {
+        this(null);
+    }
+
+    TransformedClassCache(TransformedClassStore store) {
+        this.entries = new ConcurrentHashMap<CacheKey, Entry>();
+        this.store = store;
+    }
+
+    private static TransformedClassStore createStore() {
+        final PowerMockConfiguration configuration = GlobalConfiguration.powerMockConfiguration();
+        final String directory = configuration.getTransformationCacheDirectory();
+        if (directory == null || directory.trim().length() == 0) {
+            return null;
+        }
+        final Integer sizeInMegabytes = configuration.getTransformationCacheSize();
+        final long maxSize = (sizeInMegabytes == null ? 64L : sizeInMegabytes.longValue()) * 1024 * 1024;
+        return new TransformedClassStore(new File(directory.trim()), maxSize, powerMockVersion());
+    }
+
+    /**
+     * Snapshot builds have no version in the manifest, so the time when PowerMock classes have been
+     * built is used instead to not reuse classes transformed by a previous build.
+     */
+    private static String powerMockVersion() {
+        final String version = TransformedClassCache.class.getPackage() == null ? null : TransformedClassCache.class.getPackage().getImplementationVersion();
+        if (version != null && !version.endsWith("SNAPSHOT")) {
+            return version;
+        }
+        final URL classFile = TransformedClassCache.class.getResource(TransformedClassCache.class.getSimpleName() + ".class");
+        try {
+            return version + "@" + (classFile == null ? 0 : classFile.openConnection().getLastModified());
+        } catch (IOException e) {
+            return version + "@" + System.nanoTime();
+        }
+    }
+
+    public static TransformedClassCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the digest of the bytecode, which is used to check that a cached entry has been produced from the
+     * same original class.
+     */
+    public static byte[] digest(byte[] bytecode) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(bytecode);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 digest is not supported by the JVM", e);
+        }
+    }
+
+    /**
+     * @return the transformed bytecode or {@code null} if the class has not been transformed with the same
+     * transformer chain yet, or has been transformed from a different original bytecode.
+     */
+    public byte[] get(String className, Fingerprint fingerprint, byte[] originalDigest) {
+        final CacheKey key = new CacheKey(className, fingerprint);
+        final Entry entry = entries.get(key);
+        if (entry != null) {
+            final byte[] transformed = entry.transformed.get();
+            if (transformed == null) {
+                entries.remove(key, entry);
+            } else if (Arrays.equals(entry.originalDigest, originalDigest)) {
+                return transformed;
+            }
+        }
+        if (store != null) {
+            final byte[] stored = store.get(className, fingerprint, originalDigest);
+            if (stored != null) {
+                entries.put(key, new Entry(originalDigest, stored));
+                return stored;
+            }
+        }
+        return null;
+    }
+
+    public void put(String className, Fingerprint fingerprint, byte[] originalDigest, byte[] transformed) {
+        entries.put(new CacheKey(className, fingerprint), new Entry(originalDigest, transformed));
+        if (store != null) {
+            store.put(className, fingerprint, originalDigest, transformed);
+        }
+    }
+
+    /**
+     * @return {@code true} if transformed classes are also stored for the next JVM runs.
+     */
+    boolean isPersistent() {
+        return store != null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Identifies the transformations applied by a {@link MockClassLoader}. Class loaders with equal fingerprints
+     * produce the same bytecode for the same class, except for the classes excluded from the fingerprint which
+     * are transformed depending on the test they are loaded for.
+     */
+    public static class Fingerprint {
+        private final String value;
+        private final Set<String> excludedClasses;
+
+        Fingerprint(String value, Collection<String> excludedClasses) {
+            this.value = value;
+            this.excludedClasses = new HashSet<String>(excludedClasses);
+        }
+
+        /**
+         * @return the fingerprint of the same transformer chain that also excludes the {@code classes}.
+         */
+        Fingerprint excluding(Collection<String> classes) {
+            final Set<String> excluded = new HashSet<String>(excludedClasses);
+            excluded.addAll(classes);
+            return new Fingerprint(value, excluded);
+        }
+
+        /**
+         * @return {@code true} if the transformed bytecode of the class can be shared. Excluded classes and the
+         * classes nested in them are never shared.
+         */
+        public boolean isCacheable(String className) {
+            if (excludedClasses.contains(className)) {
+                return false;
+            }
+            int nested = className.indexOf('$');
+            while (nested > 0) {
+                if (excludedClasses.contains(className.substring(0, nested))) {
+                    return false;
+                }
+                nested = className.indexOf('$', nested + 1);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Fingerprint that = (Fingerprint) o;
+            return value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    private static class CacheKey {
+        private final String className;
+        private final Fingerprint fingerprint;
+
+        private CacheKey(String className, Fingerprint fingerprint) {
+            this.className = className;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final CacheKey cacheKey = (CacheKey) o;
+            return className.equals(cacheKey.className) && fingerprint.equals(cacheKey.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * className.hashCode() + fingerprint.hashCode();
+        }
+    }
+
+    private static class Entry {
+        private final byte[] originalDigest;
+        private final SoftReference<byte[]> transformed;
+
+        private Entry(byte[] originalDigest, byte[] transformed) {
+            this.originalDigest = originalDigest;
+            this.transformed = new SoftReference<byte[]>(transformed);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores transformed classes in a directory, so the next JVM runs (and other JVMs running tests in parallel)
+ * do not have to transform unchanged classes again.
+ * <p>
+ * A class is stored in a file named after the digest of the class name, the {@link TransformedClassCache.Fingerprint}
+ * of the transformer chain, the digest of the original bytecode and the PowerMock version. The digest of the
+ * original bytecode also covers the classes which are read to transform the class, see
+ * {@link TransformationDependencies}. A file is written to a
+ * temporary file first and then renamed, so a reader never sees a partially written class. When the size of the
+ * directory exceeds the limit, the least recently used files are deleted.
+ * </p>
+ */
+class TransformedClassStore {
+
+    private static final String CLASS_FILE_EXTENSION = ".class";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File directory;
+    private final long maxSize;
+    private final String version;
+    private final AtomicLong size;
+
+    TransformedClassStore(File directory, long maxSize, String version) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.version = version;
+        this.size = new AtomicLong(-1);
+    }
+
+    /**
+     * @return the transformed bytecode or {@code null} if it has not been stored or cannot be read.
+     */
+    byte[] get(String className, TransformedClassCache.Fingerprint fingerprint, byte[] originalDigest) {
+        final File file = fileFor(className, fingerprint, originalDigest);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            final byte[] transformed = readFile(file);
+            // the modification time is used to evict the least recently used classes
+            file.setLastModified(System.currentTimeMillis());
+            return transformed;
+        } catch (IOException e) {
+            // the file has been evicted by another JVM
+            return null;
+        }
+    }
+
+    void put(String className, TransformedClassCache.Fingerprint fingerprint, byte[] originalDigest, byte[] transformed) {
+        final File file = fileFor(className, fingerprint, originalDigest);
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+                return;
+            }
+            if (size.get() < 0) {
+                size.compareAndSet(-1, directorySize());
+            }
+            final File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+            try {
+                writeFile(temporary, transformed);
+                if (!temporary.renameTo(file)) {
+                    // the class has been stored by another JVM in meantime
+                    return;
+                }
+            } finally {
+                if (temporary.exists()) {
+                    temporary.delete();
+                }
+            }
+        } catch (IOException e) {
+            // the store is only an optimization, the class is transformed again by the next run
+            return;
+        }
+        if (size.addAndGet(transformed.length) > maxSize) {
+            evict();
+        }
+    }
+
+    private long directorySize() {
+        long total = 0;
+        for (File file : listFiles()) {
+            total += file.length();
+        }
+        return total;
+    }
+
+    /**
+     * Deletes the least recently used files until the directory takes less than three quarters of the maximum size,
+     * so files are not evicted on each put.
+     */
+    private synchronized void evict() {
+        final File[] files = listFiles();
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                final long firstModified = first.lastModified();
+                final long secondModified = second.lastModified();
+                return firstModified < secondModified ? -1 : (firstModified == secondModified ? 0 : 1);
+            }
+        });
+
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+
+        final long targetSize = maxSize / 4 * 3;
+        for (int i = 0; i < files.length && total > targetSize; i++) {
+            final long length = files[i].length();
+            if (files[i].delete()) {
+                total -= length;
+            }
+        }
+        size.set(total);
+    }
+
+    private File[] listFiles() {
+        final File[] files = directory.listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    private File fileFor(String className, TransformedClassCache.Fingerprint fingerprint, byte[] originalDigest) {
+        final StringBuilder key = new StringBuilder(className)
+                                      .append('\n').append(fingerprint)
+                                      .append('\n').append(version)
+                                      .append('\n').append(toHex(originalDigest));
+        try {
+            return new File(directory, toHex(TransformedClassCache.digest(key.toString().getBytes("UTF-8"))) + CLASS_FILE_EXTENSION);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        final DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            final byte[] bytes = new byte[(int) file.length()];
+            in.readFully(bytes);
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeFile(File file, byte[] bytes) throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
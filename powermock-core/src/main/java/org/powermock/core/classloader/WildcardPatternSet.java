@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import org.powermock.core.WildcardMatcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A set of wildcard patterns compiled for matching class names. Patterns without a wildcard are looked up in a hash
+ * set and patterns that only end with wildcards, like {@code org.example.*}, are stored in a prefix trie, so a class
+ * name is matched against all of them in a single pass over the name. Only the remaining patterns are matched one
+ * by one with their compiled {@link WildcardMatcher}. The result is remembered for each class name.
+ */
+final class WildcardPatternSet {
+
+    private static final char WILDCARD = '*';
+
+    private final Set<String> exactNames;
+    private final Node prefixes;
+    private final WildcardMatcher[] otherPatterns;
+    private final ConcurrentMap<String, Boolean> matches;
+
+    static WildcardPatternSet compile(Iterable<String> patterns) {
+        return new WildcardPatternSet(patterns);
+    }
+
+    private WildcardPatternSet(Iterable<String> patterns) {
+        exactNames = new HashSet<String>();
+        prefixes = new Node();
+        matches = new ConcurrentHashMap<String, Boolean>();
+        final List<String> others = new ArrayList<String>();
+        for (String pattern : patterns) {
+            final int firstWildcard = pattern.indexOf(WILDCARD);
+            if (firstWildcard < 0) {
+                exactNames.add(pattern);
+            } else if (isTrailingWildcards(pattern, firstWildcard)) {
+                prefixes.add(pattern, firstWildcard);
+            } else {
+                others.add(pattern);
+            }
+        }
+        otherPatterns = WildcardMatcher.compile(others);
+    }
+
+    private static boolean isTrailingWildcards(String pattern, int from) {
+        for (int i = from; i < pattern.length(); i++) {
+            if (pattern.charAt(i) != WILDCARD) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the {@code className} matches any pattern of the set.
+     */
+    boolean matches(String className) {
+        Boolean matched = matches.get(className);
+        if (matched == null) {
+            matched = matchesAny(className);
+            matches.put(className, matched);
+        }
+        return matched;
+    }
+
+    private boolean matchesAny(String className) {
+        if (exactNames.contains(className) || prefixes.matchesPrefixOf(className)) {
+            return true;
+        }
+        return WildcardMatcher.matchesAny(otherPatterns, className);
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<Character, Node>();
+        private boolean endOfPrefix;
+
+        private void add(String pattern, int prefixLength) {
+            Node node = this;
+            for (int i = 0; i < prefixLength; i++) {
+                final Character c = pattern.charAt(i);
+                Node child = node.children.get(c);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            node.endOfPrefix = true;
+        }
+
+        private boolean matchesPrefixOf(String className) {
+            Node node = this;
+            for (int i = 0; !node.endOfPrefix; i++) {
+                if (i == className.length()) {
+                    return false;
+                }
+                node = node.children.get(className.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
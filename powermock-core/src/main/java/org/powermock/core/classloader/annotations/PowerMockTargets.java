@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * This annotation tells PowerMock to instrument only the call sites of the classes which the test intercepts. By
+ * default every creation of a new instance, every call of a super constructor, every call of a method of a system
+ * class and every field read in a class prepared for test is redirected to PowerMock. If the test class is annotated
+ * with this annotation, only the call sites of the mock targets are redirected, all other call sites are left unchanged.
+ * </p>
+ * <p>
+ * The mock targets are:
+ * </p>
+ * <ul>
+ * <li>the classes supplied to {@link #value()} and {@link #fullyQualifiedNames()},</li>
+ * <li>the classes prepared for test with {@link PrepareForTest}, {@link PrepareOnlyThisForTest} or
+ * {@link PrepareEverythingForTest},</li>
+ * <li>every class which is used as class literal by the test class, its super classes and the classes nested in it,
+ * e.g. {@code MyCollaborator.class} in {@code whenNew(MyCollaborator.class)} or {@code System.class} in
+ * {@code mockStatic(System.class)}.</li>
+ * </ul>
+ * <p>
+ * For example, if a test mocks only new instances of "MyCollaborator" created in "MyClass" and the name of
+ * "MyCollaborator" is passed as string:
+ * </p>
+ * <pre>
+ * &#064;PowerMockTargets(fullyQualifiedNames = &quot;org.myproject.MyCollaborator&quot;)
+ * &#064;PrepareForTest(MyClass.class)
+ * &#064;RunWith(PowerMockRunner.class)
+ * public class MyTest {
+ * ...
+ * }
+ * </pre>
+ * <p>
+ * The annotation has an effect only if PowerMock modifies classes with a class loader.
+ * </p>
+ *
+ * @see org.powermock.core.transformers.MockTargets
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface PowerMockTargets {
+    
+    Class<?>[] value() default {};
+    
+    String[] fullyQualifiedNames() default {};
+}
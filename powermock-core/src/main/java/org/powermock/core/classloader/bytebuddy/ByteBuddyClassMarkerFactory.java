@@ -0,0 +1,82 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.classloader.bytebuddy;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.Type;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.classloader.ClassMarker;
+import org.powermock.core.classloader.PowerMockModified;
+import org.powermock.core.transformers.ClassWrapper;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.ClassVisitorWrapper;
+
+import java.util.Arrays;
+
+class ByteBuddyClassMarkerFactory {
+
+    static ClassMarker createClassMarker() {
+        return new InterfaceClassMarker();
+    }
+
+    /**
+     * The implementation of the {@link ClassMarker} which use an interface to mark type.
+     *
+     * @see PowerMockModified
+     */
+    private static class InterfaceClassMarker implements ClassMarker, ClassVisitorWrapper {
+
+        private static final String POWER_MOCK_MODIFIED = Type.getInternalName(PowerMockModified.class);
+
+        /**
+         * Mark type as loaded by PowerMock
+         *
+         * @param type to mark.
+         */
+        @Override
+        public <T> void mark(ClassWrapper<T> type) {
+            T unwrapped = type.unwrap();
+            if (unwrapped instanceof ByteBuddyClass) {
+                ((ByteBuddyClass) unwrapped).visit(this);
+            }
+        }
+
+        @Override
+        public ClassVisitor wrap(ByteBuddyClass clazz, ClassVisitor classVisitor) {
+            return new ClassVisitor(OpenedClassReader.ASM_API, classVisitor) {
+                @Override
+                public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                    super.visit(version, access, name, signature, superName, addInterface(interfaces));
+                }
+            };
+        }
+
+        private static String[] addInterface(String[] interfaces) {
+            if (interfaces == null) {
+                return new String[]{POWER_MOCK_MODIFIED};
+            }
+            if (Arrays.asList(interfaces).contains(POWER_MOCK_MODIFIED)) {
+                return interfaces;
+            }
+            final String[] withMarker = Arrays.copyOf(interfaces, interfaces.length + 1);
+            withMarker[interfaces.length] = POWER_MOCK_MODIFIED;
+            return withMarker;
+        }
+    }
+}
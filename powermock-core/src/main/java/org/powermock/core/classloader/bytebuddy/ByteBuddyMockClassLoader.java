@@ -0,0 +1,110 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.classloader.bytebuddy;
+
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.classloader.MockClassLoader;
+import org.powermock.core.classloader.MockClassLoaderConfiguration;
+import org.powermock.core.transformers.ClassWrapper;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClassWrapperFactory;
+import org.powermock.core.transformers.bytebuddy.support.DeferConstructor;
+import org.powermock.core.transformers.bytebuddy.support.TypeHierarchy;
+
+import java.io.IOException;
+import java.security.ProtectionDomain;
+
+/**
+ * Mock class loader which transforms classes with the ASM bundled with ByteBuddy.
+ * <p>
+ * A suppressed constructor call delegates to the defer constructor of the super class. Javassist adds it to the
+ * super classes while a class is transformed, this class loader adds the defer constructor when a super class of a
+ * class defined before is defined without being modified. A super class which
+ * has been loaded before a subclass is modified does not get a defer constructor.
+ * </p>
+ */
+public class ByteBuddyMockClassLoader extends MockClassLoader {
+
+    static {
+        try {
+            ClassLoader.class.getDeclaredMethod("registerAsParallelCapable").invoke(null);
+        } catch (Exception e) {
+            // Java 6, class loaders cannot be parallel capable.
+        }
+    }
+
+    private final TypeHierarchy typeHierarchy;
+
+    public ByteBuddyMockClassLoader(String[] classesToMock) {
+        this(classesToMock, new String[0]);
+    }
+
+    public ByteBuddyMockClassLoader(String[] classesToMock, String[] packagesToDefer) {
+        this(new MockClassLoaderConfiguration(classesToMock, packagesToDefer));
+    }
+
+    public ByteBuddyMockClassLoader(MockClassLoaderConfiguration configuration) {
+        super(configuration, new ByteBuddyClassWrapperFactory());
+        typeHierarchy = new TypeHierarchy(this);
+        classMarker = ByteBuddyClassMarkerFactory.createClassMarker();
+    }
+
+    @Override
+    protected Class<?> loadUnmockedClass(String name, ProtectionDomain protectionDomain) throws ClassNotFoundException {
+        if (!isDeferConstructorNeeded(name)) {
+            return super.loadUnmockedClass(name, protectionDomain);
+        }
+        final ByteBuddyClass type = new ByteBuddyClass(readOriginalClassFile(name), typeHierarchy);
+        type.visit(new DeferConstructor());
+        return defineClass(name, protectionDomain, type.toBytecode());
+    }
+
+    @Override
+    protected String getSuperClassName(byte[] clazz) {
+        final String superName = OpenedClassReader.of(clazz).getSuperName();
+        return superName == null ? null : superName.replace('/', '.');
+    }
+
+    @Override
+    protected byte[] defineAndTransformClass(String name, ProtectionDomain protectionDomain) throws ClassNotFoundException {
+        final ByteBuddyClass type = new ByteBuddyClass(readOriginalClassFile(name), typeHierarchy);
+        try {
+            ClassWrapper<ByteBuddyClass> wrappedType = classWrapperFactory.wrap(type);
+
+            wrappedType = transformClass(wrappedType);
+
+            return wrappedType.unwrap().toBytecode();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to transform class with name " + name + ". Reason: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] readOriginalClassFile(String name) throws ClassNotFoundException {
+        final byte[] classFile;
+        try {
+            classFile = readClassFile(name);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+        if (classFile == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return classFile;
+    }
+}
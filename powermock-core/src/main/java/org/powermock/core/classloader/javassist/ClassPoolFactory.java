@@ -19,19 +19,45 @@
 package org.powermock.core.classloader.javassist;
 
 import javassist.ClassClassPath;
+import javassist.ClassPath;
 import javassist.ClassPool;
+import javassist.NotFoundException;
 import org.powermock.core.classloader.annotations.UseClassPathAdjuster;
 
+import java.io.InputStream;
+import java.net.URL;
+
 class ClassPoolFactory {
+    
+    /*
+     * Classes in these packages are always deferred to the system class loader and never modified, so they are parsed
+     * once into a pool shared by the class pools of all class loaders.
+     */
+    private static final String[] SHARED_PACKAGES = {"java.", "javax.accessibility.", "jdk.", "sun."};
+    
+    private static final MeasurableClassPool SHARED_CLASS_POOL = createSharedClassPool();
+    
     private UseClassPathAdjuster useClassPathAdjuster;
     
     ClassPoolFactory(UseClassPathAdjuster useClassPathAdjuster) {
         this.useClassPathAdjuster = useClassPathAdjuster;
     }
     
-    ClassPool create() {
-        ClassPool classPool = new ClassPool();
-        classPool.appendClassPath(new ClassClassPath(this.getClass()));
+    /**
+     * @return the number of classes kept by the pool which is shared between all class loaders.
+     */
+    static int getSharedClassPoolSize() {
+        return SHARED_CLASS_POOL.getSize();
+    }
+    
+    MeasurableClassPool create() {
+        MeasurableClassPool classPool = new MeasurableClassPool(SHARED_CLASS_POOL);
+        /*
+         * Classes are first looked up in the own class path, so the classes which can be modified are never cached
+         * by the shared pool.
+         */
+        classPool.childFirstLookup = true;
+        classPool.appendClassPath(new NotSharedClassPath(new ClassClassPath(this.getClass())));
         
         if (useClassPathAdjuster != null) {
             try {
@@ -45,4 +71,45 @@ class ClassPoolFactory {
         
         return classPool;
     }
+    
+    private static MeasurableClassPool createSharedClassPool() {
+        MeasurableClassPool classPool = new MeasurableClassPool();
+        classPool.appendClassPath(new ClassClassPath(ClassPoolFactory.class));
+        return classPool;
+    }
+    
+    private static boolean isShared(String className) {
+        for (String sharedPackage : SHARED_PACKAGES) {
+            if (className.startsWith(sharedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Class path which does not find classes from shared packages, so the class pool looks them up in the shared pool.
+     */
+    private static class NotSharedClassPath implements ClassPath {
+        private final ClassPath classPath;
+        
+        private NotSharedClassPath(ClassPath classPath) {
+            this.classPath = classPath;
+        }
+        
+        @Override
+        public InputStream openClassfile(String className) throws NotFoundException {
+            return isShared(className) ? null : classPath.openClassfile(className);
+        }
+        
+        @Override
+        public URL find(String className) {
+            return isShared(className) ? null : classPath.find(className);
+        }
+        
+        @Override
+        public String toString() {
+            return classPath.toString();
+        }
+    }
 }
@@ -21,20 +21,49 @@ package org.powermock.core.classloader.javassist;
 import javassist.ClassPool;
 import javassist.CtClass;
 import javassist.NotFoundException;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.MethodInfo;
+import org.powermock.core.IndicateReloadClass;
+import org.powermock.core.classloader.ClassMarker;
 import org.powermock.core.classloader.MockClassLoader;
 import org.powermock.core.classloader.MockClassLoaderConfiguration;
 import org.powermock.core.classloader.annotations.UseClassPathAdjuster;
 import org.powermock.core.transformers.ClassWrapper;
+import org.powermock.core.transformers.javassist.support.DeferConstructor;
 import org.powermock.core.transformers.javassist.support.JavaAssistClassWrapperFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URL;
 import java.security.ProtectionDomain;
 
+/**
+ * Mock class loader which transforms classes with Javassist.
+ * <p>
+ * A suppressed constructor call delegates to the defer constructor of the super class, which is added to the super
+ * classes in the class pool while a class is transformed. The defer constructor is also added to a class which is
+ * defined without it, e.g. from the {@link org.powermock.core.classloader.TransformedClassCache}, when a class defined
+ * before extends it.
+ * </p>
+ */
 public class JavassistMockClassLoader extends MockClassLoader {
     
     public static final String CGLIB_ENHANCER = "net.sf.cglib.proxy.Enhancer$EnhancerKey$$KeyFactoryByCGLIB$$";
     public static final String CGLIB_METHOD_WRAPPER = "net.sf.cglib.core.MethodWrapper$MethodWrapperKey$$KeyFactoryByCGLIB";
     
-    private final ClassPool classPool;
+    private static final String DEFER_CONSTRUCTOR_DESCRIPTOR = "(L" + IndicateReloadClass.class.getName().replace('.', '/') + ";)V";
+    
+    static {
+        try {
+            ClassLoader.class.getDeclaredMethod("registerAsParallelCapable").invoke(null);
+        } catch (Exception e) {
+            // Java 6, class loaders cannot be parallel capable.
+        }
+    }
+    
+    private final ClassPoolFactory classPoolFactory;
+    private final MeasurableClassPool classPool;
     
     public JavassistMockClassLoader(String[] classesToMock) {
         this(classesToMock, new String[0], null);
@@ -52,14 +81,41 @@ public class JavassistMockClassLoader extends MockClassLoader {
     public JavassistMockClassLoader(MockClassLoaderConfiguration configuration,
                                     UseClassPathAdjuster useClassPathAdjuster) {
         super(configuration, new JavaAssistClassWrapperFactory());
-        classPool = new ClassPoolFactory(useClassPathAdjuster).create();
+        classPoolFactory = new ClassPoolFactory(useClassPathAdjuster);
+        classPool = classPoolFactory.create();
         classMarker = JavaAssistClassMarkerFactory.createClassMarker(classPool);
     }
     
+    /**
+     * @return the number of classes parsed by Javassist which are kept in memory by this class loader.
+     */
+    public int getClassPoolSize() {
+        return classPool.getSize();
+    }
+    
+    /**
+     * @return the number of system classes parsed by Javassist which are shared by all class loaders.
+     */
+    public static int getSharedClassPoolSize() {
+        return ClassPoolFactory.getSharedClassPoolSize();
+    }
+    
     
     @Override
     protected Class<?> loadUnmockedClass(String name, ProtectionDomain protectionDomain)
         throws ClassFormatError, ClassNotFoundException {
+        /*
+         * Unless the class has been parsed, e.g. because it was needed to transform another class, it is defined from
+         * the original class file, so Javassist does not have to parse and write it.
+         */
+        final boolean addDeferConstructor = isDeferConstructorNeeded(name);
+        if (!addDeferConstructor && !classPool.isCached(name)) {
+            final Class<?> clazz = defineUnparsedClass(name, protectionDomain);
+            if (clazz != null) {
+                return clazz;
+            }
+        }
+        
         byte bytes[] = null;
         try {
             /*
@@ -80,17 +136,106 @@ public class JavassistMockClassLoader extends MockClassLoader {
                 if (ctClass.isFrozen()) {
                     ctClass.defrost();
                 }
+                if (addDeferConstructor) {
+                    DeferConstructor.add(ctClass);
+                }
                 bytes = ctClass.toBytecode();
+                /*
+                 * The class is not modified apart from the defer constructor, which is added again when the class
+                 * is read from the class path to transform another class.
+                 */
+                ctClass.detach();
             }
         } catch (NotFoundException e) {
             return ClassLoader.getSystemClassLoader().loadClass(name);
         } catch (Exception e) {
             throw new RuntimeException("Failed to loaded class " + name, e);
         }
-        return bytes == null ? null : defineClass(name, bytes, 0, bytes.length, protectionDomain);
+        return bytes == null ? null : defineClass(name, protectionDomain, bytes);
+    }
+    
+    @Override
+    public Class<?> defineClass(String name, ProtectionDomain protectionDomain, byte[] clazz) {
+        byte[] bytes = clazz;
+        if (isDeferConstructorNeeded(name) && !hasDeferConstructor(clazz)) {
+            bytes = addDeferConstructor(name, clazz);
+        }
+        return super.defineClass(name, protectionDomain, bytes);
+    }
+    
+    @Override
+    protected String getSuperClassName(byte[] clazz) {
+        return readClassFile(clazz).getSuperclass();
+    }
+    
+    private static boolean hasDeferConstructor(byte[] clazz) {
+        final ClassFile classFile = readClassFile(clazz);
+        for (MethodInfo method : classFile.getMethods()) {
+            if (MethodInfo.nameInit.equals(method.getName()) && DEFER_CONSTRUCTOR_DESCRIPTOR.equals(method.getDescriptor())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Adds the defer constructor to a class which has been transformed without it, because it has been transformed
+     * before a subclass.
+     */
+    private byte[] addDeferConstructor(String name, byte[] clazz) {
+        try {
+            final CtClass ctClass = classPool.makeClass(readClassFile(clazz), false);
+            DeferConstructor.add(ctClass);
+            final byte[] bytes = ctClass.toBytecode();
+            ctClass.detach();
+            return bytes;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to add defer constructor to class with name " + name + ". Reason: " + e.getMessage(), e);
+        }
+    }
+    
+    private static ClassFile readClassFile(byte[] clazz) {
+        try {
+            return new ClassFile(new DataInputStream(new ByteArrayInputStream(clazz)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read class file. Reason: " + e.getMessage(), e);
+        }
+    }
+    
+    private Class<?> defineUnparsedClass(String name, ProtectionDomain protectionDomain) throws ClassNotFoundException {
+        final URL url = classPool.find(name);
+        if (url == null) {
+            return null;
+        }
+        try {
+            return defineClass(name, url, protectionDomain);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
     }
     
     protected byte[] defineAndTransformClass(String name, ProtectionDomain protectionDomain) {
+        return transformClass(classPool, classMarker, name);
+    }
+    
+    /**
+     * Classes are transformed concurrently with a class pool for each thread, because neither a class pool nor the
+     * classes parsed by it may be modified by two threads. Only the pool of system classes is shared, which are
+     * never modified.
+     */
+    @Override
+    protected ConcurrentClassTransformer createConcurrentClassTransformer() {
+        final MeasurableClassPool threadClassPool = classPoolFactory.create();
+        final ClassMarker threadClassMarker = JavaAssistClassMarkerFactory.createClassMarker(threadClassPool);
+        return new ConcurrentClassTransformer() {
+            @Override
+            public byte[] transform(final String name) {
+                return transformClass(threadClassPool, threadClassMarker, name);
+            }
+        };
+    }
+    
+    private byte[] transformClass(ClassPool classPool, ClassMarker classMarker, String name) {
         final byte[] clazz;
         
         ClassPool.doPruning = false;
@@ -99,7 +244,7 @@ public class JavassistMockClassLoader extends MockClassLoader {
             
             ClassWrapper<CtClass> wrappedType = classWrapperFactory.wrap(type);
             
-            wrappedType = transformClass(wrappedType);
+            wrappedType = transformClass(wrappedType, classMarker);
             
             type = wrappedType.unwrap();
 
@@ -0,0 +1,49 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.classloader.javassist;
+
+import javassist.ClassPool;
+
+/**
+ * A {@link ClassPool} which reports how many {@link javassist.CtClass} objects it keeps in memory.
+ */
+class MeasurableClassPool extends ClassPool {
+    
+    MeasurableClassPool() {
+        super();
+    }
+    
+    MeasurableClassPool(ClassPool parent) {
+        super(parent);
+    }
+    
+    /**
+     * @return the number of classes cached by the pool, not including classes cached by the parent pool.
+     */
+    int getSize() {
+        return classes.size();
+    }
+    
+    /**
+     * @return {@code true} if the class has been parsed by the pool and not detached yet.
+     */
+    boolean isCached(String className) {
+        return getCached(className) != null;
+    }
+}
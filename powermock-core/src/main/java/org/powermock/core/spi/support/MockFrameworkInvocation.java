@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.spi.support;
+
+/**
+ * Marks that the current thread is executing code of the mocking framework, for example while
+ * an intercepted call is handled by it. A mock framework API calls {@link #invocationStarted()}
+ * before it hands a call over to the framework and {@link #invocationFinished()} in a finally block
+ * afterwards. Invocations may be nested.
+ * <p>
+ * The {@link org.powermock.core.MockGateway} checks the marker before falling back to inspecting the
+ * stack of the current thread.
+ * </p>
+ */
+public class MockFrameworkInvocation {
+
+    private static final ThreadLocal<int[]> depth = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private MockFrameworkInvocation() {
+    }
+
+    public static void invocationStarted() {
+        depth.get()[0]++;
+    }
+
+    public static void invocationFinished() {
+        depth.get()[0]--;
+    }
+
+    public static boolean isInProgress() {
+        return depth.get()[0] > 0;
+    }
+}
@@ -0,0 +1,15 @@
+package org.powermock.core.transformers;
+
+import org.powermock.core.CallSiteRegistry;
+
+/**
+ * If a transformer implements this interface and call site ids are enabled with the {@code powermock.use-call-site-ids}
+ * configuration property, then {@link org.powermock.core.classloader.MockClassLoaderBuilder} sets the {@link CallSiteRegistry}
+ * of the {@link org.powermock.core.classloader.MockClassLoader} during building it. The transformer may then register each
+ * instrumented method in the registry and pass only the call site id to the {@link org.powermock.core.MockGateway}.
+ * <b>IMPORTANT</b>
+ * This may take affect only with running PowerMock with class loader mode, a <code>callSiteRegistry</code> will not be set in case if PowerMock used as JavaAgent.
+ */
+public interface CallSiteAwareTransformer {
+    void setCallSiteRegistry(CallSiteRegistry callSiteRegistry);
+}
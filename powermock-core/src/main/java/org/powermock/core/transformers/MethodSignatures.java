@@ -3,7 +3,7 @@ package org.powermock.core.transformers;
 import javassist.CtClass;
 import javassist.CtMethod;
 import javassist.NotFoundException;
-import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.jar.asm.Type;
 import org.powermock.PowerMockInternalException;
 
 import java.lang.reflect.Method;
@@ -12,7 +12,7 @@ public enum MethodSignatures {
     
     ByteBuddy {
         @Override
-        public MethodSignatureWriter<MethodDescription> methodSignatureWriter() {
+        public MethodSignatureWriter<String> methodSignatureWriter() {
             return new ByteBuddyMethodSignatureWriterWriter();
         }
     },
@@ -26,16 +26,19 @@ public enum MethodSignatures {
     
     public abstract <T> MethodSignatureWriter<T> methodSignatureWriter();
     
-    private static class ByteBuddyMethodSignatureWriterWriter implements MethodSignatureWriter<MethodDescription> {
+    /**
+     * Methods are identified by {@code <class name>.<method name><method descriptor>}.
+     */
+    private static class ByteBuddyMethodSignatureWriterWriter implements MethodSignatureWriter<String> {
         
         @Override
-        public String signatureFor(final MethodDescription method) {
-            return method.toGenericString();
+        public String signatureFor(final String method) {
+            return method;
         }
         
         @Override
         public String signatureForReflection(final Method method) {
-            return method.toString();
+            return method.getDeclaringClass().getName() + '.' + method.getName() + Type.getMethodDescriptor(method);
         }
     }
     
@@ -0,0 +1,92 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers;
+
+import org.powermock.core.WildcardMatcher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Names of the classes whose call sites a test may intercept, e.g. the classes whose new instances are mocked or
+ * the system classes whose methods are mocked. The names may contain the wildcard {@code *}.
+ *
+ * @see MockTargetsAwareTransformer
+ * @see org.powermock.core.classloader.annotations.PowerMockTargets
+ */
+public final class MockTargets {
+    
+    private static final char WILDCARD = '*';
+    
+    private final Set<String> patterns;
+    private final Set<String> exactNames;
+    private final WildcardMatcher[] wildcardMatchers;
+    
+    public MockTargets(final Collection<String> patterns) {
+        this.patterns = Collections.unmodifiableSet(new TreeSet<String>(patterns));
+        this.exactNames = new HashSet<String>();
+        final List<String> wildcardPatterns = new ArrayList<String>();
+        for (String pattern : this.patterns) {
+            if (pattern.indexOf(WILDCARD) < 0) {
+                exactNames.add(pattern);
+            } else {
+                wildcardPatterns.add(pattern);
+            }
+        }
+        this.wildcardMatchers = WildcardMatcher.compile(wildcardPatterns);
+    }
+    
+    /**
+     * @param className the binary name of a class, e.g. {@code java.util.Map$Entry}.
+     * @return {@code true} if call sites of the class should be instrumented.
+     */
+    public boolean contains(final String className) {
+        return exactNames.contains(className) || WildcardMatcher.matchesAny(wildcardMatchers, className);
+    }
+    
+    public Set<String> getPatterns() {
+        return patterns;
+    }
+    
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return patterns.equals(((MockTargets) o).patterns);
+    }
+    
+    @Override
+    public int hashCode() {
+        return patterns.hashCode();
+    }
+    
+    @Override
+    public String toString() {
+        return patterns.toString();
+    }
+}
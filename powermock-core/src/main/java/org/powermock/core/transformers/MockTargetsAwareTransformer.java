@@ -0,0 +1,14 @@
+package org.powermock.core.transformers;
+
+/**
+ * If a transformer implements this interface and the test class is annotated with
+ * {@link org.powermock.core.classloader.annotations.PowerMockTargets}, then
+ * {@link org.powermock.core.classloader.MockClassLoaderBuilder} sets the {@link MockTargets} of the test during building
+ * a {@link org.powermock.core.classloader.MockClassLoader}. The transformer should then instrument only the call sites
+ * (new instances, constructor calls, method calls and field reads) of classes which are mock targets.
+ * <b>IMPORTANT</b>
+ * This may take affect only with running PowerMock with class loader mode, <code>mockTargets</code> will not be set in case if PowerMock used as JavaAgent.
+ */
+public interface MockTargetsAwareTransformer {
+    void setMockTargets(MockTargets mockTargets);
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.ClassVisitorWrapper;
+
+import static org.powermock.core.transformers.TransformStrategy.INST_REDEFINE;
+
+public class ClassFinalModifierMockTransformer extends AbstractByteBuddyMockTransformer {
+    
+    public ClassFinalModifierMockTransformer(final TransformStrategy strategy) {
+        super(strategy);
+    }
+    
+    @Override
+    public ByteBuddyClass transform(final ByteBuddyClass clazz) {
+        if (clazz.isInterface()) {
+            return clazz;
+        }
+        
+        if (getStrategy() != INST_REDEFINE) {
+            clazz.visit(new ClassVisitorWrapper() {
+                @Override
+                public ClassVisitor wrap(final ByteBuddyClass clazz, final ClassVisitor classVisitor) {
+                    return new RemoveFinalModifierVisitor(clazz.getInternalName(), classVisitor);
+                }
+            });
+        }
+        
+        return clazz;
+    }
+    
+    private static class RemoveFinalModifierVisitor extends ClassVisitor {
+        
+        private final String className;
+        
+        private RemoveFinalModifierVisitor(final String className, final ClassVisitor classVisitor) {
+            super(OpenedClassReader.ASM_API, classVisitor);
+            this.className = className;
+        }
+        
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            super.visit(version, access & ~Opcodes.ACC_FINAL, name, signature, superName, interfaces);
+        }
+        
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            super.visitInnerClass(name, outerName, innerName, className.equals(name) ? access & ~Opcodes.ACC_FINAL : access);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.transformers.TestClassAwareTransformer;
+import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.ClassVisitorWrapper;
+import org.powermock.core.transformers.bytebuddy.support.TransformerHelper;
+
+import static org.powermock.core.transformers.TransformStrategy.CLASSLOADER;
+
+/**
+ * Convert all constructors to public, except the constructors of the test class and the classes nested in it.
+ */
+public class ConstructorsMockTransformer extends AbstractByteBuddyMockTransformer implements TestClassAwareTransformer {
+    
+    private Class<?> testClass;
+    
+    public ConstructorsMockTransformer(final TransformStrategy strategy) {
+        super(strategy);
+    }
+    
+    @Override
+    public void setTestClass(final Class<?> testClass) {
+        this.testClass = testClass;
+    }
+    
+    @Override
+    public ByteBuddyClass transform(final ByteBuddyClass clazz) {
+        if (clazz.isInterface() || TransformerHelper.isTestClass(testClass, clazz.getName())) {
+            return clazz;
+        }
+        
+        if (getStrategy() == CLASSLOADER) {
+            clazz.visit(new ClassVisitorWrapper() {
+                @Override
+                public ClassVisitor wrap(final ByteBuddyClass clazz, final ClassVisitor classVisitor) {
+                    return new PublicConstructorsVisitor(classVisitor);
+                }
+            });
+        }
+        return clazz;
+    }
+    
+    private static class PublicConstructorsVisitor extends ClassVisitor {
+        
+        private PublicConstructorsVisitor(final ClassVisitor classVisitor) {
+            super(OpenedClassReader.ASM_API, classVisitor);
+        }
+        
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if ("<init>".equals(name)) {
+                access = access & ~(Opcodes.ACC_PRIVATE | Opcodes.ACC_PROTECTED) | Opcodes.ACC_PUBLIC;
+            }
+            return super.visitMethod(access, name, descriptor, signature, exceptions);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy;
+
+import org.powermock.core.CallSiteRegistry;
+import org.powermock.core.MockGateway;
+import org.powermock.core.transformers.CallSiteAwareTransformer;
+import org.powermock.core.transformers.MockTargets;
+import org.powermock.core.transformers.MockTargetsAwareTransformer;
+import org.powermock.core.transformers.TestClassAwareTransformer;
+import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.DeferConstructor;
+import org.powermock.core.transformers.bytebuddy.support.PowerMockExpressionEditor;
+import org.powermock.core.transformers.bytebuddy.support.TransformerHelper;
+
+import static org.powermock.core.transformers.TransformStrategy.CLASSLOADER;
+
+public class InstrumentMockTransformer extends AbstractByteBuddyMockTransformer implements CallSiteAwareTransformer,
+                                                                                                TestClassAwareTransformer,
+                                                                                                MockTargetsAwareTransformer {
+    
+    private Class<?> mockGetawayClass;
+    private CallSiteRegistry callSiteRegistry;
+    private Class<?> testClass;
+    private MockTargets mockTargets;
+    
+    public InstrumentMockTransformer(final TransformStrategy strategy) {
+        super(strategy);
+        this.mockGetawayClass = MockGateway.class;
+    }
+    
+    @Override
+    public void setCallSiteRegistry(final CallSiteRegistry callSiteRegistry) {
+        this.callSiteRegistry = callSiteRegistry;
+    }
+    
+    @Override
+    public void setTestClass(final Class<?> testClass) {
+        this.testClass = testClass;
+    }
+    
+    @Override
+    public void setMockTargets(final MockTargets mockTargets) {
+        this.mockTargets = mockTargets;
+    }
+    
+    @Override
+    public ByteBuddyClass transform(final ByteBuddyClass clazz) {
+        clazz.visit(new PowerMockExpressionEditor(getStrategy(), mockGetawayClass, callSiteRegistry, mockTargets));
+        if (getStrategy() == CLASSLOADER && !TransformerHelper.isTestClass(testClass, clazz.getName())) {
+            // a suppressed constructor call of a subclass delegates to the defer constructor
+            clazz.visit(new DeferConstructor());
+        }
+        return clazz;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.Label;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.CallSiteRegistry;
+import org.powermock.core.MockGateway;
+import org.powermock.core.transformers.CallSiteAwareTransformer;
+import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.CALL_SITE_METHOD_CALL;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.INSTANCE_METHOD_CALL;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.IS_ARMED;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.STATIC_METHOD_CALL;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.getReturnTypeAsString;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.majorVersion;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushArguments;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushClass;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushInt;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushParameterTypes;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushProceed;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.shouldSkipMethod;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.unboxOrCast;
+
+abstract class MethodMockTransformer extends AbstractByteBuddyMockTransformer implements CallSiteAwareTransformer {
+    
+    private Class<?> mockGetawayClass;
+    private CallSiteRegistry callSiteRegistry;
+    
+    MethodMockTransformer(final TransformStrategy strategy) {
+        super(strategy);
+        this.mockGetawayClass = MockGateway.class;
+    }
+    
+    @Override
+    public void setCallSiteRegistry(final CallSiteRegistry callSiteRegistry) {
+        this.callSiteRegistry = callSiteRegistry;
+    }
+    
+    private boolean useCallSiteIds() {
+        return callSiteRegistry != null && getStrategy() == TransformStrategy.CLASSLOADER;
+    }
+    
+    /**
+     * Emits the call of the gateway, which returns from the method unless the gateway returns {@code PROCEED}.
+     * The call is wrapped into a check whether anything is registered for the declaring class, so that the
+     * arguments are boxed and the gateway is called only when the call may actually be intercepted. Class files
+     * older than Java 5 cannot load a class literal with a single instruction, the check is skipped for them.
+     */
+    void insertPrologue(final MethodVisitor mv, final MethodInfo method) {
+        final String mockGateway = Type.getInternalName(mockGetawayClass);
+        final Type declaringClass = Type.getObjectType(method.owner);
+        final Type[] argumentTypes = Type.getArgumentTypes(method.descriptor);
+        final Type returnType = Type.getReturnType(method.descriptor);
+        final String returnTypeAsString = getReturnTypeAsString(returnType);
+        final boolean isStatic = (method.access & Opcodes.ACC_STATIC) != 0;
+        final int firstArgument = isStatic ? 0 : 1;
+        final Label proceed = new Label();
+        final Label proceedWithValue = new Label();
+        
+        if (majorVersion(method.version) >= Opcodes.V1_5) {
+            pushClass(mv, declaringClass, method.version);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, mockGateway, "isArmed", IS_ARMED, false);
+            mv.visitJumpInsn(Opcodes.IFEQ, proceed);
+        }
+        if (isStatic) {
+            pushClass(mv, declaringClass, method.version);
+        } else {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+        }
+        if (useCallSiteIds()) {
+            final int callSiteId = callSiteRegistry.register(method.name, method.descriptor, returnTypeAsString);
+            pushClass(mv, declaringClass, method.version);
+            pushInt(mv, callSiteId);
+            pushArguments(mv, argumentTypes, firstArgument);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, mockGateway, "methodCall", CALL_SITE_METHOD_CALL, false);
+        } else {
+            mv.visitLdcInsn(method.name);
+            pushArguments(mv, argumentTypes, firstArgument);
+            pushParameterTypes(mv, argumentTypes, method.version);
+            mv.visitLdcInsn(returnTypeAsString);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, mockGateway, "methodCall",
+                               isStatic ? STATIC_METHOD_CALL : INSTANCE_METHOD_CALL, false);
+        }
+        mv.visitInsn(Opcodes.DUP);
+        pushProceed(mv);
+        mv.visitJumpInsn(Opcodes.IF_ACMPEQ, proceedWithValue);
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(Opcodes.POP);
+        } else {
+            unboxOrCast(mv, returnType);
+        }
+        mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+        mv.visitLabel(proceedWithValue);
+        mv.visitInsn(Opcodes.POP);
+        mv.visitLabel(proceed);
+    }
+    
+    static boolean isNative(final MethodInfo method) {
+        return (method.access & Opcodes.ACC_NATIVE) != 0;
+    }
+    
+    /**
+     * @return {@code true} if the method gets the call of the gateway.
+     */
+    static boolean isModified(final MethodInfo method) {
+        return !shouldSkipMethod(method.access) && !method.name.equals("<init>") && !method.name.equals("<clinit>");
+    }
+    
+    static final class MethodInfo {
+        final String owner;
+        final int version;
+        final int access;
+        final String name;
+        final String descriptor;
+        
+        private MethodInfo(final String owner, final int version, final int access, final String name, final String descriptor) {
+            this.owner = owner;
+            this.version = version;
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+    }
+    
+    /**
+     * Visitor which passes the declared methods it should visit to {@link #modifyMethod(MethodInfo, MethodVisitor)}.
+     */
+    abstract static class MethodsVisitor extends ClassVisitor {
+        
+        private String className;
+        private int version;
+        
+        MethodsVisitor(final ClassVisitor classVisitor) {
+            super(OpenedClassReader.ASM_API, classVisitor);
+        }
+        
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.version = version;
+            this.className = name;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+        
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodInfo method = new MethodInfo(className, version, access, name, descriptor);
+            if (!shouldVisit(method)) {
+                return super.visitMethod(access, name, descriptor, signature, exceptions);
+            }
+            final MethodVisitor mv = super.visitMethod(modifyAccess(method), name, descriptor, signature, exceptions);
+            return mv == null ? null : modifyMethod(method, mv);
+        }
+        
+        abstract boolean shouldVisit(MethodInfo method);
+        
+        int modifyAccess(MethodInfo method) {
+            return method.access;
+        }
+        
+        abstract MethodVisitor modifyMethod(MethodInfo method, MethodVisitor mv);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.ClassVisitorWrapper;
+
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.shouldSkipMethod;
+
+/**
+ * According to JVM specification method size must be lower than 65536 bytes.
+ * When that limit is exceeded class loader will fail to load the class.
+ * Since instrumentation can increase method size significantly it must be
+ * ensured that JVM limit is not exceeded.
+ * <p/>
+ * ASM reports the methods which exceed the limit when the class is written, {@link ByteBuddyClass#toBytecode()}
+ * then writes the class again. The body of such a method is replaced by exception throw.
+ * Method is then instrumented again to allow mocking and suppression.
+ *
+ * @see <a href="http://docs.oracle.com/javase/specs/jvms/se8/html/jvms-4.html#jvms-4.7.3">JVM specification</a>
+ */
+public class MethodSizeMockTransformer extends MethodMockTransformer {
+    
+    public MethodSizeMockTransformer(final TransformStrategy strategy) {
+        super(strategy);
+    }
+    
+    @Override
+    public ByteBuddyClass transform(final ByteBuddyClass clazz) {
+        clazz.visit(new ClassVisitorWrapper() {
+            @Override
+            public ClassVisitor wrap(final ByteBuddyClass clazz, final ClassVisitor classVisitor) {
+                return new TooLargeMethodsVisitor(clazz, classVisitor);
+            }
+        });
+        return clazz;
+    }
+    
+    private class TooLargeMethodsVisitor extends MethodsVisitor {
+        
+        private final ByteBuddyClass clazz;
+        
+        private TooLargeMethodsVisitor(final ByteBuddyClass clazz, final ClassVisitor classVisitor) {
+            super(classVisitor);
+            this.clazz = clazz;
+        }
+        
+        @Override
+        boolean shouldVisit(final MethodInfo method) {
+            return clazz.isTooLarge(method.name, method.descriptor)
+                       && !method.name.equals("<init>") && !method.name.equals("<clinit>");
+        }
+        
+        @Override
+        MethodVisitor modifyMethod(final MethodInfo method, final MethodVisitor mv) {
+            return new ReplaceBodyMethodVisitor(method, mv);
+        }
+    }
+    
+    /**
+     * Emits the new body when the code starts and drops the original code.
+     */
+    private class ReplaceBodyMethodVisitor extends MethodVisitor {
+        
+        private final MethodInfo method;
+        private final MethodVisitor target;
+        
+        private ReplaceBodyMethodVisitor(final MethodInfo method, final MethodVisitor mv) {
+            super(OpenedClassReader.ASM_API, mv);
+            this.method = method;
+            this.target = mv;
+        }
+        
+        @Override
+        public void visitCode() {
+            target.visitCode();
+            if (!shouldSkipMethod(method.access)) {
+                insertPrologue(target, method);
+            }
+            target.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalAccessException");
+            target.visitInsn(Opcodes.DUP);
+            target.visitLdcInsn("Method was too large and after instrumentation exceeded JVM limit. " +
+                                    "PowerMock modified the method to allow JVM to load the class. " +
+                                    "You can use PowerMock API to suppress or mock this method behaviour.");
+            target.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalAccessException", "<init>",
+                                   "(Ljava/lang/String;)V", false);
+            target.visitInsn(Opcodes.ATHROW);
+            mv = null;
+        }
+        
+        @Override
+        public void visitMaxs(final int maxStack, final int maxLocals) {
+            target.visitMaxs(0, 0);
+        }
+        
+        @Override
+        public void visitEnd() {
+            target.visitEnd();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.ClassVisitorWrapper;
+
+import static org.powermock.core.transformers.TransformStrategy.INST_REDEFINE;
+
+/**
+ * Set class modifier to public to allow for mocking of package private
+ * classes. This is needed because we've changed to CgLib naming policy
+ * to allow for mocking of signed classes.
+ */
+public class PackagePrivateClassesMockTransformer extends AbstractByteBuddyMockTransformer {
+    
+    private static final int ACCESS_MODIFIERS = Opcodes.ACC_PUBLIC | Opcodes.ACC_PRIVATE | Opcodes.ACC_PROTECTED;
+    
+    public PackagePrivateClassesMockTransformer(final TransformStrategy strategy) {
+        super(strategy);
+    }
+    
+    @Override
+    public ByteBuddyClass transform(final ByteBuddyClass clazz) {
+        if (getStrategy() != INST_REDEFINE && isPackagePrivate(clazz)) {
+            if (isNotSystemClass(clazz.getName()) && !(clazz.isInterface() && clazz.isNested())) {
+                clazz.visit(new ClassVisitorWrapper() {
+                    @Override
+                    public ClassVisitor wrap(final ByteBuddyClass clazz, final ClassVisitor classVisitor) {
+                        return new PublicClassVisitor(clazz.getInternalName(), classVisitor);
+                    }
+                });
+            }
+        }
+        return clazz;
+    }
+    
+    private static boolean isPackagePrivate(final ByteBuddyClass clazz) {
+        return (clazz.getModifiers() & ACCESS_MODIFIERS) == 0;
+    }
+    
+    private static boolean isNotSystemClass(final String name) {
+        return !name.startsWith("java.");
+    }
+    
+    private static class PublicClassVisitor extends ClassVisitor {
+        
+        private final String className;
+        
+        private PublicClassVisitor(final String className, final ClassVisitor classVisitor) {
+            super(OpenedClassReader.ASM_API, classVisitor);
+            this.className = className;
+        }
+        
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            super.visit(version, access | Opcodes.ACC_PUBLIC, name, signature, superName, interfaces);
+        }
+        
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            super.visitInnerClass(name, outerName, innerName, className.equals(name) ? access | Opcodes.ACC_PUBLIC : access);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.FieldVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.ClassVisitorWrapper;
+
+import static org.powermock.core.transformers.TransformStrategy.INST_REDEFINE;
+
+/**
+ * Remove final from all static final fields. Not possible if using a java agent.
+ */
+public class StaticFinalFieldsMockTransformer extends AbstractByteBuddyMockTransformer {
+    
+    private static final int STATIC_FINAL = Opcodes.ACC_STATIC | Opcodes.ACC_FINAL;
+    
+    public StaticFinalFieldsMockTransformer(final TransformStrategy strategy) {
+        super(strategy);
+    }
+    
+    @Override
+    public ByteBuddyClass transform(final ByteBuddyClass clazz) {
+        if (clazz.isInterface()) {
+            return clazz;
+        }
+        
+        if (getStrategy() != INST_REDEFINE) {
+            clazz.visit(new ClassVisitorWrapper() {
+                @Override
+                public ClassVisitor wrap(final ByteBuddyClass clazz, final ClassVisitor classVisitor) {
+                    return new StaticFieldsVisitor(classVisitor);
+                }
+            });
+        }
+        return clazz;
+    }
+    
+    private static class StaticFieldsVisitor extends ClassVisitor {
+        
+        private StaticFieldsVisitor(final ClassVisitor classVisitor) {
+            super(OpenedClassReader.ASM_API, classVisitor);
+        }
+        
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            if ((access & STATIC_FINAL) == STATIC_FINAL) {
+                access = access & ~Opcodes.ACC_FINAL;
+            }
+            return super.visitField(access, name, descriptor, signature, value);
+        }
+    }
+    
+}
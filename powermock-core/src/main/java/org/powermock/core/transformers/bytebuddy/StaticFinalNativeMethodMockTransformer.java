@@ -0,0 +1,110 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.ClassVisitorWrapper;
+
+public class StaticFinalNativeMethodMockTransformer extends MethodMockTransformer {
+    
+    public StaticFinalNativeMethodMockTransformer(final TransformStrategy strategy) {
+        super(strategy);
+    }
+    
+    @Override
+    public ByteBuddyClass transform(final ByteBuddyClass clazz) {
+        clazz.visit(new ClassVisitorWrapper() {
+            @Override
+            public ClassVisitor wrap(final ByteBuddyClass clazz, final ClassVisitor classVisitor) {
+                return new ModifyMethodsVisitor(classVisitor);
+            }
+        });
+        return clazz;
+    }
+    
+    private class ModifyMethodsVisitor extends MethodsVisitor {
+        
+        private ModifyMethodsVisitor(final ClassVisitor classVisitor) {
+            super(classVisitor);
+        }
+        
+        @Override
+        boolean shouldVisit(final MethodInfo method) {
+            return isModified(method);
+        }
+        
+        @Override
+        int modifyAccess(final MethodInfo method) {
+            return method.access & ~Opcodes.ACC_NATIVE;
+        }
+        
+        @Override
+        MethodVisitor modifyMethod(final MethodInfo method, final MethodVisitor mv) {
+            return isNative(method) ? new NativeMethodVisitor(method, mv) : new PrologueMethodVisitor(method, mv);
+        }
+    }
+    
+    private class PrologueMethodVisitor extends MethodVisitor {
+        
+        private final MethodInfo method;
+        
+        private PrologueMethodVisitor(final MethodInfo method, final MethodVisitor mv) {
+            super(OpenedClassReader.ASM_API, mv);
+            this.method = method;
+        }
+        
+        @Override
+        public void visitCode() {
+            super.visitCode();
+            insertPrologue(mv, method);
+        }
+    }
+    
+    /**
+     * A native method has no code, so the body is added when the method has been visited.
+     */
+    private class NativeMethodVisitor extends MethodVisitor {
+        
+        private final MethodInfo method;
+        
+        private NativeMethodVisitor(final MethodInfo method, final MethodVisitor mv) {
+            super(OpenedClassReader.ASM_API, mv);
+            this.method = method;
+        }
+        
+        @Override
+        public void visitEnd() {
+            mv.visitCode();
+            insertPrologue(mv, method);
+            mv.visitTypeInsn(Opcodes.NEW, "java/lang/UnsupportedOperationException");
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitLdcInsn(method.name + " is native");
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/UnsupportedOperationException", "<init>",
+                               "(Ljava/lang/String;)V", false);
+            mv.visitInsn(Opcodes.ATHROW);
+            mv.visitMaxs(0, 0);
+            super.visitEnd();
+        }
+    }
+}
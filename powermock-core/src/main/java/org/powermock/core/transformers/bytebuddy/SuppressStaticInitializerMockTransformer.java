@@ -0,0 +1,66 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.MockGateway;
+import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.ClassVisitorWrapper;
+
+import static org.powermock.core.transformers.TransformStrategy.CLASSLOADER;
+
+public class SuppressStaticInitializerMockTransformer extends AbstractByteBuddyMockTransformer {
+    
+    public SuppressStaticInitializerMockTransformer(final TransformStrategy strategy) {
+        super(strategy);
+    }
+    
+    @Override
+    public ByteBuddyClass transform(final ByteBuddyClass clazz) {
+        if (getStrategy() == CLASSLOADER) {
+            if (MockGateway.staticConstructorCall(clazz.getName()) != MockGateway.PROCEED) {
+                clazz.visit(new ClassVisitorWrapper() {
+                    @Override
+                    public ClassVisitor wrap(final ByteBuddyClass clazz, final ClassVisitor classVisitor) {
+                        return new RemoveStaticInitializerVisitor(classVisitor);
+                    }
+                });
+            }
+        }
+        return clazz;
+    }
+    
+    private static class RemoveStaticInitializerVisitor extends ClassVisitor {
+        
+        private RemoveStaticInitializerVisitor(final ClassVisitor classVisitor) {
+            super(OpenedClassReader.ASM_API, classVisitor);
+        }
+        
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if ("<clinit>".equals(name)) {
+                return null;
+            }
+            return super.visitMethod(access, name, descriptor, signature, exceptions);
+        }
+    }
+}
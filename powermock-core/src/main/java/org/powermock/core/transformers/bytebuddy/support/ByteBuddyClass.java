@@ -0,0 +1,201 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy.support;
+
+import net.bytebuddy.jar.asm.ClassReader;
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.jar.asm.MethodTooLargeException;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.bytebuddy.MaxLocalsExtractor;
+import org.powermock.core.bytebuddy.MethodMaxLocals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A class which is transformed with ASM visitors.
+ * <p>
+ * Transformers do not change the class directly, they add {@link ClassVisitorWrapper}s which are applied in the
+ * order they have been added when the class is written with {@link #toBytecode()}. The class file is read only
+ * once for all transformers, so a class is transformed in a single pass.
+ * </p>
+ */
+public class ByteBuddyClass {
+
+    private final ClassReader classReader;
+    private final TypeHierarchy typeHierarchy;
+    private final List<ClassVisitorWrapper> visitorWrappers;
+    private final Set<String> tooLargeMethods;
+    private ClassFileScanner scanner;
+
+    public ByteBuddyClass(byte[] classFile, TypeHierarchy typeHierarchy) {
+        this.classReader = OpenedClassReader.of(classFile);
+        this.typeHierarchy = typeHierarchy;
+        this.visitorWrappers = new ArrayList<ClassVisitorWrapper>();
+        this.tooLargeMethods = new HashSet<String>();
+    }
+
+    public String getName() {
+        return classReader.getClassName().replace('/', '.');
+    }
+
+    public String getInternalName() {
+        return classReader.getClassName();
+    }
+
+    /**
+     * @return internal name of the super class or {@code null} for {@code java.lang.Object}.
+     */
+    public String getSuperName() {
+        return classReader.getSuperName();
+    }
+
+    public boolean isInterface() {
+        return (classReader.getAccess() & Opcodes.ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * @return access flags of the class, for a nested class the flags of its inner class entry.
+     */
+    public int getModifiers() {
+        final int innerClassAccess = getScanner().innerClassAccess;
+        return innerClassAccess < 0 ? classReader.getAccess() : innerClassAccess;
+    }
+
+    public boolean isNested() {
+        return getScanner().innerClassAccess >= 0;
+    }
+
+    /**
+     * @return max locals of the method in the original class file.
+     */
+    public int getMaxLocals(String name, String descriptor) {
+        return getScanner().getMethods().getMethodMaxLocal(name, descriptor);
+    }
+
+    /**
+     * @return {@code true} if the method exceeded the JVM limit of the code size when the class was written.
+     */
+    public boolean isTooLarge(String name, String descriptor) {
+        return tooLargeMethods.contains(name + descriptor);
+    }
+
+    public TypeHierarchy getTypeHierarchy() {
+        return typeHierarchy;
+    }
+
+    public void visit(ClassVisitorWrapper visitorWrapper) {
+        visitorWrappers.add(visitorWrapper);
+    }
+
+    /**
+     * Writes the class with all modifications. A method which is too large after the modifications is remembered
+     * and the class is written again, so transformers can replace the body of the method.
+     */
+    public byte[] toBytecode() {
+        while (true) {
+            try {
+                return write();
+            } catch (MethodTooLargeException e) {
+                if (!tooLargeMethods.add(e.getMethodName() + e.getDescriptor())) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private byte[] write() {
+        final boolean computeFrames = (classReader.readUnsignedShort(6) & 0xFFFF) >= Opcodes.V1_6;
+        final ClassWriter classWriter = new TypeHierarchyClassWriter(
+            classReader, computeFrames ? ClassWriter.COMPUTE_FRAMES : ClassWriter.COMPUTE_MAXS, typeHierarchy
+        );
+        ClassVisitor classVisitor = classWriter;
+        for (int i = visitorWrappers.size() - 1; i >= 0; i--) {
+            classVisitor = visitorWrappers.get(i).wrap(this, classVisitor);
+        }
+        classReader.accept(classVisitor, computeFrames ? ClassReader.SKIP_FRAMES : 0);
+        return classWriter.toByteArray();
+    }
+
+    private ClassFileScanner getScanner() {
+        if (scanner == null) {
+            final ClassFileScanner classFileScanner = new ClassFileScanner(classReader.getClassName());
+            classReader.accept(classFileScanner, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            scanner = classFileScanner;
+        }
+        return scanner;
+    }
+
+    private static class ClassFileScanner extends MaxLocalsExtractor {
+
+        private final String className;
+        private int innerClassAccess = -1;
+
+        private ClassFileScanner(String className) {
+            this.className = className;
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            if (className.equals(name)) {
+                innerClassAccess = access;
+            }
+        }
+    }
+
+    private static class TypeHierarchyClassWriter extends ClassWriter {
+
+        private static final String OBJECT = "java/lang/Object";
+
+        private final TypeHierarchy typeHierarchy;
+
+        private TypeHierarchyClassWriter(ClassReader classReader, int flags, TypeHierarchy typeHierarchy) {
+            super(classReader, flags);
+            this.typeHierarchy = typeHierarchy;
+        }
+
+        /*
+         * The default implementation loads the classes, which must not happen while the mock class loader defines
+         * a class. The hierarchy is read from the class files instead.
+         */
+        @Override
+        protected String getCommonSuperClass(String type1, String type2) {
+            if (type1.equals(type2)) {
+                return type1;
+            }
+            if (typeHierarchy.isInterface(type1) || typeHierarchy.isInterface(type2)) {
+                return OBJECT;
+            }
+            final Set<String> superClasses = new HashSet<String>();
+            for (String type = type1; type != null; type = typeHierarchy.getSuperName(type)) {
+                superClasses.add(type);
+            }
+            for (String type = type2; type != null; type = typeHierarchy.getSuperName(type)) {
+                if (superClasses.contains(type)) {
+                    return type;
+                }
+            }
+            return OBJECT;
+        }
+    }
+}
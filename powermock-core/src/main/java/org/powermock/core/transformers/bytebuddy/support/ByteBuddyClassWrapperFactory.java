@@ -0,0 +1,53 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy.support;
+
+import org.powermock.core.transformers.ClassWrapper;
+import org.powermock.core.transformers.ClassWrapperFactory;
+
+public class ByteBuddyClassWrapperFactory implements ClassWrapperFactory<ByteBuddyClass> {
+    @Override
+    public ClassWrapper<ByteBuddyClass> wrap(ByteBuddyClass type) {
+        return new ByteBuddyClassWrapper(type);
+    }
+
+    public static class ByteBuddyClassWrapper implements ClassWrapper<ByteBuddyClass> {
+
+        private final ByteBuddyClass type;
+
+        private ByteBuddyClassWrapper(ByteBuddyClass type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean isInterface() {
+            return type.isInterface();
+        }
+
+        @Override
+        public ByteBuddyClass unwrap() {
+            return type;
+        }
+
+        @Override
+        public ClassWrapper<ByteBuddyClass> wrap(final ByteBuddyClass original) {
+            return new ByteBuddyClassWrapper(original);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy.support;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+
+/**
+ * Modification of a {@link ByteBuddyClass}. The wrapper creates a {@link ClassVisitor} which changes the visited
+ * class and passes the result to the next visitor each time the class is written.
+ */
+public interface ClassVisitorWrapper {
+
+    /**
+     * @param clazz        the class which is written.
+     * @param classVisitor the visitor which receives the modified class.
+     * @return visitor which modifies the class.
+     */
+    ClassVisitor wrap(ByteBuddyClass clazz, ClassVisitor classVisitor);
+}
@@ -0,0 +1,106 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy.support;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.IndicateReloadClass;
+
+/**
+ * The defer constructor {@code public C(IndicateReloadClass)} is called instead of a constructor of the super class
+ * when the constructor call is suppressed. It calls the defer constructor of its own super class, or the default
+ * constructor of {@code java.lang.Object}.
+ */
+public class DeferConstructor implements ClassVisitorWrapper {
+
+    public static final String NAME = "<init>";
+    public static final String DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(IndicateReloadClass.class));
+
+    /**
+     * @return {@code true} if a class with the super class can have a defer constructor. Other classes of the
+     * {@code java} packages than {@code java.lang.Object} do not have one.
+     */
+    public static boolean canBeAddedTo(String superName) {
+        return superName != null && (TransformerHelper.OBJECT.equals(superName) || !TransformerHelper.isSystemClass(superName));
+    }
+
+    public static boolean isDeferConstructor(String name, String descriptor) {
+        return NAME.equals(name) && DESCRIPTOR.equals(descriptor);
+    }
+
+    @Override
+    public ClassVisitor wrap(ByteBuddyClass clazz, ClassVisitor classVisitor) {
+        return new DeferConstructorVisitor(classVisitor);
+    }
+
+    private static class DeferConstructorVisitor extends ClassVisitor {
+
+        private String superName;
+        private boolean canBeAdded;
+        private boolean exists;
+
+        private DeferConstructorVisitor(ClassVisitor classVisitor) {
+            super(OpenedClassReader.ASM_API, classVisitor);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.superName = superName;
+            this.canBeAdded = (access & Opcodes.ACC_INTERFACE) == 0 && canBeAddedTo(superName);
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if (isDeferConstructor(name, descriptor)) {
+                exists = true;
+            }
+            return super.visitMethod(access, name, descriptor, signature, exceptions);
+        }
+
+        @Override
+        public void visitEnd() {
+            if (canBeAdded && !exists) {
+                addDeferConstructor();
+            }
+            super.visitEnd();
+        }
+
+        private void addDeferConstructor() {
+            final MethodVisitor mv = super.visitMethod(Opcodes.ACC_PUBLIC, NAME, DESCRIPTOR, null, null);
+            if (mv == null) {
+                return;
+            }
+            mv.visitCode();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            if (TransformerHelper.OBJECT.equals(superName)) {
+                mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, NAME, "()V", false);
+            } else {
+                mv.visitInsn(Opcodes.ACONST_NULL);
+                mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, NAME, DESCRIPTOR, false);
+            }
+            mv.visitInsn(Opcodes.RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+    }
+}
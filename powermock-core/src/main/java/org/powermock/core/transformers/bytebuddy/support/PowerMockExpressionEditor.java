@@ -0,0 +1,387 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy.support;
+
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.FieldVisitor;
+import net.bytebuddy.jar.asm.Label;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.CallSiteRegistry;
+import org.powermock.core.IndicateReloadClass;
+import org.powermock.core.transformers.MockTargets;
+import org.powermock.core.transformers.TransformStrategy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.powermock.core.transformers.TransformStrategy.CLASSLOADER;
+import static org.powermock.core.transformers.TransformStrategy.INST_REDEFINE;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.CALL_SITE_METHOD_CALL;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.CONSTRUCTOR_CALL;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.FIELD_CALL;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.HAS_SUPPRESSED_FIELDS;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.INSTANCE_METHOD_CALL;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.MOCK_GATEWAY;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.NEW_INSTANCE_CALL;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.OBJECT;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.getReturnTypeAsString;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.isSystemClass;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.loadArguments;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushArguments;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushClass;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushInt;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushParameterTypes;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushProceed;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.storeArguments;
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.unboxOrCast;
+
+/**
+ * Replaces object creations, calls of methods of system classes, calls of super and this constructors and field
+ * reads with calls of the mock gateway. The calls are emitted as byte code, the operands of an instruction are
+ * stored in locals after the locals of the original method, so the original instruction can be executed when the
+ * gateway returns {@code PROCEED}.
+ */
+public final class PowerMockExpressionEditor implements ClassVisitorWrapper {
+
+    private static final String CONSTRUCTOR = "<init>";
+
+    private final TransformStrategy strategy;
+    private final String mockGateway;
+    private final CallSiteRegistry callSiteRegistry;
+    private final MockTargets mockTargets;
+
+    public PowerMockExpressionEditor(final TransformStrategy strategy, final Class<?> mockGetawayClass) {
+        this(strategy, mockGetawayClass, null);
+    }
+
+    public PowerMockExpressionEditor(final TransformStrategy strategy, final Class<?> mockGetawayClass,
+                                     final CallSiteRegistry callSiteRegistry) {
+        this(strategy, mockGetawayClass, callSiteRegistry, null);
+    }
+
+    /**
+     * @param mockTargets the classes whose call sites are instrumented, or {@code null} if all call sites are
+     *                    instrumented.
+     */
+    public PowerMockExpressionEditor(final TransformStrategy strategy, final Class<?> mockGetawayClass,
+                                     final CallSiteRegistry callSiteRegistry, final MockTargets mockTargets) {
+        this.strategy = strategy;
+        this.mockGateway = Type.getInternalName(mockGetawayClass);
+        this.callSiteRegistry = strategy == CLASSLOADER ? callSiteRegistry : null;
+        this.mockTargets = strategy == CLASSLOADER ? mockTargets : null;
+    }
+
+    private boolean isMockTarget(String internalName) {
+        return mockTargets == null || mockTargets.contains(internalName.replace('/', '.'));
+    }
+
+    @Override
+    public ClassVisitor wrap(final ByteBuddyClass clazz, final ClassVisitor classVisitor) {
+        return new ExpressionClassVisitor(clazz, classVisitor);
+    }
+
+    private class ExpressionClassVisitor extends ClassVisitor {
+
+        private final ByteBuddyClass clazz;
+        private final Set<String> syntheticFields;
+        private String className;
+        private String superName;
+        private int version;
+
+        private ExpressionClassVisitor(ByteBuddyClass clazz, ClassVisitor classVisitor) {
+            super(OpenedClassReader.ASM_API, classVisitor);
+            this.clazz = clazz;
+            this.syntheticFields = new HashSet<String>();
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.version = version;
+            this.className = name;
+            this.superName = superName;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            if ((access & Opcodes.ACC_SYNTHETIC) != 0) {
+                syntheticFields.add(name);
+            }
+            return super.visitField(access, name, descriptor, signature, value);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null) {
+                return null;
+            }
+            return new ExpressionMethodVisitor(mv, CONSTRUCTOR.equals(name), clazz.getMaxLocals(name, descriptor));
+        }
+
+        /*
+         * Fields of other classes are only known by their reference, the names javac gives synthetic fields
+         * (this$0, val$x, $assertionsDisabled, $SwitchMap$...) all contain a '$'.
+         */
+        private boolean isSyntheticField(String owner, String name) {
+            return className.equals(owner) ? syntheticFields.contains(name) : name.indexOf('$') >= 0;
+        }
+
+        private class ExpressionMethodVisitor extends MethodVisitor {
+
+            private final boolean isConstructor;
+            private final int firstFreeLocal;
+            private final Deque<String> newTypes;
+
+            private ExpressionMethodVisitor(MethodVisitor mv, boolean isConstructor, int firstFreeLocal) {
+                super(OpenedClassReader.ASM_API, mv);
+                this.isConstructor = isConstructor;
+                this.firstFreeLocal = firstFreeLocal;
+                this.newTypes = new ArrayDeque<String>();
+            }
+
+            @Override
+            public void visitTypeInsn(int opcode, String type) {
+                if (opcode == Opcodes.NEW) {
+                    newTypes.push(type);
+                }
+                super.visitTypeInsn(opcode, type);
+            }
+
+            @Override
+            public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                if (opcode == Opcodes.INVOKESPECIAL && CONSTRUCTOR.equals(name)) {
+                    if (!newTypes.isEmpty()) {
+                        // the constructor of the innermost pending object creation
+                        final String type = newTypes.pop();
+                        if (isMockTarget(type)) {
+                            editNewExpression(type, descriptor);
+                        } else {
+                            super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+                        }
+                    } else if (isConstructor && strategy != INST_REDEFINE && !owner.startsWith("java/lang") && isMockTarget(owner)) {
+                        editConstructorCall(owner, descriptor);
+                    } else {
+                        super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+                    }
+                } else if (isSystemClass(owner) && isMockTarget(owner)) {
+                    editMethodCall(opcode, owner, name, descriptor, isInterface);
+                } else {
+                    super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+                }
+            }
+
+            @Override
+            public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+                if ((opcode == Opcodes.GETFIELD || opcode == Opcodes.GETSTATIC) && !isSyntheticField(owner, name)
+                        && isMockTarget(owner)) {
+                    editFieldAccess(opcode, owner, name, descriptor);
+                } else {
+                    super.visitFieldInsn(opcode, owner, name, descriptor);
+                }
+            }
+
+            /*
+             * The stack holds the uninitialized object twice (new, dup) and the arguments of the constructor.
+             */
+            private void editNewExpression(String type, String descriptor) {
+                final Type[] argumentTypes = Type.getArgumentTypes(descriptor);
+                final Label proceed = new Label();
+                final Label cast = new Label();
+                final Label end = new Label();
+
+                storeArguments(mv, argumentTypes, firstFreeLocal);
+                pushClass(mv, Type.getObjectType(type), version);
+                pushArguments(mv, argumentTypes, firstFreeLocal);
+                pushParameterTypes(mv, argumentTypes, version);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, MOCK_GATEWAY, "newInstanceCall", NEW_INSTANCE_CALL, false);
+                mv.visitInsn(Opcodes.DUP);
+                pushProceed(mv);
+                mv.visitJumpInsn(Opcodes.IF_ACMPEQ, proceed);
+
+                // replace the uninitialized objects with the instance
+                mv.visitInsn(Opcodes.DUP_X2);
+                mv.visitInsn(Opcodes.POP);
+                mv.visitInsn(Opcodes.POP);
+                mv.visitInsn(Opcodes.POP);
+                mv.visitInsn(Opcodes.DUP);
+                mv.visitTypeInsn(Opcodes.INSTANCEOF, "java/lang/reflect/Constructor");
+                mv.visitJumpInsn(Opcodes.IFEQ, cast);
+                mv.visitInsn(Opcodes.POP);
+                newInstanceWithoutConstructor(type);
+                mv.visitLabel(cast);
+                mv.visitTypeInsn(Opcodes.CHECKCAST, type);
+                mv.visitJumpInsn(Opcodes.GOTO, end);
+
+                mv.visitLabel(proceed);
+                mv.visitInsn(Opcodes.POP);
+                loadArguments(mv, argumentTypes, firstFreeLocal);
+                mv.visitMethodInsn(Opcodes.INVOKESPECIAL, type, CONSTRUCTOR, descriptor, false);
+                mv.visitLabel(end);
+            }
+
+            private void newInstanceWithoutConstructor(String type) {
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, "sun/reflect/ReflectionFactory", "getReflectionFactory",
+                                   "()Lsun/reflect/ReflectionFactory;", false);
+                pushClass(mv, Type.getObjectType(type), version);
+                pushClass(mv, Type.getObjectType(OBJECT), version);
+                mv.visitInsn(Opcodes.ACONST_NULL);
+                mv.visitTypeInsn(Opcodes.CHECKCAST, "[Ljava/lang/Class;");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Class", "getDeclaredConstructor",
+                                   "([Ljava/lang/Class;)Ljava/lang/reflect/Constructor;", false);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "sun/reflect/ReflectionFactory", "newConstructorForSerialization",
+                                   "(Ljava/lang/Class;Ljava/lang/reflect/Constructor;)Ljava/lang/reflect/Constructor;", false);
+                mv.visitInsn(Opcodes.ACONST_NULL);
+                mv.visitTypeInsn(Opcodes.CHECKCAST, "[Ljava/lang/Object;");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/reflect/Constructor", "newInstance",
+                                   "([Ljava/lang/Object;)Ljava/lang/Object;", false);
+            }
+
+            private void editMethodCall(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                final boolean isStatic = opcode == Opcodes.INVOKESTATIC;
+                final Type[] argumentTypes = Type.getArgumentTypes(descriptor);
+                final Type returnType = Type.getReturnType(descriptor);
+                final int firstArgument = isStatic ? firstFreeLocal : firstFreeLocal + 1;
+                final Label mocked = new Label();
+                final Label end = new Label();
+
+                storeArguments(mv, argumentTypes, firstArgument);
+                if (isStatic) {
+                    pushClass(mv, Type.getObjectType(owner), version);
+                } else {
+                    final Label hasInstance = new Label();
+                    mv.visitVarInsn(Opcodes.ASTORE, firstFreeLocal);
+                    mv.visitVarInsn(Opcodes.ALOAD, firstFreeLocal);
+                    mv.visitInsn(Opcodes.DUP);
+                    mv.visitJumpInsn(Opcodes.IFNONNULL, hasInstance);
+                    mv.visitInsn(Opcodes.POP);
+                    pushClass(mv, Type.getObjectType(owner), version);
+                    mv.visitLabel(hasInstance);
+                }
+                if (callSiteRegistry == null) {
+                    mv.visitLdcInsn(name);
+                    pushArguments(mv, argumentTypes, firstArgument);
+                    pushParameterTypes(mv, argumentTypes, version);
+                    mv.visitLdcInsn(getReturnTypeAsString(returnType));
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, MOCK_GATEWAY, "methodCall", INSTANCE_METHOD_CALL, false);
+                } else {
+                    final int callSiteId = callSiteRegistry.register(name, descriptor, getReturnTypeAsString(returnType));
+                    pushClass(mv, Type.getObjectType(className), version);
+                    pushInt(mv, callSiteId);
+                    pushArguments(mv, argumentTypes, firstArgument);
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, MOCK_GATEWAY, "methodCall", CALL_SITE_METHOD_CALL, false);
+                }
+                mv.visitInsn(Opcodes.DUP);
+                pushProceed(mv);
+                mv.visitJumpInsn(Opcodes.IF_ACMPNE, mocked);
+
+                mv.visitInsn(Opcodes.POP);
+                if (!isStatic) {
+                    mv.visitVarInsn(Opcodes.ALOAD, firstFreeLocal);
+                }
+                loadArguments(mv, argumentTypes, firstArgument);
+                mv.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+                mv.visitJumpInsn(Opcodes.GOTO, end);
+
+                mv.visitLabel(mocked);
+                if (returnType.getSort() == Type.VOID) {
+                    mv.visitInsn(Opcodes.POP);
+                } else {
+                    unboxOrCast(mv, returnType);
+                }
+                mv.visitLabel(end);
+            }
+
+            /*
+             * Note that constructor call only intercepts calls to super or this from an instantiated class, see the
+             * Javassist implementation. The stack holds the uninitialized this and the arguments of the constructor.
+             */
+            private void editConstructorCall(String owner, String descriptor) {
+                final Type[] argumentTypes = Type.getArgumentTypes(descriptor);
+                final Label proceed = new Label();
+                final Label end = new Label();
+
+                storeArguments(mv, argumentTypes, firstFreeLocal);
+                pushClass(mv, Type.getObjectType(owner), version);
+                pushArguments(mv, argumentTypes, firstFreeLocal);
+                pushParameterTypes(mv, argumentTypes, version);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, mockGateway, "constructorCall", CONSTRUCTOR_CALL, false);
+                pushProceed(mv);
+                mv.visitJumpInsn(Opcodes.IF_ACMPEQ, proceed);
+
+                if (OBJECT.equals(superName)) {
+                    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, CONSTRUCTOR, "()V", false);
+                } else {
+                    mv.visitInsn(Opcodes.ACONST_NULL);
+                    mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(IndicateReloadClass.class));
+                    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, CONSTRUCTOR, DeferConstructor.DESCRIPTOR, false);
+                }
+                mv.visitJumpInsn(Opcodes.GOTO, end);
+
+                mv.visitLabel(proceed);
+                loadArguments(mv, argumentTypes, firstFreeLocal);
+                mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, CONSTRUCTOR, descriptor, false);
+                mv.visitLabel(end);
+            }
+
+            private void editFieldAccess(int opcode, String owner, String name, String descriptor) {
+                final boolean isStatic = opcode == Opcodes.GETSTATIC;
+                final Type fieldType = Type.getType(descriptor);
+                final Label suppressedFields = new Label();
+                final Label mocked = new Label();
+                final Label end = new Label();
+
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, MOCK_GATEWAY, "hasSuppressedFields", HAS_SUPPRESSED_FIELDS, false);
+                mv.visitJumpInsn(Opcodes.IFNE, suppressedFields);
+                mv.visitFieldInsn(opcode, owner, name, descriptor);
+                mv.visitJumpInsn(Opcodes.GOTO, end);
+
+                mv.visitLabel(suppressedFields);
+                if (isStatic) {
+                    mv.visitInsn(Opcodes.ACONST_NULL);
+                } else {
+                    mv.visitInsn(Opcodes.DUP);
+                }
+                pushClass(mv, Type.getObjectType(owner), version);
+                mv.visitLdcInsn(name);
+                pushClass(mv, fieldType, version);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, MOCK_GATEWAY, "fieldCall", FIELD_CALL, false);
+                mv.visitInsn(Opcodes.DUP);
+                pushProceed(mv);
+                mv.visitJumpInsn(Opcodes.IF_ACMPNE, mocked);
+                mv.visitInsn(Opcodes.POP);
+                mv.visitFieldInsn(opcode, owner, name, descriptor);
+                mv.visitJumpInsn(Opcodes.GOTO, end);
+
+                mv.visitLabel(mocked);
+                if (!isStatic) {
+                    mv.visitInsn(Opcodes.SWAP);
+                    mv.visitInsn(Opcodes.POP);
+                }
+                unboxOrCast(mv, fieldType);
+                mv.visitLabel(end);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy.support;
+
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+import org.powermock.core.MockGateway;
+
+/**
+ * Emits the instructions which are shared by the transformers calling the {@link MockGateway}.
+ */
+public class TransformerHelper {
+
+    public static final String VOID = "";
+
+    public static final String MOCK_GATEWAY = Type.getInternalName(MockGateway.class);
+    public static final String OBJECT = "java/lang/Object";
+
+    public static final String IS_ARMED = "(Ljava/lang/Class;)Z";
+    public static final String INSTANCE_METHOD_CALL
+        = "(Ljava/lang/Object;Ljava/lang/String;[Ljava/lang/Object;[Ljava/lang/Class;Ljava/lang/String;)Ljava/lang/Object;";
+    public static final String STATIC_METHOD_CALL
+        = "(Ljava/lang/Class;Ljava/lang/String;[Ljava/lang/Object;[Ljava/lang/Class;Ljava/lang/String;)Ljava/lang/Object;";
+    public static final String CALL_SITE_METHOD_CALL
+        = "(Ljava/lang/Object;Ljava/lang/Class;I[Ljava/lang/Object;)Ljava/lang/Object;";
+    public static final String NEW_INSTANCE_CALL
+        = "(Ljava/lang/Class;[Ljava/lang/Object;[Ljava/lang/Class;)Ljava/lang/Object;";
+    public static final String CONSTRUCTOR_CALL
+        = "(Ljava/lang/Class;[Ljava/lang/Object;[Ljava/lang/Class;)Ljava/lang/Object;";
+    public static final String HAS_SUPPRESSED_FIELDS = "()Z";
+    public static final String FIELD_CALL
+        = "(Ljava/lang/Object;Ljava/lang/Class;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;";
+
+    public static int majorVersion(int version) {
+        return version & 0xFFFF;
+    }
+
+    /**
+     * @return {@code true} if the method is synthetic but not a bridge method, or abstract.
+     */
+    public static boolean shouldSkipMethod(int access) {
+        final boolean synthetic = (access & Opcodes.ACC_SYNTHETIC) != 0 && (access & Opcodes.ACC_BRIDGE) == 0;
+        return synthetic || (access & Opcodes.ACC_ABSTRACT) != 0;
+    }
+
+    public static boolean isSystemClass(String internalName) {
+        return internalName.startsWith("java/");
+    }
+
+    /**
+     * @return {@code true} if the class is the test class or a class nested in it.
+     */
+    public static boolean isTestClass(Class<?> testClass, String className) {
+        return testClass != null
+                   && (className.equals(testClass.getName()) || className.startsWith(testClass.getName() + '$'));
+    }
+
+    public static String getReturnTypeAsString(Type returnType) {
+        return returnType.getSort() == Type.VOID ? VOID : returnType.getClassName();
+    }
+
+    /**
+     * Pushes the {@code java.lang.Object} on the stack of the {@code MockGateway.PROCEED} constant.
+     */
+    public static void pushProceed(MethodVisitor mv) {
+        mv.visitFieldInsn(Opcodes.GETSTATIC, MOCK_GATEWAY, "PROCEED", "Ljava/lang/Object;");
+    }
+
+    /**
+     * Pushes the class literal of the type. Class files older than Java 5 cannot load a class literal with a
+     * single instruction, the class is looked up by its name for them.
+     */
+    public static void pushClass(MethodVisitor mv, Type type, int version) {
+        switch (type.getSort()) {
+            case Type.OBJECT:
+            case Type.ARRAY:
+                if (majorVersion(version) >= Opcodes.V1_5) {
+                    mv.visitLdcInsn(type);
+                } else {
+                    final String name = type.getSort() == Type.ARRAY
+                                            ? type.getDescriptor().replace('/', '.')
+                                            : type.getClassName();
+                    mv.visitLdcInsn(name);
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Class", "forName",
+                                       "(Ljava/lang/String;)Ljava/lang/Class;", false);
+                }
+                break;
+            default:
+                mv.visitFieldInsn(Opcodes.GETSTATIC, getWrapper(type).getInternalName(), "TYPE", "Ljava/lang/Class;");
+        }
+    }
+
+    public static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    /**
+     * Pops the values of the types from the stack into the locals starting with {@code firstLocal}.
+     */
+    public static void storeArguments(MethodVisitor mv, Type[] types, int firstLocal) {
+        final int[] locals = locals(types, firstLocal);
+        for (int i = types.length - 1; i >= 0; i--) {
+            mv.visitVarInsn(types[i].getOpcode(Opcodes.ISTORE), locals[i]);
+        }
+    }
+
+    public static void loadArguments(MethodVisitor mv, Type[] types, int firstLocal) {
+        final int[] locals = locals(types, firstLocal);
+        for (int i = 0; i < types.length; i++) {
+            mv.visitVarInsn(types[i].getOpcode(Opcodes.ILOAD), locals[i]);
+        }
+    }
+
+    /**
+     * Pushes an {@code Object[]} with the boxed values of the locals starting with {@code firstLocal}.
+     */
+    public static void pushArguments(MethodVisitor mv, Type[] types, int firstLocal) {
+        final int[] locals = locals(types, firstLocal);
+        pushInt(mv, types.length);
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, OBJECT);
+        for (int i = 0; i < types.length; i++) {
+            mv.visitInsn(Opcodes.DUP);
+            pushInt(mv, i);
+            mv.visitVarInsn(types[i].getOpcode(Opcodes.ILOAD), locals[i]);
+            box(mv, types[i]);
+            mv.visitInsn(Opcodes.AASTORE);
+        }
+    }
+
+    /**
+     * Pushes a {@code Class[]} with the class literals of the types.
+     */
+    public static void pushParameterTypes(MethodVisitor mv, Type[] types, int version) {
+        pushInt(mv, types.length);
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Class");
+        for (int i = 0; i < types.length; i++) {
+            mv.visitInsn(Opcodes.DUP);
+            pushInt(mv, i);
+            pushClass(mv, types[i], version);
+            mv.visitInsn(Opcodes.AASTORE);
+        }
+    }
+
+    public static void box(MethodVisitor mv, Type type) {
+        if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) {
+            return;
+        }
+        final Type wrapper = getWrapper(type);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper.getInternalName(), "valueOf",
+                           Type.getMethodDescriptor(wrapper, type), false);
+    }
+
+    /**
+     * Converts the {@code java.lang.Object} on the stack to the type, i.e. takes care of casting a wrapper type to
+     * the primitive type if needed.
+     */
+    public static void unboxOrCast(MethodVisitor mv, Type type) {
+        switch (type.getSort()) {
+            case Type.OBJECT:
+            case Type.ARRAY:
+                if (!OBJECT.equals(type.getInternalName())) {
+                    mv.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+                }
+                break;
+            case Type.CHAR:
+                mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Character");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Character", "charValue", "()C", false);
+                break;
+            case Type.BOOLEAN:
+                mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Boolean");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z", false);
+                break;
+            default:
+                mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Number");
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Number", type.getClassName() + "Value",
+                                   "()" + type.getDescriptor(), false);
+        }
+    }
+
+    private static int[] locals(Type[] types, int firstLocal) {
+        final int[] locals = new int[types.length];
+        int local = firstLocal;
+        for (int i = 0; i < types.length; i++) {
+            locals[i] = local;
+            local += types[i].getSize();
+        }
+        return locals;
+    }
+
+    private static Type getWrapper(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+                return Type.getType(Boolean.class);
+            case Type.CHAR:
+                return Type.getType(Character.class);
+            case Type.BYTE:
+                return Type.getType(Byte.class);
+            case Type.SHORT:
+                return Type.getType(Short.class);
+            case Type.INT:
+                return Type.getType(Integer.class);
+            case Type.FLOAT:
+                return Type.getType(Float.class);
+            case Type.LONG:
+                return Type.getType(Long.class);
+            case Type.DOUBLE:
+                return Type.getType(Double.class);
+            default:
+                return Type.getType(Void.class);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy.support;
+
+import net.bytebuddy.jar.asm.ClassReader;
+import net.bytebuddy.jar.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Super classes and kinds of types, which are needed to compute stack map frames. The types are read from the class
+ * files which the class loader finds, so computing frames never loads a class. Classes of the {@code java} packages
+ * are looked up with the system class loader, because their class files may have a version which the bundled ASM
+ * cannot read.
+ */
+public class TypeHierarchy {
+
+    private static final TypeInfo UNKNOWN = new TypeInfo(null, false);
+
+    private final ClassLoader classLoader;
+    private final ConcurrentMap<String, TypeInfo> types;
+
+    public TypeHierarchy(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        this.types = new ConcurrentHashMap<String, TypeInfo>();
+    }
+
+    /**
+     * @return internal name of the super class, or {@code null} for {@code java.lang.Object}, interfaces which are
+     * not found and unknown types.
+     */
+    public String getSuperName(String internalName) {
+        return getTypeInfo(internalName).superName;
+    }
+
+    public boolean isInterface(String internalName) {
+        return getTypeInfo(internalName).isInterface;
+    }
+
+    private TypeInfo getTypeInfo(String internalName) {
+        TypeInfo typeInfo = types.get(internalName);
+        if (typeInfo == null) {
+            typeInfo = internalName.startsWith("java/") ? loadSystemType(internalName) : readType(internalName);
+            types.put(internalName, typeInfo);
+        }
+        return typeInfo;
+    }
+
+    private static TypeInfo loadSystemType(String internalName) {
+        try {
+            final Class<?> type = Class.forName(internalName.replace('/', '.'), false, ClassLoader.getSystemClassLoader());
+            final Class<?> superclass = type.getSuperclass();
+            return new TypeInfo(superclass == null ? null : superclass.getName().replace('.', '/'), type.isInterface());
+        } catch (ClassNotFoundException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private TypeInfo readType(String internalName) {
+        final InputStream classFile = classLoader.getResourceAsStream(internalName + ".class");
+        if (classFile == null) {
+            return UNKNOWN;
+        }
+        try {
+            final ClassReader classReader = new ClassReader(classFile);
+            return new TypeInfo(classReader.getSuperName(), (classReader.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+        } catch (IOException e) {
+            return UNKNOWN;
+        } catch (IllegalArgumentException e) {
+            // class file version which is not supported
+            return UNKNOWN;
+        } finally {
+            try {
+                classFile.close();
+            } catch (IOException ignored) {
+                // Nothing to do
+            }
+        }
+    }
+
+    private static class TypeInfo {
+        private final String superName;
+        private final boolean isInterface;
+
+        private TypeInfo(String superName, boolean isInterface) {
+            this.superName = superName;
+            this.isInterface = isInterface;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.bytebuddy.testclass;
+
+import net.bytebuddy.jar.asm.AnnotationVisitor;
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
+import net.bytebuddy.utility.OpenedClassReader;
+import org.powermock.core.testlisteners.GlobalNotificationBuildSupport;
+import org.powermock.core.transformers.ClassWrapper;
+import org.powermock.core.transformers.MethodSignatureWriter;
+import org.powermock.core.transformers.TestClassTransformer;
+import org.powermock.core.transformers.bytebuddy.support.ByteBuddyClass;
+import org.powermock.core.transformers.bytebuddy.support.ClassVisitorWrapper;
+import org.powermock.core.transformers.bytebuddy.support.DeferConstructor;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+
+import static org.powermock.core.transformers.bytebuddy.support.TransformerHelper.pushClass;
+
+/**
+ * The methods of a class are identified by {@code <class name>.<method name><method descriptor>}.
+ */
+public abstract class ByteBuddyTestClassTransformer extends TestClassTransformer<ByteBuddyClass, String> {
+    
+    private static final String NOTIFICATION_SUPPORT = Type.getInternalName(GlobalNotificationBuildSupport.class);
+    private static final int ACCESS_MODIFIERS = Opcodes.ACC_PUBLIC | Opcodes.ACC_PRIVATE | Opcodes.ACC_PROTECTED;
+    
+    ByteBuddyTestClassTransformer(Class<?> testClass,
+                                  Class<? extends Annotation> testMethodAnnotationType,
+                                  MethodSignatureWriter<String> signatureWriter) {
+        super(testClass, testMethodAnnotationType, signatureWriter);
+    }
+    
+    protected abstract boolean mustHaveTestAnnotationRemoved(String method);
+    
+    @Override
+    public ClassWrapper<ByteBuddyClass> transform(final ClassWrapper<ByteBuddyClass> clazz) throws Exception {
+        transform(clazz.unwrap());
+        return clazz;
+    }
+    
+    private void transform(final ByteBuddyClass clazz) {
+        if (isTestClass(clazz)) {
+            clazz.visit(new TestClassVisitorWrapper(true));
+        } else if (isNestedWithinTestClass(clazz)) {
+            clazz.visit(new TestClassVisitorWrapper(false));
+        }
+    }
+    
+    private boolean isTestClass(ByteBuddyClass clazz) {
+        try {
+            return Class.forName(clazz.getName(), false, getTestClass().getClassLoader())
+                        .isAssignableFrom(getTestClass());
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+    
+    private boolean isNestedWithinTestClass(ByteBuddyClass clazz) {
+        String clazzName = clazz.getName();
+        return clazzName.startsWith(getTestClass().getName())
+                   && clazzName.length() > getTestClass().getName().length()
+                   && '$' == clazzName.charAt(getTestClass().getName().length());
+    }
+    
+    private Class<?> asOriginalClass(Type type) {
+        try {
+            switch (type.getSort()) {
+                case Type.ARRAY:
+                    Class<?> componentType = asOriginalClass(type.getElementType());
+                    return Array.newInstance(componentType, new int[type.getDimensions()]).getClass();
+                case Type.OBJECT:
+                    return Class.forName(type.getClassName(), true, getTestClass().getClassLoader());
+                case Type.BOOLEAN:
+                    return boolean.class;
+                case Type.CHAR:
+                    return char.class;
+                case Type.BYTE:
+                    return byte.class;
+                case Type.SHORT:
+                    return short.class;
+                case Type.INT:
+                    return int.class;
+                case Type.FLOAT:
+                    return float.class;
+                case Type.LONG:
+                    return long.class;
+                default:
+                    return double.class;
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("Cannot resolve type: " + type.getClassName(), ex);
+        }
+    }
+    
+    private Class<?>[] asOriginalClassParams(Type[] parameterTypes) {
+        final Class<?>[] classParams = new Class[parameterTypes.length];
+        for (int i = 0; i < classParams.length; ++i) {
+            classParams[i] = asOriginalClass(parameterTypes[i]);
+        }
+        return classParams;
+    }
+    
+    private int restoreOriginalConstructorAccess(String className, int access, String descriptor) {
+        if ((access & Opcodes.ACC_PUBLIC) == 0) {
+            /* Probably a defer-constructor */
+            return access;
+        }
+        final int desiredAccessModifiers;
+        try {
+            Class<?> originalClass = getTestClass().getName().equals(className)
+                                         ? getTestClass()
+                                         : Class.forName(className, true, getTestClass().getClassLoader());
+            desiredAccessModifiers = originalClass.getDeclaredConstructor(
+                asOriginalClassParams(Type.getArgumentTypes(descriptor))).getModifiers();
+        } catch (Exception e) {
+            throw new RuntimeException("Cannot restore the access of a constructor of " + className, e);
+        }
+        return access & ~ACCESS_MODIFIERS | desiredAccessModifiers & ACCESS_MODIFIERS;
+    }
+    
+    private static int makeDeferConstructorNonPublic(int access) {
+        return Modifier.isPublic(access) ? access & ~Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED : access;
+    }
+    
+    private class TestClassVisitorWrapper implements ClassVisitorWrapper {
+        
+        private final boolean isTestClass;
+        
+        private TestClassVisitorWrapper(boolean isTestClass) {
+            this.isTestClass = isTestClass;
+        }
+        
+        @Override
+        public ClassVisitor wrap(ByteBuddyClass clazz, ClassVisitor classVisitor) {
+            return new TestClassVisitor(clazz, isTestClass, classVisitor);
+        }
+    }
+    
+    private class TestClassVisitor extends ClassVisitor {
+        
+        private final ByteBuddyClass clazz;
+        private final boolean isTestClass;
+        private final String testMethodAnnotation;
+        private int version;
+        private boolean hasClassInitializer;
+        
+        private TestClassVisitor(ByteBuddyClass clazz, boolean isTestClass, ClassVisitor classVisitor) {
+            super(OpenedClassReader.ASM_API, classVisitor);
+            this.clazz = clazz;
+            this.isTestClass = isTestClass;
+            this.testMethodAnnotation = Type.getDescriptor(getTestMethodAnnotationType());
+        }
+        
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.version = version;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+        
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            if ("<init>".equals(name)) {
+                access = DeferConstructor.isDeferConstructor(name, descriptor)
+                             ? makeDeferConstructorNonPublic(access)
+                             : restoreOriginalConstructorAccess(clazz.getName(), access, descriptor);
+            }
+            final MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (mv == null || !isTestClass) {
+                return mv;
+            }
+            if ("<init>".equals(name)) {
+                return new ConstructorNotificationVisitor(mv);
+            } else if ("<clinit>".equals(name)) {
+                hasClassInitializer = true;
+                return new ClassInitializerNotificationVisitor(mv);
+            }
+            return new RemoveTestAnnotationVisitor(clazz.getName() + '.' + name + descriptor, mv);
+        }
+        
+        @Override
+        public void visitEnd() {
+            if (isTestClass && !hasClassInitializer) {
+                final MethodVisitor mv = super.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+                if (mv != null) {
+                    mv.visitCode();
+                    addClassInitializerNotification(mv);
+                    mv.visitInsn(Opcodes.RETURN);
+                    mv.visitMaxs(0, 0);
+                    mv.visitEnd();
+                }
+            }
+            super.visitEnd();
+        }
+        
+        private void addClassInitializerNotification(MethodVisitor mv) {
+            pushClass(mv, Type.getObjectType(clazz.getInternalName()), version);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, NOTIFICATION_SUPPORT, "testClassInitiated", "(Ljava/lang/Class;)V", false);
+        }
+        
+        private class ClassInitializerNotificationVisitor extends MethodVisitor {
+            
+            private ClassInitializerNotificationVisitor(MethodVisitor mv) {
+                super(OpenedClassReader.ASM_API, mv);
+            }
+            
+            @Override
+            public void visitCode() {
+                super.visitCode();
+                addClassInitializerNotification(mv);
+            }
+        }
+        
+        private class ConstructorNotificationVisitor extends MethodVisitor {
+            
+            private ConstructorNotificationVisitor(MethodVisitor mv) {
+                super(OpenedClassReader.ASM_API, mv);
+            }
+            
+            @Override
+            public void visitInsn(int opcode) {
+                if (opcode == Opcodes.RETURN) {
+                    mv.visitVarInsn(Opcodes.ALOAD, 0);
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, NOTIFICATION_SUPPORT, "testInstanceCreated",
+                                       "(Ljava/lang/Object;)V", false);
+                }
+                super.visitInsn(opcode);
+            }
+        }
+        
+        private class RemoveTestAnnotationVisitor extends MethodVisitor {
+            
+            private final String method;
+            
+            private RemoveTestAnnotationVisitor(String method, MethodVisitor mv) {
+                super(OpenedClassReader.ASM_API, mv);
+                this.method = method;
+            }
+            
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                if (testMethodAnnotation.equals(descriptor) && mustHaveTestAnnotationRemoved(signatureOf(method))) {
+                    return null;
+                }
+                return super.visitAnnotation(descriptor, visible);
+            }
+        }
+    }
+}
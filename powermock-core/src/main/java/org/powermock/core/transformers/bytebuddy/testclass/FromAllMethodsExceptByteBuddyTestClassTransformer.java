@@ -0,0 +1,23 @@
+package org.powermock.core.transformers.bytebuddy.testclass;
+
+import org.powermock.core.transformers.MethodSignatureWriter;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+public class FromAllMethodsExceptByteBuddyTestClassTransformer extends ByteBuddyTestClassTransformer {
+    private final String targetMethodSignature;
+    
+    public FromAllMethodsExceptByteBuddyTestClassTransformer(final Class<?> testClass,
+                                                             final Class<? extends Annotation> testMethodAnnotation,
+                                                             final MethodSignatureWriter<String> signatureWriter,
+                                                             final Method methodToExclude) {
+        super(testClass, testMethodAnnotation, signatureWriter);
+        this.targetMethodSignature = signatureWriter.signatureForReflection(methodToExclude);
+    }
+    
+    @Override
+    protected boolean mustHaveTestAnnotationRemoved(String method) {
+        return !signatureOf(method).equals(targetMethodSignature);
+    }
+}
@@ -40,27 +40,31 @@ public class ClassFinalModifierMockTransformer extends AbstractJavaAssistMockTra
         }
         
         if (getStrategy() != INST_REDEFINE) {
-            if (Modifier.isFinal(clazz.getModifiers())) {
-                clazz.setModifiers(clazz.getModifiers() ^ Modifier.FINAL);
-            }
-            
-            ClassFile classFile = clazz.getClassFile2();
-            AttributeInfo attribute = classFile.getAttribute(InnerClassesAttribute.tag);
-            if (attribute != null && attribute instanceof InnerClassesAttribute) {
-                InnerClassesAttribute ica = (InnerClassesAttribute) attribute;
-                String name = classFile.getName();
-                int n = ica.tableLength();
-                for (int i = 0; i < n; ++i) {
-                    if (name.equals(ica.innerClass(i))) {
-                        int accessFlags = ica.accessFlags(i);
-                        if (Modifier.isFinal(accessFlags)) {
-                            ica.setAccessFlags(i, accessFlags ^ Modifier.FINAL);
-                        }
+            removeFinalModifier(clazz);
+        }
+        
+        return clazz;
+    }
+    
+    static void removeFinalModifier(final CtClass clazz) {
+        if (Modifier.isFinal(clazz.getModifiers())) {
+            clazz.setModifiers(clazz.getModifiers() ^ Modifier.FINAL);
+        }
+        
+        ClassFile classFile = clazz.getClassFile2();
+        AttributeInfo attribute = classFile.getAttribute(InnerClassesAttribute.tag);
+        if (attribute != null && attribute instanceof InnerClassesAttribute) {
+            InnerClassesAttribute ica = (InnerClassesAttribute) attribute;
+            String name = classFile.getName();
+            int n = ica.tableLength();
+            for (int i = 0; i < n; ++i) {
+                if (name.equals(ica.innerClass(i))) {
+                    int accessFlags = ica.accessFlags(i);
+                    if (Modifier.isFinal(accessFlags)) {
+                        ica.setAccessFlags(i, accessFlags ^ Modifier.FINAL);
                     }
                 }
             }
         }
-        
-        return clazz;
     }
 }
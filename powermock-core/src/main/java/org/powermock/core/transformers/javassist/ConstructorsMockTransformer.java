@@ -43,26 +43,34 @@ public class ConstructorsMockTransformer extends AbstractJavaAssistMockTransform
         
         if (getStrategy() == CLASSLOADER) {
             transform(new CtClass[]{clazz});
-            // we also need to transform nested class at this time due to JEP181 since JDK11
-            // otherwise, we might have trouble during further transformation
-            // see github #958
-            try {
-                CtClass[] nestedClasses = clazz.getDeclaredClasses();
-                transform(nestedClasses);
-            } catch (NotFoundException ignored) {
-                // ignored
-            }
+            transformNestedClasses(clazz);
         }
         return clazz;
     }
+    
+    static void transformNestedClasses(final CtClass clazz) {
+        // we also need to transform nested class at this time due to JEP181 since JDK11
+        // otherwise, we might have trouble during further transformation
+        // see github #958
+        try {
+            CtClass[] nestedClasses = clazz.getDeclaredClasses();
+            transform(nestedClasses);
+        } catch (NotFoundException ignored) {
+            // ignored
+        }
+    }
+    
+    static void makePublic(final CtConstructor constructor) {
+        final int modifiers = constructor.getModifiers();
+        if (!Modifier.isPublic(modifiers)) {
+            constructor.setModifiers(Modifier.setPublic(modifiers));
+        }
+    }
 
     private static void transform(final CtClass[] clazzArray) {
         for (CtClass nestedClazz : clazzArray) {
             for (CtConstructor c : nestedClazz.getDeclaredConstructors()) {
-                final int modifiers = c.getModifiers();
-                if (!Modifier.isPublic(modifiers)) {
-                    c.setModifiers(Modifier.setPublic(modifiers));
-                }
+                makePublic(c);
             }
         }
     }
@@ -0,0 +1,116 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.javassist;
+
+import javassist.CannotCompileException;
+import javassist.CtBehavior;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.NotFoundException;
+import org.powermock.core.transformers.MockTargets;
+import org.powermock.core.transformers.MockTargetsAwareTransformer;
+import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.javassist.support.PowerMockExpressionEditor;
+
+import static org.powermock.core.transformers.TransformStrategy.CLASSLOADER;
+import static org.powermock.core.transformers.TransformStrategy.INST_REDEFINE;
+
+/**
+ * Applies the changes of all transformers of the default chain while visiting every field and method of a class
+ * only once. The methods are changed in the same order as by the chain: the calls in the method are instrumented
+ * before the call of the mock gateway is inserted at the beginning of the method and before the size of the method
+ * is checked.
+ *
+ * @see ClassFinalModifierMockTransformer
+ * @see ConstructorsMockTransformer
+ * @see InstrumentMockTransformer
+ * @see PackagePrivateClassesMockTransformer
+ * @see StaticFinalFieldsMockTransformer
+ * @see StaticFinalNativeMethodMockTransformer
+ * @see SuppressStaticInitializerMockTransformer
+ * @see MethodSizeMockTransformer
+ */
+public class FusedMockTransformer extends MethodMockTransformer implements MockTargetsAwareTransformer {
+
+    private MockTargets mockTargets;
+
+    public FusedMockTransformer(final TransformStrategy strategy) {
+        super(strategy);
+    }
+
+    @Override
+    public void setMockTargets(final MockTargets mockTargets) {
+        this.mockTargets = mockTargets;
+    }
+
+    @Override
+    public CtClass transform(final CtClass clazz) throws CannotCompileException, NotFoundException {
+        final TransformStrategy strategy = getStrategy();
+        final boolean changeConstructors = strategy == CLASSLOADER && !clazz.isInterface();
+
+        if (strategy != INST_REDEFINE && !clazz.isInterface()) {
+            ClassFinalModifierMockTransformer.removeFinalModifier(clazz);
+        }
+        if (changeConstructors) {
+            ConstructorsMockTransformer.transformNestedClasses(clazz);
+        }
+
+        final PowerMockExpressionEditor editor = new PowerMockExpressionEditor(
+            strategy, clazz, getMockGetawayClass(), getCallSiteRegistry(), mockTargets
+        );
+        // the defer constructors added while constructors are instrumented are not visited
+        for (CtBehavior behavior : clazz.getDeclaredBehaviors()) {
+            if (behavior instanceof CtConstructor) {
+                if (changeConstructors) {
+                    ConstructorsMockTransformer.makePublic((CtConstructor) behavior);
+                }
+                behavior.instrument(editor);
+            } else {
+                final CtMethod method = (CtMethod) behavior;
+                method.instrument(editor);
+                modifyMethod(method);
+                if (MethodSizeMockTransformer.isMethodSizeExceeded(method)) {
+                    MethodSizeMockTransformer.replaceBody(method);
+                    modifyMethod(method);
+                }
+            }
+        }
+
+        if (strategy != INST_REDEFINE) {
+            PackagePrivateClassesMockTransformer.makePublic(clazz);
+            if (!clazz.isInterface()) {
+                for (CtField field : clazz.getDeclaredFields()) {
+                    StaticFinalFieldsMockTransformer.removeFinalModifier(field);
+                }
+            }
+        }
+
+        if (SuppressStaticInitializerMockTransformer.shouldSuppress(strategy, clazz)) {
+            SuppressStaticInitializerMockTransformer.suppress(clazz);
+        } else {
+            final CtConstructor classInitializer = clazz.getClassInitializer();
+            if (classInitializer != null) {
+                classInitializer.instrument(editor);
+            }
+        }
+        return clazz;
+    }
+}
@@ -20,25 +20,42 @@ package org.powermock.core.transformers.javassist;
 
 import javassist.CannotCompileException;
 import javassist.CtClass;
+import org.powermock.core.CallSiteRegistry;
 import org.powermock.core.MockGateway;
+import org.powermock.core.transformers.CallSiteAwareTransformer;
+import org.powermock.core.transformers.MockTargets;
+import org.powermock.core.transformers.MockTargetsAwareTransformer;
 import org.powermock.core.transformers.TransformStrategy;
 import org.powermock.core.transformers.javassist.support.PowerMockExpressionEditor;
 
 import java.io.File;
 import java.io.OutputStream;
 
-public class InstrumentMockTransformer extends AbstractJavaAssistMockTransformer {
+public class InstrumentMockTransformer extends AbstractJavaAssistMockTransformer implements CallSiteAwareTransformer,
+                                                                                                MockTargetsAwareTransformer {
     
     private Class<?> mockGetawayClass;
+    private CallSiteRegistry callSiteRegistry;
+    private MockTargets mockTargets;
     
     public InstrumentMockTransformer(final TransformStrategy strategy) {
         super(strategy);
         this.mockGetawayClass = MockGateway.class;
     }
     
+    @Override
+    public void setCallSiteRegistry(final CallSiteRegistry callSiteRegistry) {
+        this.callSiteRegistry = callSiteRegistry;
+    }
+    
+    @Override
+    public void setMockTargets(final MockTargets mockTargets) {
+        this.mockTargets = mockTargets;
+    }
+    
     @Override
     public CtClass transform(final CtClass clazz) throws CannotCompileException {
-        clazz.instrument(new PowerMockExpressionEditor(getStrategy(), clazz, mockGetawayClass));
+        clazz.instrument(new PowerMockExpressionEditor(getStrategy(), clazz, mockGetawayClass, callSiteRegistry, mockTargets));
         return clazz;
     }
 }
@@ -31,6 +31,20 @@ public class JavassistMockTransformerChainFactory implements MockTransformerChai
     
     private static final TransformStrategy DEFAULT = TransformStrategy.CLASSLOADER;
     
+    private final boolean fuseTransformers;
+    
+    public JavassistMockTransformerChainFactory() {
+        this(false);
+    }
+    
+    /**
+     * @param fuseTransformers {@code true} if the default chain should consist of one {@link FusedMockTransformer}
+     *                         instead of a transformer for each change.
+     */
+    public JavassistMockTransformerChainFactory(final boolean fuseTransformers) {
+        this.fuseTransformers = fuseTransformers;
+    }
+    
     @Override
     public MockTransformerChain createDefaultChain() {
         return createDefaultChain(DEFAULT);
@@ -56,6 +70,10 @@ public class JavassistMockTransformerChainFactory implements MockTransformerChai
     }
     
     private MockTransformerChainBuilder createDefaultChainBuilder(final TransformStrategy transformStrategy) {
+        if (fuseTransformers) {
+            return DefaultMockTransformerChain.newBuilder()
+                                              .append(new FusedMockTransformer(transformStrategy));
+        }
         return DefaultMockTransformerChain.newBuilder()
                                           .append(new ClassFinalModifierMockTransformer(transformStrategy))
                                           .append(new ConstructorsMockTransformer(transformStrategy))
@@ -23,23 +23,41 @@ import javassist.CtClass;
 import javassist.CtMethod;
 import javassist.Modifier;
 import javassist.NotFoundException;
+import javassist.bytecode.ClassFile;
+import org.powermock.core.CallSiteRegistry;
 import org.powermock.core.MockGateway;
+import org.powermock.core.transformers.CallSiteAwareTransformer;
 import org.powermock.core.transformers.TransformStrategy;
+import org.powermock.core.transformers.javassist.support.GatewayCallBytecode;
 
 import static org.powermock.core.transformers.javassist.support.TransformerHelper.VOID;
 import static org.powermock.core.transformers.javassist.support.TransformerHelper.getCorrectReturnValueType;
 import static org.powermock.core.transformers.javassist.support.TransformerHelper.getReturnTypeAsString;
 import static org.powermock.core.transformers.javassist.support.TransformerHelper.shouldSkipMethod;
 
-abstract class MethodMockTransformer extends AbstractJavaAssistMockTransformer {
+abstract class MethodMockTransformer extends AbstractJavaAssistMockTransformer implements CallSiteAwareTransformer {
     
     private Class<?> mockGetawayClass;
+    private CallSiteRegistry callSiteRegistry;
     
     MethodMockTransformer(final TransformStrategy strategy) {
         super(strategy);
         this.mockGetawayClass = MockGateway.class;
     }
     
+    @Override
+    public void setCallSiteRegistry(final CallSiteRegistry callSiteRegistry) {
+        this.callSiteRegistry = callSiteRegistry;
+    }
+    
+    Class<?> getMockGetawayClass() {
+        return mockGetawayClass;
+    }
+    
+    CallSiteRegistry getCallSiteRegistry() {
+        return callSiteRegistry;
+    }
+    
     void modifyMethod(final CtMethod method) throws NotFoundException, CannotCompileException {
         
         if (!shouldSkipMethod(method)) {
@@ -49,7 +67,9 @@ abstract class MethodMockTransformer extends AbstractJavaAssistMockTransformer {
             final CtClass returnTypeAsCtClass = method.getReturnType();
             final String returnTypeAsString = getReturnTypeAsString(method);
             
-            if (Modifier.isNative(method.getModifiers())) {
+            if (GatewayCallBytecode.canEmit(method)) {
+                emitMethodCall(method, returnTypeAsString);
+            } else if (Modifier.isNative(method.getModifiers())) {
                 modifyNativeMethod(method, returnTypeAsCtClass, returnTypeAsString);
             } else {
                 modifyMethod(method, returnTypeAsCtClass, returnTypeAsString);
@@ -58,6 +78,18 @@ abstract class MethodMockTransformer extends AbstractJavaAssistMockTransformer {
     }
     
     
+    /**
+     * Emits the call of the mock gateway from byte code templates, so that no source has to be compiled.
+     */
+    private void emitMethodCall(final CtMethod method, final String returnTypeAsString) throws NotFoundException, CannotCompileException {
+        final Integer callSiteId = useCallSiteIds() ? registerCallSite(method, returnTypeAsString) : null;
+        if (Modifier.isNative(method.getModifiers())) {
+            GatewayCallBytecode.setNativeBody(method, mockGetawayClass, callSiteId, returnTypeAsString);
+        } else {
+            GatewayCallBytecode.insertBefore(method, mockGetawayClass, callSiteId, returnTypeAsString);
+        }
+    }
+    
     private void modifyNativeMethod(CtMethod method, CtClass returnTypeAsCtClass,
                                     String returnTypeAsString) throws CannotCompileException {
         String methodName = method.getName();
@@ -69,19 +101,12 @@ abstract class MethodMockTransformer extends AbstractJavaAssistMockTransformer {
         
         String classOrInstance = classOrInstance(method);
         method.setModifiers(method.getModifiers() - Modifier.NATIVE);
-        String code = "Object value = "
-                          + mockGetawayClass.getName()
-                          + ".methodCall("
-                          + classOrInstance
-                          + ", \""
-                          + method.getName()
-                          + "\", $args, $sig, \""
-                          + returnTypeAsString
-                          + "\");"
-                          + "if (value != "
-                          + MockGateway.class.getName() + ".PROCEED) "
-                          + "return "
-                          + returnValue + "; "
+        String code = guard("Object value = "
+                                + methodCall(method, classOrInstance, returnTypeAsString)
+                                + "if (value != "
+                                + MockGateway.class.getName() + ".PROCEED) "
+                                + "return "
+                                + returnValue + "; ", method)
                           + "throw new java.lang.UnsupportedOperationException(\"" + methodName + " is native\");";
         method.setBody("{" + code + "}");
     }
@@ -89,11 +114,42 @@ abstract class MethodMockTransformer extends AbstractJavaAssistMockTransformer {
     private String classOrInstance(CtMethod method) {
         String classOrInstance = "this";
         if (Modifier.isStatic(method.getModifiers())) {
-            classOrInstance = "$class";
+            classOrInstance = useCallSiteIds() ? classLiteral(method) : "$class";
         }
         return classOrInstance;
     }
     
+    private String methodCall(CtMethod method, String classOrInstance, String returnTypeAsString) {
+        if (useCallSiteIds()) {
+            final int callSiteId = registerCallSite(method, returnTypeAsString);
+            return mockGetawayClass.getName()
+                       + ".methodCall("
+                       + classOrInstance + ", "
+                       + classLiteral(method) + ", "
+                       + callSiteId
+                       + ", $args);";
+        }
+        return mockGetawayClass.getName()
+                   + ".methodCall("
+                   + classOrInstance + ", \""
+                   + method.getName()
+                   + "\", $args, $sig, \""
+                   + returnTypeAsString
+                   + "\");";
+    }
+    
+    private int registerCallSite(final CtMethod method, final String returnTypeAsString) {
+        return callSiteRegistry.register(method.getName(), method.getSignature(), returnTypeAsString);
+    }
+    
+    private boolean useCallSiteIds() {
+        return callSiteRegistry != null && getStrategy() == TransformStrategy.CLASSLOADER;
+    }
+    
+    private static String classLiteral(CtMethod method) {
+        return method.getDeclaringClass().getName() + ".class";
+    }
+    
     private void modifyMethod(CtMethod method, CtClass returnTypeAsCtClass,
                               String returnTypeAsString) throws CannotCompileException {
         final String returnValue = getCorrectReturnValueType(returnTypeAsCtClass);
@@ -101,17 +157,25 @@ abstract class MethodMockTransformer extends AbstractJavaAssistMockTransformer {
         String classOrInstance = classOrInstance(method);
         
         String code = "Object value = "
-                          + mockGetawayClass.getName()
-                          + ".methodCall("
-                          + classOrInstance + ", \""
-                          + method.getName()
-                          + "\", $args, $sig, \""
-                          + returnTypeAsString
-                          + "\");"
+                          + methodCall(method, classOrInstance, returnTypeAsString)
                           + "if (value != " + MockGateway.class.getName() + ".PROCEED) " + "return "
                           + returnValue + "; ";
         
-        method.insertBefore("{ " + code + "}");
+        method.insertBefore("{ " + guard(code, method) + "}");
+    }
+    
+    /**
+     * Wrap the {@code code} calling the gateway into a check whether anything is registered
+     * for the declaring class, so that the arguments are boxed and the gateway is called only
+     * when the call may actually be intercepted. Class files older than Java 5 cannot load a
+     * class literal with a single instruction, the check is skipped for them.
+     */
+    private String guard(String code, CtMethod method) {
+        final CtClass declaringClass = method.getDeclaringClass();
+        if (declaringClass.getClassFile2().getMajorVersion() < ClassFile.JAVA_5) {
+            return code;
+        }
+        return "if (" + mockGetawayClass.getName() + ".isArmed(" + classLiteral(method) + ")) { " + code + "} ";
     }
     
 }
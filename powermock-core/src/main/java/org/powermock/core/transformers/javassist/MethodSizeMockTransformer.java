@@ -47,19 +47,23 @@ public class MethodSizeMockTransformer extends MethodMockTransformer {
     public CtClass transform(final CtClass clazz) throws CannotCompileException, NotFoundException {
         for (CtMethod method : clazz.getDeclaredMethods()) {
             if (isMethodSizeExceeded(method)) {
-                String code = "{throw new IllegalAccessException(\"" +
-                                  "Method was too large and after instrumentation exceeded JVM limit. " +
-                                  "PowerMock modified the method to allow JVM to load the class. " +
-                                  "You can use PowerMock API to suppress or mock this method behaviour." +
-                                  "\");}";
-                method.setBody(code);
+                replaceBody(method);
                 modifyMethod(method);
             }
         }
         return clazz;
     }
     
-    private boolean isMethodSizeExceeded(CtMethod method) {
+    static void replaceBody(CtMethod method) throws CannotCompileException {
+        String code = "{throw new IllegalAccessException(\"" +
+                          "Method was too large and after instrumentation exceeded JVM limit. " +
+                          "PowerMock modified the method to allow JVM to load the class. " +
+                          "You can use PowerMock API to suppress or mock this method behaviour." +
+                          "\");}";
+        method.setBody(code);
+    }
+    
+    static boolean isMethodSizeExceeded(CtMethod method) {
         CodeAttribute codeAttribute = method.getMethodInfo().getCodeAttribute();
         return codeAttribute != null && codeAttribute.getCodeLength() >= MAX_METHOD_CODE_LENGTH_LIMIT;
     }
@@ -38,14 +38,14 @@ public class PackagePrivateClassesMockTransformer extends AbstractJavaAssistMock
     
     @Override
     public CtClass transform(final CtClass clazz) {
-        final String name = clazz.getName();
         if (getStrategy() != INST_REDEFINE) {
-            transform(clazz, name);
+            makePublic(clazz);
         }
         return clazz;
     }
     
-    private static void transform(final CtClass clazz, final String name) {
+    static void makePublic(final CtClass clazz) {
+        final String name = clazz.getName();
         try {
             final int modifiers = clazz.getModifiers();
             if (Modifier.isPackage(modifiers)) {
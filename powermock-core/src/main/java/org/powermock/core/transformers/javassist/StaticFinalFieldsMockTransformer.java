@@ -42,13 +42,17 @@ public class StaticFinalFieldsMockTransformer extends AbstractJavaAssistMockTran
         
         if (getStrategy() != INST_REDEFINE) {
             for (CtField f : clazz.getDeclaredFields()) {
-                final int modifiers = f.getModifiers();
-                if (Modifier.isFinal(modifiers) && Modifier.isStatic(modifiers)) {
-                    f.setModifiers(modifiers ^ Modifier.FINAL);
-                }
+                removeFinalModifier(f);
             }
         }
         return clazz;
     }
     
+    static void removeFinalModifier(final CtField field) {
+        final int modifiers = field.getModifiers();
+        if (Modifier.isFinal(modifiers) && Modifier.isStatic(modifiers)) {
+            field.setModifiers(modifiers ^ Modifier.FINAL);
+        }
+    }
+    
 }
@@ -34,12 +34,18 @@ public class SuppressStaticInitializerMockTransformer extends AbstractJavaAssist
     
     @Override
     public CtClass transform(final CtClass clazz) throws CannotCompileException {
-        if (getStrategy() == CLASSLOADER) {
-            if (MockGateway.staticConstructorCall(clazz.getName()) != MockGateway.PROCEED) {
-                CtConstructor classInitializer = clazz.makeClassInitializer();
-                classInitializer.setBody("{}");
-            }
+        if (shouldSuppress(getStrategy(), clazz)) {
+            suppress(clazz);
         }
         return clazz;
     }
+    
+    static boolean shouldSuppress(final TransformStrategy strategy, final CtClass clazz) {
+        return strategy == CLASSLOADER && MockGateway.staticConstructorCall(clazz.getName()) != MockGateway.PROCEED;
+    }
+    
+    static void suppress(final CtClass clazz) throws CannotCompileException {
+        CtConstructor classInitializer = clazz.makeClassInitializer();
+        classInitializer.setBody("{}");
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.javassist.support;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.Modifier;
+import javassist.NotFoundException;
+import javassist.bytecode.DuplicateMemberException;
+import org.powermock.core.IndicateReloadClass;
+
+/**
+ * The defer constructor {@code public C(IndicateReloadClass)} is called instead of a constructor of the super class
+ * when the constructor call is suppressed. It calls the defer constructor of its own super class, or the default
+ * constructor of {@code java.lang.Object}.
+ * <p>
+ * System classes are parsed by a class pool which is shared by all class loaders and used by several threads, so they
+ * are never modified. The defer constructor of a subclass of a system class calls the default constructor of the
+ * system class instead.
+ * </p>
+ */
+public class DeferConstructor {
+    
+    /**
+     * Create a defer constructor in the class and in all its super classes if they don't already have one.
+     *
+     * @param clazz The class which gets a new defer constructor.
+     * @return {@code false} if the defer constructor cannot be added, because a system class in the class hierarchy
+     * has no default constructor which the defer constructor can call.
+     * @throws CannotCompileException If an unexpected compilation error occurs.
+     */
+    public static boolean add(final CtClass clazz) throws CannotCompileException {
+        final CtClass superClass = getSuperclass(clazz);
+        
+        ClassPool classPool = clazz.getClassPool();
+        /*
+         * To make a unique defer constructor we create a new constructor
+         * with one argument (IndicateReloadClass). So we get this class a
+         * Javassist class below.
+         */
+        final CtClass constructorType;
+        try {
+            constructorType = classPool.get(IndicateReloadClass.class.getName());
+        } catch (NotFoundException e) {
+            throw new IllegalArgumentException("Internal error: failed to get the " + IndicateReloadClass.class.getName()
+                                                   + " when added defer constructor.");
+        }
+        
+        final String body;
+        if (callsDefaultConstructor(clazz)) {
+            if (!hasDefaultConstructor(superClass)) {
+                return false;
+            }
+            body = "{super();}";
+        } else {
+            if (!add(superClass)) {
+                return false;
+            }
+            body = "{super($$);}";
+        }
+        
+        clazz.defrost();
+        try {
+            clazz.addConstructor(CtNewConstructor.make(new CtClass[]{constructorType}, new CtClass[0], body, clazz));
+        } catch (DuplicateMemberException e) {
+            // OK, the constructor has already been added.
+        }
+        return true;
+    }
+    
+    /**
+     * @param clazz The class which has a defer constructor.
+     * @return {@code true} if the defer constructor of the class calls the default constructor of the super class,
+     * because the super class is {@code java.lang.Object} or another system class.
+     */
+    public static boolean callsDefaultConstructor(final CtClass clazz) {
+        final CtClass superClass = getSuperclass(clazz);
+        return superClass.getName().equals(Object.class.getName()) || superClass.getClassPool() != clazz.getClassPool();
+    }
+    
+    private static boolean hasDefaultConstructor(final CtClass clazz) {
+        try {
+            final int modifiers = clazz.getDeclaredConstructor(new CtClass[0]).getModifiers();
+            return Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers);
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+    
+    private static CtClass getSuperclass(final CtClass clazz) {
+        try {
+            return clazz.getSuperclass();
+        } catch (NotFoundException e1) {
+            throw new IllegalArgumentException("Internal error: Failed to get superclass for " + clazz.getName() + " when about to create a new default constructor.");
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.powermock.core.transformers.javassist.support;
+
+import javassist.CannotCompileException;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.CtPrimitiveType;
+import javassist.Modifier;
+import javassist.NotFoundException;
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.CodeAttribute;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+import org.powermock.core.MockGateway;
+
+/**
+ * Emits the call of the mock gateway at the beginning of a method as byte code instead of compiling it from Java
+ * source. The code is the same for every method, only the constant pool entries, the loading and boxing of the
+ * arguments and the conversion of the returned value depend on the method:
+ * <pre>
+ * if (MockGateway.isArmed(DeclaringClass.class)) {
+ *     Object value = MockGateway.methodCall(this or DeclaringClass.class, ...);
+ *     if (value != MockGateway.PROCEED) return (ReturnType) value;
+ * }
+ * </pre>
+ * Class files older than Java 5 cannot load a class literal with a single instruction, the calls are compiled from
+ * Java source for them.
+ */
+public class GatewayCallBytecode {
+
+    private static final String OBJECT = "java.lang.Object";
+    private static final String CLASS = "java.lang.Class";
+    private static final String NAME_METHOD_CALL = "[Ljava/lang/Object;[Ljava/lang/Class;Ljava/lang/String;)Ljava/lang/Object;";
+    private static final String INSTANCE_METHOD_CALL = "(Ljava/lang/Object;Ljava/lang/String;" + NAME_METHOD_CALL;
+    private static final String STATIC_METHOD_CALL = "(Ljava/lang/Class;Ljava/lang/String;" + NAME_METHOD_CALL;
+    private static final String CALL_SITE_METHOD_CALL = "(Ljava/lang/Object;Ljava/lang/Class;I[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private final CtMethod method;
+    private final String mockGetawayClass;
+    private final ConstPool constPool;
+    private final Bytecode code;
+
+    private GatewayCallBytecode(final CtMethod method, final Class<?> mockGetawayClass) {
+        this.method = method;
+        this.mockGetawayClass = mockGetawayClass.getName();
+        this.constPool = method.getMethodInfo().getConstPool();
+        this.code = new Bytecode(constPool);
+    }
+
+    public static boolean canEmit(final CtMethod method) {
+        return method.getDeclaringClass().getClassFile2().getMajorVersion() >= ClassFile.JAVA_5;
+    }
+
+    /**
+     * Inserts the call of the mock gateway before the code of the method.
+     *
+     * @param callSiteId         the id of the method in the {@link org.powermock.core.CallSiteRegistry}, or
+     *                           {@code null} if the method is identified by its name and signature.
+     * @param returnTypeAsString the name of the return type which is passed to the mock gateway.
+     */
+    public static void insertBefore(final CtMethod method, final Class<?> mockGetawayClass, final Integer callSiteId,
+                                    final String returnTypeAsString) throws NotFoundException, CannotCompileException {
+        final GatewayCallBytecode bytecode = new GatewayCallBytecode(method, mockGetawayClass);
+        bytecode.addGatewayCall(callSiteId, returnTypeAsString);
+
+        final MethodInfo methodInfo = method.getMethodInfo();
+        final CodeAttribute codeAttribute = methodInfo.getCodeAttribute();
+        try {
+            codeAttribute.iterator().insertEx(bytecode.code.get());
+            codeAttribute.computeMaxStack();
+            rebuildStackMap(method);
+        } catch (BadBytecode e) {
+            throw new CannotCompileException(e);
+        }
+    }
+
+    /**
+     * Replaces the native method by a method which calls the mock gateway and throws an
+     * {@link UnsupportedOperationException} if the call is not intercepted.
+     *
+     * @see #insertBefore(CtMethod, Class, Integer, String)
+     */
+    public static void setNativeBody(final CtMethod method, final Class<?> mockGetawayClass, final Integer callSiteId,
+                                     final String returnTypeAsString) throws NotFoundException, CannotCompileException {
+        final GatewayCallBytecode bytecode = new GatewayCallBytecode(method, mockGetawayClass);
+        bytecode.addGatewayCall(callSiteId, returnTypeAsString);
+        bytecode.addThrowUnsupportedOperation();
+
+        method.setModifiers(method.getModifiers() & ~Modifier.NATIVE);
+        final MethodInfo methodInfo = method.getMethodInfo();
+        final CodeAttribute codeAttribute = bytecode.code.toCodeAttribute();
+        codeAttribute.setMaxLocals(bytecode.getParametersSize());
+        methodInfo.setCodeAttribute(codeAttribute);
+        try {
+            codeAttribute.computeMaxStack();
+            rebuildStackMap(method);
+        } catch (BadBytecode e) {
+            throw new CannotCompileException(e);
+        }
+    }
+
+    private static void rebuildStackMap(final CtMethod method) throws BadBytecode {
+        final CtClass declaringClass = method.getDeclaringClass();
+        method.getMethodInfo().rebuildStackMapIf6(declaringClass.getClassPool(), declaringClass.getClassFile2());
+    }
+
+    private void addGatewayCall(final Integer callSiteId, final String returnTypeAsString) throws NotFoundException {
+        final CtClass[] parameterTypes = method.getParameterTypes();
+        final CtClass returnType = method.getReturnType();
+        final int declaringClass = constPool.addClassInfo(method.getDeclaringClass());
+
+        code.addLdc(declaringClass);
+        code.addInvokestatic(mockGetawayClass, "isArmed", "(Ljava/lang/Class;)Z");
+        final int notArmed = addBranch(Opcode.IFEQ);
+
+        if (isStatic()) {
+            code.addLdc(declaringClass);
+        } else {
+            code.addAload(0);
+        }
+        if (callSiteId == null) {
+            code.addLdc(method.getName());
+            addArguments(parameterTypes);
+            addParameterTypes(parameterTypes);
+            code.addLdc(returnTypeAsString);
+            code.addInvokestatic(mockGetawayClass, "methodCall", isStatic() ? STATIC_METHOD_CALL : INSTANCE_METHOD_CALL);
+        } else {
+            code.addLdc(declaringClass);
+            code.addIconst(callSiteId);
+            addArguments(parameterTypes);
+            code.addInvokestatic(mockGetawayClass, "methodCall", CALL_SITE_METHOD_CALL);
+        }
+
+        code.addOpcode(Opcode.DUP);
+        code.addGetstatic(MockGateway.class.getName(), "PROCEED", "Ljava/lang/Object;");
+        final int proceed = addBranch(Opcode.IF_ACMPEQ);
+        if (returnType == CtClass.voidType) {
+            code.addOpcode(Opcode.POP);
+            code.addReturn(null);
+        } else {
+            addUnboxOrCast(returnType);
+            code.addReturn(returnType);
+        }
+
+        setBranchTarget(proceed);
+        code.addOpcode(Opcode.POP);
+        setBranchTarget(notArmed);
+    }
+
+    private void addThrowUnsupportedOperation() {
+        final String exception = UnsupportedOperationException.class.getName();
+        code.addNew(exception);
+        code.addOpcode(Opcode.DUP);
+        code.addLdc(method.getName() + " is native");
+        code.addInvokespecial(exception, MethodInfo.nameInit, "(Ljava/lang/String;)V");
+        code.addOpcode(Opcode.ATHROW);
+    }
+
+    /**
+     * Pushes an {@code Object[]} with the boxed values of the arguments of the method.
+     */
+    private void addArguments(final CtClass[] parameterTypes) {
+        code.addIconst(parameterTypes.length);
+        code.addAnewarray(OBJECT);
+        int local = isStatic() ? 0 : 1;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            final CtClass type = parameterTypes[i];
+            code.addOpcode(Opcode.DUP);
+            code.addIconst(i);
+            local += code.addLoad(local, type);
+            if (type.isPrimitive()) {
+                final CtPrimitiveType primitiveType = (CtPrimitiveType) type;
+                final String wrapper = primitiveType.getWrapperName();
+                code.addInvokestatic(wrapper, "valueOf",
+                                     "(" + primitiveType.getDescriptor() + ")L" + wrapper.replace('.', '/') + ";");
+            }
+            code.addOpcode(Opcode.AASTORE);
+        }
+    }
+
+    /**
+     * Pushes a {@code Class[]} with the parameter types of the method.
+     */
+    private void addParameterTypes(final CtClass[] parameterTypes) {
+        code.addIconst(parameterTypes.length);
+        code.addAnewarray(CLASS);
+        for (int i = 0; i < parameterTypes.length; i++) {
+            final CtClass type = parameterTypes[i];
+            code.addOpcode(Opcode.DUP);
+            code.addIconst(i);
+            if (type.isPrimitive()) {
+                code.addGetstatic(((CtPrimitiveType) type).getWrapperName(), "TYPE", "Ljava/lang/Class;");
+            } else {
+                code.addLdc(constPool.addClassInfo(type));
+            }
+            code.addOpcode(Opcode.AASTORE);
+        }
+    }
+
+    /**
+     * Converts the {@code java.lang.Object} on the stack to the return type in the same way as the code returned
+     * by {@link TransformerHelper#getCorrectReturnValueType(CtClass)}.
+     */
+    private void addUnboxOrCast(final CtClass returnType) {
+        if (returnType == CtClass.charType) {
+            code.addCheckcast("java.lang.Character");
+            code.addInvokevirtual("java.lang.Character", "charValue", "()C");
+        } else if (returnType == CtClass.booleanType) {
+            code.addCheckcast("java.lang.Boolean");
+            code.addInvokevirtual("java.lang.Boolean", "booleanValue", "()Z");
+        } else if (returnType.isPrimitive()) {
+            final CtPrimitiveType primitiveType = (CtPrimitiveType) returnType;
+            code.addCheckcast("java.lang.Number");
+            code.addInvokevirtual("java.lang.Number", primitiveType.getName() + "Value",
+                                  "()" + primitiveType.getDescriptor());
+        } else if (!OBJECT.equals(returnType.getName())) {
+            code.addCheckcast(returnType);
+        }
+    }
+
+    private int addBranch(final int opcode) {
+        code.addOpcode(opcode);
+        final int offset = code.currentPc();
+        code.addIndex(0);
+        return offset;
+    }
+
+    private void setBranchTarget(final int offset) {
+        // the offset of a branch is relative to its opcode, which precedes the two bytes of the offset
+        code.write16bit(offset, code.currentPc() - offset + 1);
+    }
+
+    private int getParametersSize() throws NotFoundException {
+        int size = isStatic() ? 0 : 1;
+        for (CtClass type : method.getParameterTypes()) {
+            size += type == CtClass.longType || type == CtClass.doubleType ? 2 : 1;
+        }
+        return size;
+    }
+
+    private boolean isStatic() {
+        return Modifier.isStatic(method.getModifiers());
+    }
+}
@@ -19,23 +19,24 @@
 package org.powermock.core.transformers.javassist.support;
 
 import javassist.CannotCompileException;
-import javassist.ClassPool;
 import javassist.CtClass;
 import javassist.CtField;
 import javassist.CtMethod;
-import javassist.CtNewConstructor;
+import javassist.Modifier;
 import javassist.NotFoundException;
-import javassist.bytecode.DuplicateMemberException;
 import javassist.bytecode.FieldInfo;
 import javassist.expr.ConstructorCall;
 import javassist.expr.ExprEditor;
 import javassist.expr.FieldAccess;
 import javassist.expr.MethodCall;
 import javassist.expr.NewExpr;
+import org.powermock.core.CallSiteRegistry;
 import org.powermock.core.IndicateReloadClass;
 import org.powermock.core.MockGateway;
+import org.powermock.core.transformers.MockTargets;
 import org.powermock.core.transformers.TransformStrategy;
 
+import static org.powermock.core.transformers.TransformStrategy.CLASSLOADER;
 import static org.powermock.core.transformers.TransformStrategy.INST_REDEFINE;
 import static org.powermock.core.transformers.javassist.support.TransformerHelper.VOID;
 import static org.powermock.core.transformers.javassist.support.TransformerHelper.getCorrectReturnValueType;
@@ -47,15 +48,36 @@ public final class PowerMockExpressionEditor extends ExprEditor {
     private final CtClass clazz;
     private final Class<?> mockGetawayClass;
     private final TransformStrategy strategy;
+    private final CallSiteRegistry callSiteRegistry;
+    private final MockTargets mockTargets;
     
     public PowerMockExpressionEditor(final TransformStrategy strategy, final CtClass clazz, final Class<?> mockGetawayClass) {
+        this(strategy, clazz, mockGetawayClass, null);
+    }
+    
+    public PowerMockExpressionEditor(final TransformStrategy strategy, final CtClass clazz, final Class<?> mockGetawayClass,
+                                     final CallSiteRegistry callSiteRegistry) {
+        this(strategy, clazz, mockGetawayClass, callSiteRegistry, null);
+    }
+    
+    /**
+     * @param mockTargets the classes whose call sites are instrumented, or {@code null} if all call sites are
+     *                    instrumented.
+     */
+    public PowerMockExpressionEditor(final TransformStrategy strategy, final CtClass clazz, final Class<?> mockGetawayClass,
+                                     final CallSiteRegistry callSiteRegistry, final MockTargets mockTargets) {
         this.strategy = strategy;
         this.clazz = clazz;
         this.mockGetawayClass = mockGetawayClass;
+        this.callSiteRegistry = strategy == CLASSLOADER ? callSiteRegistry : null;
+        this.mockTargets = strategy == CLASSLOADER ? mockTargets : null;
     }
     
     @Override
     public void edit(NewExpr e) throws CannotCompileException {
+        if (!isMockTarget(e.getClassName())) {
+            return;
+        }
         String code = "Object instance =" +
                           MockGateway.class.getName() +
                           ".newInstanceCall($type,$args,$sig);" +
@@ -75,6 +97,9 @@ public final class PowerMockExpressionEditor extends ExprEditor {
     
     @Override
     public void edit(MethodCall m) throws CannotCompileException {
+        if (!isMockTarget(m.getClassName())) {
+            return;
+        }
         try {
             final CtMethod method = m.getMethod();
             final CtClass declaringClass = method.getDeclaringClass();
@@ -82,15 +107,33 @@ public final class PowerMockExpressionEditor extends ExprEditor {
             if (declaringClass != null) {
                 if (TransformerHelper.shouldTreatAsSystemClassCall(declaringClass)) {
                     StringBuilder code = new StringBuilder();
-                    code.append("{Object classOrInstance = null; if($0!=null){classOrInstance = $0;} else { classOrInstance = $class;}");
-                    code.append("Object value =  ")
-                        .append(MockGateway.class.getName())
-                        .append(".methodCall(")
-                        .append("classOrInstance,\"")
-                        .append(m.getMethodName())
-                        .append("\",$args, $sig,\"")
-                        .append(getReturnTypeAsString(method))
-                        .append("\");");
+                    if (callSiteRegistry == null) {
+                        code.append("{Object classOrInstance = null; if($0!=null){classOrInstance = $0;} else { classOrInstance = $class;}");
+                        code.append("Object value =  ")
+                            .append(MockGateway.class.getName())
+                            .append(".methodCall(")
+                            .append("classOrInstance,\"")
+                            .append(m.getMethodName())
+                            .append("\",$args, $sig,\"")
+                            .append(getReturnTypeAsString(method))
+                            .append("\");");
+                    } else {
+                        final int callSiteId = callSiteRegistry.register(m.getMethodName(), m.getSignature(), getReturnTypeAsString(method));
+                        // a class literal of a non-public system class could not be resolved from the instrumented class
+                        final String declaringClassLiteral = Modifier.isPublic(declaringClass.getModifiers())
+                                                                 ? declaringClass.getName() + ".class" : "$class";
+                        code.append("{Object classOrInstance = null; if($0!=null){classOrInstance = $0;} else { classOrInstance = ")
+                            .append(declaringClassLiteral)
+                            .append(";}");
+                        code.append("Object value =  ")
+                            .append(MockGateway.class.getName())
+                            .append(".methodCall(")
+                            .append("classOrInstance,")
+                            .append(clazz.getName())
+                            .append(".class,")
+                            .append(callSiteId)
+                            .append(",$args);");
+                    }
                     code.append("if(value == ").append(MockGateway.class.getName()).append(".PROCEED) {");
                     code.append("	$_ = $proceed($$);");
                     code.append("} else {");
@@ -124,14 +167,7 @@ public final class PowerMockExpressionEditor extends ExprEditor {
          * ConstructorCall. This means that we need to handle
          * "suppressConstructorCode" both here and in NewExpr.
          */
-        if (strategy != INST_REDEFINE && !c.getClassName().startsWith("java.lang")) {
-            final CtClass superclass;
-            try {
-                superclass = clazz.getSuperclass();
-            } catch (NotFoundException e) {
-                throw new RuntimeException(e);
-            }
-
+        if (strategy != INST_REDEFINE && !c.getClassName().startsWith("java.lang") && isMockTarget(c.getClassName())) {
             /*
              * Create a default constructor in the super class if it doesn't
              * exist. This is needed because if the code in the current
@@ -139,7 +175,9 @@ public final class PowerMockExpressionEditor extends ExprEditor {
              * moment of time) the parent class must have a default
              * constructor that we can delegate to.
              */
-            addNewDeferConstructor(clazz);
+            if (!DeferConstructor.add(clazz)) {
+                return;
+            }
             final StringBuilder code = new StringBuilder();
             code.append("{Object value =")
                 .append(mockGetawayClass.getName())
@@ -149,7 +187,7 @@ public final class PowerMockExpressionEditor extends ExprEditor {
             /*
              * TODO Suppress and lazy inject field (when this feature is ready).
              */
-            if (superclass.getName().equals(Object.class.getName())) {
+            if (DeferConstructor.callsDefaultConstructor(clazz)) {
                 code.append(" super();");
             } else {
                 code.append(" super((").append(IndicateReloadClass.class.getName()).append(") null);");
@@ -163,7 +201,7 @@ public final class PowerMockExpressionEditor extends ExprEditor {
     
     @Override
     public void edit(FieldAccess f) throws CannotCompileException {
-        if (f.isReader()) {
+        if (f.isReader() && isMockTarget(f.getClassName())) {
             CtClass returnTypeAsCtClass;
             FieldInfo fieldInfo;
             
@@ -183,7 +221,11 @@ public final class PowerMockExpressionEditor extends ExprEditor {
             }
             
             if (isNotSyntheticField(fieldInfo)) {
-                String code = "{Object value =  " +
+                // $class and $type are looked up by name, so the gateway is called only when a field is suppressed
+                String code = "{if(!" + MockGateway.class.getName() + ".hasSuppressedFields()) {" +
+                                  "	$_ = $proceed($$);" +
+                                  "} else {" +
+                                  "Object value =  " +
                                   MockGateway.class.getName() +
                                   ".fieldCall(" +
                                   "$0,$class,\"" +
@@ -193,57 +235,13 @@ public final class PowerMockExpressionEditor extends ExprEditor {
                                   "	$_ = $proceed($$);" +
                                   "} else {" +
                                   "	$_ = " + getCorrectReturnValueType(returnTypeAsCtClass) + ";" +
-                                  "}}";
+                                  "}}}";
                 f.replace(code);
             }
         }
     }
     
-    /**
-     * Create a defer constructor in the class which will be called when the
-     * constructor is suppressed.
-     *
-     * @param clazz The class whose super constructor will get a new defer
-     *              constructor if it doesn't already have one.
-     * @throws CannotCompileException If an unexpected compilation error occurs.
-     */
-    private void addNewDeferConstructor(final CtClass clazz) throws CannotCompileException {
-        final CtClass superClass;
-        try {
-            superClass = clazz.getSuperclass();
-        } catch (NotFoundException e1) {
-            throw new IllegalArgumentException("Internal error: Failed to get superclass for " + clazz.getName() + " when about to create a new default constructor.");
-        }
-        
-        ClassPool classPool = clazz.getClassPool();
-        /*
-         * To make a unique defer constructor we create a new constructor
-         * with one argument (IndicateReloadClass). So we get this class a
-         * Javassist class below.
-         */
-        final CtClass constructorType;
-        try {
-            constructorType = classPool.get(IndicateReloadClass.class.getName());
-        } catch (NotFoundException e) {
-            throw new IllegalArgumentException("Internal error: failed to get the " + IndicateReloadClass.class.getName()
-                                                   + " when added defer constructor.");
-        }
-        clazz.defrost();
-        if (superClass.getName().equals(Object.class.getName())) {
-            try {
-                clazz.addConstructor(CtNewConstructor.make(new CtClass[]{constructorType}, new CtClass[0], "{super();}", clazz));
-            } catch (DuplicateMemberException e) {
-                // OK, the constructor has already been added.
-            }
-        } else {
-            addNewDeferConstructor(superClass);
-            try {
-                clazz.addConstructor(CtNewConstructor.make(new CtClass[]{constructorType}, new CtClass[0], "{super($$);}", clazz));
-            } catch (DuplicateMemberException e) {
-                // OK, the constructor has already been added.
-            }
-        }
+    private boolean isMockTarget(final String className) {
+        return mockTargets == null || mockTargets.contains(className);
     }
-    
-    
 }
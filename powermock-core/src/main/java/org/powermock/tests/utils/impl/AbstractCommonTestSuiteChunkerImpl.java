@@ -128,16 +128,23 @@ public abstract class AbstractCommonTestSuiteChunkerImpl implements TestSuiteChu
         return new MockClassLoaderFactory(testClass).createForClass(extraMockTransformer);
     }
     
-    private void putMethodToChunk(TestCaseEntry testCaseEntry, Class<?> testClass, Method method) {
+    private void putMethodToChunk(TestCaseEntry testCaseEntry, final Class<?> testClass, final Method method) {
         if (shouldExecuteTestForMethod(testClass, method)) {
             currentTestIndex++;
             if (hasChunkAnnotation(method)) {
                 LinkedList<Method> methodsInThisChunk = new LinkedList<Method>();
                 methodsInThisChunk.add(method);
                 
-                final ClassLoader mockClassloader = createClassLoaderForMethod(testClass, method);
-                
-                final TestChunkImpl chunk = new TestChunkImpl(mockClassloader, methodsInThisChunk);
+                /*
+                 * The classloader is created only when the chunk is about to be executed, so no classloader is
+                 * created for methods that are filtered out, e.g. when an IDE runs a single test method.
+                 */
+                final TestChunkImpl chunk = new TestChunkImpl(methodsInThisChunk) {
+                    @Override
+                    protected ClassLoader createClassLoader() {
+                        return createClassLoaderForMethod(testClass, method);
+                    }
+                };
                 testCaseEntry.getTestChunks().add(chunk);
                 updatedIndexes();
             } else {
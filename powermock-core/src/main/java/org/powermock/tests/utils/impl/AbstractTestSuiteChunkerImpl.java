@@ -102,14 +102,22 @@ public abstract class AbstractTestSuiteChunkerImpl<T> extends AbstractCommonTest
 
     public final void createTestDelegators(Class<?> testClass, List<TestChunk> chunks) throws Exception {
         for (TestChunk chunk : chunks) {
-            ClassLoader classLoader = chunk.getClassLoader();
-            List<Method> methodsToTest = chunk.getTestMethodsToBeExecutedByThisClassloader();
-            T runnerDelegator = createDelegatorFromClassloader(classLoader, testClass, methodsToTest);
+            T runnerDelegator = createDelegatorForChunk(testClass, chunk);
             delegates.add(runnerDelegator);
         }
         delegatesCreatedForTheseClasses.add(testClass);
     }
 
+    /**
+     * Create the runner delegate for the chunk. Implementations may override the method to postpone creating the
+     * classloader of the chunk until the delegate is executed.
+     */
+    protected T createDelegatorForChunk(Class<?> testClass, TestChunk chunk) throws Exception {
+        ClassLoader classLoader = chunk.getClassLoader();
+        List<Method> methodsToTest = chunk.getTestMethodsToBeExecutedByThisClassloader();
+        return createDelegatorFromClassloader(classLoader, testClass, methodsToTest);
+    }
+
     protected abstract T createDelegatorFromClassloader(ClassLoader classLoader, Class<?> testClass, final List<Method> methodsToTest)
             throws Exception;
 
@@ -26,7 +26,7 @@ import java.util.List;
  */
 public class TestChunkImpl implements TestChunk {
 
-	private final ClassLoader classLoader;
+	private ClassLoader classLoader;
 	private final List<Method> testMethodsToBeExecutedByThisClassloader;
 
     public TestChunkImpl(ClassLoader classLoader, List<Method> testMethodsToBeExecutedByThisClassloader) {
@@ -34,11 +34,33 @@ public class TestChunkImpl implements TestChunk {
 		this.testMethodsToBeExecutedByThisClassloader = testMethodsToBeExecutedByThisClassloader;
     }
 
+	/**
+	 * Creates a chunk which creates its classloader with {@link #createClassLoader()} the first time the
+	 * classloader is requested, so the classloader is never created for chunks that are not executed.
+	 */
+	protected TestChunkImpl(List<Method> testMethodsToBeExecutedByThisClassloader) {
+		this(null, testMethodsToBeExecutedByThisClassloader);
+	}
+
 	@Override
-	public ClassLoader getClassLoader() {
+	public synchronized ClassLoader getClassLoader() {
+		if (classLoader == null) {
+			classLoader = createClassLoader();
+		}
 		return classLoader;
 	}
 
+	/**
+	 * @return {@code true} if the classloader has already been created for the chunk.
+	 */
+	public synchronized boolean isClassLoaderCreated() {
+		return classLoader != null;
+	}
+
+	protected ClassLoader createClassLoader() {
+		throw new IllegalStateException("Internal error: No classloader was supplied for the test chunk.");
+	}
+
 	@Override
 	public List<Method> getTestMethodsToBeExecutedByThisClassloader() {
 		return testMethodsToBeExecutedByThisClassloader;
@@ -52,7 +74,7 @@ public class TestChunkImpl implements TestChunk {
     @Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		sb.append("Classloader = ").append(classLoader).append("\n");
+		sb.append("Classloader = ").append(isClassLoaderCreated() ? classLoader : "<not created>").append("\n");
 		sb.append("Methods:\n");
 		for (Method method : testMethodsToBeExecutedByThisClassloader) {
 			sb.append("  ").append(method).append("\n");
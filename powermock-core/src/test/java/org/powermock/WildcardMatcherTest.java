@@ -18,6 +18,7 @@ package org.powermock;
 import org.junit.Test;
 import org.powermock.core.WildcardMatcher;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -51,4 +52,59 @@ public class WildcardMatcherTest {
     public void exactMatch() throws Exception {
         assertTrue(WildcardMatcher.matches("org.mytest.java", "org.mytest.java"));
     }
+
+    @Test
+    public void matchesWildcardInTheMiddle() throws Exception {
+        assertTrue(WildcardMatcher.matches("org.mytest.impl.MyClass", "org.*.impl.*"));
+        assertFalse(WildcardMatcher.matches("org.mytest.MyClass", "org.*.impl.*"));
+    }
+
+    @Test
+    public void compiledPatternMatchesSameTextsAsPattern() throws Exception {
+        final String[] patterns = {"org.mytest.java", "org.mytest.*", "*.java", "*mytest*", "org.*.java", "*", "*.ja*a"};
+        final String[] texts = {"org.mytest.java", "org.mytest.javax", "org.other.java", "mytest", "", "org.mytest.jaaava"};
+        for (String pattern : patterns) {
+            final WildcardMatcher matcher = WildcardMatcher.compile(pattern);
+            for (String text : texts) {
+                assertEquals(pattern + " " + text, WildcardMatcher.matches(text, pattern), matcher.matches(text));
+            }
+        }
+    }
+
+    @Test
+    public void emptyPatternMatchesOnlyEmptyText() throws Exception {
+        assertMatches("", "", true);
+        assertMatches("", "org", false);
+    }
+
+    @Test
+    public void doubleWildcardMatchesAnyText() throws Exception {
+        assertMatches("**", "", true);
+        assertMatches("**", "org.mytest.java", true);
+        assertMatches("org.**.java", "org.java", false);
+        assertMatches("org.**.java", "org..java", true);
+    }
+
+    @Test
+    public void trailingWildcardMatchesZeroCharacters() throws Exception {
+        assertMatches("org.mytest.*", "org.mytest.", true);
+        assertMatches("org.mytest.*", "org.mytest", false);
+        assertMatches("*.java*", ".java", true);
+        assertMatches("org.*.java*", "org.mytest.java", true);
+    }
+
+    @Test
+    public void wildcardInTheMiddleBacktracksToLaterOccurrence() throws Exception {
+        assertMatches("*.ja*a", "org.mytest.jaaava", true);
+        assertMatches("*.ja*a", "org.ja.java", true);
+        assertMatches("*.ja*a", "org.java.jab", false);
+        assertMatches("*.ja*a", "org.jav", false);
+        assertMatches("org.*.impl.*", "org.impl.mytest.impl.MyClass", true);
+        assertMatches("org.*.impl.*", "org.mytest.implMyClass", false);
+    }
+
+    private static void assertMatches(String pattern, String text, boolean expected) {
+        assertEquals(pattern + " " + text, expected, WildcardMatcher.matches(text, pattern));
+        assertEquals(pattern + " " + text + " (compiled)", expected, WildcardMatcher.compile(pattern).matches(text));
+    }
 }
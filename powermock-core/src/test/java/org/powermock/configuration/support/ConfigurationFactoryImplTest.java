@@ -93,6 +93,18 @@ public class ConfigurationFactoryImplTest {
                 .isEqualTo(ByteCodeFramework.Javassist);
         }
         
+        @Test
+        public void should_read_integer_and_string_values_from_configuration_file() {
+            PowerMockConfiguration configuration = configurationFactory.create(PowerMockConfiguration.class);
+            
+            assertThat(configuration.getTransformationCacheDirectory())
+                .as("String from configuration is read correctly")
+                .isEqualTo("build/powermock-cache");
+            assertThat(configuration.getTransformationCacheSize())
+                .as("Integer from configuration is read correctly")
+                .isEqualTo(16);
+        }
+        
         @Test
         public void should_return_default_configuration_if_configuration_file_not_exist() {
             configurationFactory = new ConfigurationFactoryImpl(
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.core.CallSiteRegistry.CallSite;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class CallSiteRegistryTest {
+
+    private CallSiteRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new CallSiteRegistry(getClass().getClassLoader());
+    }
+
+    @Test
+    public void should_return_same_id_for_same_method() {
+        final int id = registry.register("method", "(I)V", "");
+
+        assertThat(registry.register("method", "(I)V", "")).isEqualTo(id);
+        assertThat(registry.register("method", "(J)V", "")).isNotEqualTo(id);
+        assertThat(registry.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void should_keep_call_sites_when_table_grows() {
+        for (int i = 0; i < 200; i++) {
+            assertThat(registry.register("method" + i, "()V", "")).isEqualTo(i);
+        }
+
+        assertThat(registry.get(0).getMethodName()).isEqualTo("method0");
+        assertThat(registry.get(199).getMethodName()).isEqualTo("method199");
+    }
+
+    @Test
+    public void should_resolve_parameter_types_from_descriptor() throws Exception {
+        final int id = registry.register("method", "(IJ[Ljava/lang/String;[[ZLorg/powermock/core/CallSiteRegistryTest;)Ljava/lang/Object;",
+                                         "java.lang.Object");
+
+        final CallSite callSite = registry.get(id);
+
+        assertThat(callSite.getReturnTypeAsString()).isEqualTo("java.lang.Object");
+        assertThat(callSite.getParameterTypes(getClass().getClassLoader()))
+            .containsExactly(int.class, long.class, String[].class, boolean[][].class, CallSiteRegistryTest.class);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ConcurrentIdentityHashMapTest {
+
+    private final ConcurrentIdentityHashMap<Object, String> map = new ConcurrentIdentityHashMap<Object, String>();
+
+    @Test
+    public void should_compare_keys_by_identity() {
+        final String key = new String("key");
+        final String equalKey = new String("key");
+
+        map.put(key, "value");
+
+        assertThat(map.get(key)).isEqualTo("value");
+        assertThat(map.get(equalKey)).isNull();
+        assertThat(map.containsKey(equalKey)).isFalse();
+    }
+
+    @Test
+    public void should_not_call_equals_or_hash_code_of_keys() {
+        final Object key = new KeyWithUnsupportedEqualsAndHashCode();
+
+        map.put(key, "value");
+
+        assertThat(map.get(key)).isEqualTo("value");
+        assertThat(map.remove(key)).isEqualTo("value");
+        assertThat(map.size()).isZero();
+    }
+
+    @Test
+    public void should_remove_key_when_null_value_is_put() {
+        final Object key = new Object();
+        map.put(key, "value");
+
+        assertThat(map.put(key, null)).isEqualTo("value");
+        assertThat(map.containsKey(key)).isFalse();
+    }
+
+    private static class KeyWithUnsupportedEqualsAndHashCode {
+        @Override
+        public boolean equals(Object obj) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int hashCode() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
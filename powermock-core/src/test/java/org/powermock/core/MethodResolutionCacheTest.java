@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core;
+
+import org.junit.Test;
+import org.powermock.core.classloader.MockClassLoader;
+import org.powermock.core.classloader.javassist.JavassistMockClassLoader;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class MethodResolutionCacheTest {
+
+    @Test
+    public void should_return_cached_method_for_equal_signature() throws Exception {
+        final MethodResolutionCache cache = new MethodResolutionCache();
+        final Method method = String.class.getMethod("indexOf", String.class, int.class);
+
+        cache.put(String.class, "indexOf", new Class<?>[]{String.class, int.class}, method);
+
+        assertThat(cache.get(String.class, "indexOf", new Class<?>[]{String.class, int.class})).isSameAs(method);
+        assertThat(cache.get(String.class, "indexOf", new Class<?>[]{String.class})).isNull();
+        assertThat(cache.get(Object.class, "indexOf", new Class<?>[]{String.class, int.class})).isNull();
+    }
+
+    @Test
+    public void should_cache_fields_separately_from_methods() throws Exception {
+        final MethodResolutionCache cache = new MethodResolutionCache();
+        final Field field = Integer.class.getDeclaredField("value");
+
+        cache.putField(Integer.class, "value", field);
+
+        assertThat(cache.getField(Integer.class, "value")).isSameAs(field);
+        assertThat(cache.get(Integer.class, "value", new Class<?>[0])).isNull();
+        assertThat(cache.getField(Long.class, "value")).isNull();
+    }
+
+    @Test
+    public void should_use_cache_of_mock_class_loader_for_classes_loaded_by_it() throws Exception {
+        final String className = "powermock.test.support.ClassForMockClassLoaderTestCase";
+        final MockClassLoader mockClassLoader = new JavassistMockClassLoader(new String[]{className});
+
+        final Class<?> type = Class.forName(className, false, mockClassLoader);
+
+        assertThat(MethodResolutionCache.forType(type)).isSameAs(mockClassLoader.getMethodResolutionCache());
+    }
+
+    @Test
+    public void should_share_cache_for_bootstrap_classes_and_not_cache_other_classes() {
+        assertThat(MethodResolutionCache.forType(String.class)).isSameAs(MethodResolutionCache.forType(Integer.class));
+        assertThat(MethodResolutionCache.forType(MethodResolutionCacheTest.class)).isNull();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class MockRepositoryTest {
+
+    @After
+    public void tearDown() {
+        MockRepository.clear();
+    }
+
+    @Test
+    public void should_not_arm_types_when_nothing_is_registered() {
+        assertThat(MockRepository.isArmed(ArrayList.class)).isFalse();
+        assertThat(MockRepository.isArmed(Object.class)).isFalse();
+    }
+
+    @Test
+    public void should_arm_type_and_its_super_types_when_method_is_stubbed() throws Exception {
+        MockRepository.putMethodToStub(ArrayList.class.getMethod("size"), 5);
+
+        assertThat(MockRepository.isArmed(ArrayList.class)).isTrue();
+        assertThat(MockRepository.isArmed(AbstractList.class)).isTrue();
+        assertThat(MockRepository.isArmed(List.class)).isTrue();
+        assertThat(MockRepository.isArmed(Collection.class)).isTrue();
+        assertThat(MockRepository.isArmed(String.class)).isFalse();
+    }
+
+    @Test
+    public void should_disarm_all_types_when_cleared() throws Exception {
+        MockRepository.addMethodToSuppress(ArrayList.class.getMethod("size"));
+
+        MockRepository.clear();
+
+        assertThat(MockRepository.isArmed(ArrayList.class)).isFalse();
+    }
+
+    @Test
+    public void should_not_suppress_method_with_other_name_than_suppressed_methods() throws Exception {
+        MockRepository.addMethodToSuppress(ArrayList.class.getMethod("size"));
+
+        assertThat(MockRepository.shouldSuppressMethod(ArrayList.class.getMethod("isEmpty"), ArrayList.class)).isFalse();
+    }
+
+    @Test
+    public void should_suppress_method_called_from_declaring_class_of_suppressed_method() throws Throwable {
+        MockRepository.addMethodToSuppress(ClassWithSuppressedMethod.class.getMethod("name"));
+
+        assertThat(new ClassWithSuppressedMethod().callName()).isNull();
+    }
+
+    @Test
+    public void should_not_suppress_method_with_same_name_called_from_other_class() throws Throwable {
+        MockRepository.addMethodToSuppress(ClassWithSuppressedMethod.class.getMethod("name"));
+
+        assertThat(new ClassWithMethodWithSameName().callName()).isSameAs(MockGateway.PROCEED);
+    }
+
+    @Test
+    public void should_keep_dont_mock_next_call_flag_per_thread() throws Exception {
+        MockGateway.dontMockNextCall();
+
+        final boolean[] flagInOtherThread = new boolean[1];
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flagInOtherThread[0] = MockRepository.setDontMockNextCall(false);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertThat(flagInOtherThread[0]).isFalse();
+        assertThat(MockRepository.setDontMockNextCall(false)).isTrue();
+    }
+
+    @Test
+    public void should_reset_dont_mock_next_call_flag_of_all_threads_when_cleared() throws Exception {
+        MockGateway.dontMockNextCall();
+
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                MockRepository.clear();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertThat(MockRepository.setDontMockNextCall(false)).isFalse();
+    }
+
+    /*
+     * The classes call the MockGateway the same way as a method of a modified class does, so the MockGateway finds
+     * them as the caller.
+     */
+    public static class ClassWithSuppressedMethod {
+        public String name() {
+            return "suppressed";
+        }
+
+        Object callName() throws Throwable {
+            return MockGateway.methodCall(this, "name", new Object[0], new Class<?>[0], String.class.getName());
+        }
+    }
+
+    public static class ClassWithMethodWithSameName {
+        public String name() {
+            return "not suppressed";
+        }
+
+        Object callName() throws Throwable {
+            return MockGateway.methodCall(this, "name", new Object[0], new Class<?>[0], String.class.getName());
+        }
+    }
+}
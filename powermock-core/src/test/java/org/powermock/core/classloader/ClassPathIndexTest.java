@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ClassPathIndexTest {
+    
+    private static final String RESOURCE = "org/example/resource.txt";
+    
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private File directory;
+    private File jar;
+    private File referencedJar;
+    
+    @Before
+    public void setUp() throws Exception {
+        directory = temporaryFolder.newFolder("classes");
+        referencedJar = createJar("referenced.jar", null, RESOURCE);
+        jar = createJar("library.jar", referencedJar.getName(), RESOURCE, "org/example/OnlyInJar.class");
+    }
+    
+    @Test
+    public void should_find_resource_in_first_jar_of_class_path() throws Exception {
+        final ClassPathIndex index = new ClassPathIndex(classPath(jar, directory));
+        
+        assertThat(index.findResource(RESOURCE)).isEqualTo(jarEntryUrl(jar, RESOURCE));
+        assertThat(index.findResource("org/example/OnlyInJar.class")).isEqualTo(jarEntryUrl(jar, "org/example/OnlyInJar.class"));
+        assertThat(index.findResource("org/example/Missing.class")).isNull();
+    }
+    
+    @Test
+    public void should_find_resource_created_in_directory_after_index_is_built() throws Exception {
+        final ClassPathIndex index = new ClassPathIndex(classPath(directory, jar));
+        final File file = new File(directory, RESOURCE);
+        assertThat(file.getParentFile().mkdirs()).isTrue();
+        assertThat(file.createNewFile()).isTrue();
+        
+        assertThat(index.findResource(RESOURCE)).isEqualTo(file.toURI().toURL());
+    }
+    
+    @Test
+    public void should_find_all_resources_in_class_path_order_including_jars_referenced_by_manifest() throws Exception {
+        final ClassPathIndex index = new ClassPathIndex(classPath(jar, directory));
+        
+        final List<URL> urls = Collections.list(index.findResources(RESOURCE));
+        
+        assertThat(urls).containsExactly(jarEntryUrl(jar, RESOURCE), jarEntryUrl(referencedJar, RESOURCE));
+    }
+    
+    @Test
+    public void should_find_names_of_classes_in_package_from_jars_and_directories() throws Exception {
+        final File classFile = new File(directory, "org/example/sub/InDirectory.class");
+        assertThat(classFile.getParentFile().mkdirs()).isTrue();
+        assertThat(classFile.createNewFile()).isTrue();
+        assertThat(new File(directory, "org/other/Other.class").getParentFile().mkdirs()).isTrue();
+        assertThat(new File(directory, "org/other/Other.class").createNewFile()).isTrue();
+        final ClassPathIndex index = new ClassPathIndex(classPath(jar, directory));
+        
+        assertThat(index.findClassNames("org.example."))
+            .containsExactly("org.example.OnlyInJar", "org.example.sub.InDirectory");
+        assertThat(index.findClassNames("org.example.sub.In")).containsExactly("org.example.sub.InDirectory");
+        assertThat(index.findClassNames("org.missing.")).isEmpty();
+    }
+    
+    private String classPath(File... entries) {
+        final StringBuilder classPath = new StringBuilder();
+        for (File entry : entries) {
+            if (classPath.length() > 0) {
+                classPath.append(File.pathSeparator);
+            }
+            classPath.append(entry.getAbsolutePath());
+        }
+        return classPath.toString();
+    }
+    
+    private URL jarEntryUrl(File jarFile, String name) throws Exception {
+        return new URL("jar:" + jarFile.toURI().toURL() + "!/" + name);
+    }
+    
+    private File createJar(String name, String classPath, String... entries) throws IOException {
+        final File file = temporaryFolder.newFile(name);
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (classPath != null) {
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+        }
+        final JarOutputStream out = new JarOutputStream(new FileOutputStream(file), manifest);
+        try {
+            for (String entry : entries) {
+                out.putNextEntry(new JarEntry(entry));
+                out.write(1);
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
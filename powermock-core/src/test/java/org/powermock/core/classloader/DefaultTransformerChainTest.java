@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import org.junit.Test;
+import org.powermock.core.transformers.MockTransformerChainFactory;
+import org.powermock.core.transformers.javassist.JavassistMockTransformerChainFactory;
+import powermock.test.support.ClassWithLargeMethods;
+import powermock.test.support.MainMockTransformerTestSupport;
+import powermock.test.support.MainMockTransformerTestSupport.ConstructorCall.SupperClassThrowsException;
+import powermock.test.support.MainMockTransformerTestSupport.SupportClasses;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Loads classes with a new mock class loader of each byte code framework, and with the fused Javassist chain, and
+ * checks that every class is transformed by the default transformer chain.
+ */
+public class DefaultTransformerChainTest {
+
+    private static final Class<?>[] CLASSES = {
+        MainMockTransformerTestSupport.StaticInitialization.class,
+        MainMockTransformerTestSupport.SomeInterface.class,
+        SupperClassThrowsException.class,
+        MainMockTransformerTestSupport.SuperClassCallSuperConstructor.class,
+        MainMockTransformerTestSupport.SuperClassWithObjectMethod.class,
+        MainMockTransformerTestSupport.SubclassWithBridgeMethod.class,
+        SupportClasses.class,
+        SupportClasses.EnumClass.class,
+        SupportClasses.MultipleConstructors.class,
+        MainMockTransformerTestSupport.StaticVoidMethodsTestClass.class,
+        MainMockTransformerTestSupport.VoidMethodsTestClass.class,
+        MainMockTransformerTestSupport.ReturnMethodsTestClass.class,
+        MainMockTransformerTestSupport.NativeMethodsTestClass.class,
+        ClassWithLargeMethods.MethodLowerThanLimit.class
+    };
+
+    @Test
+    public void should_transform_classes_with_every_byte_code_framework() throws Exception {
+        for (ByteCodeFramework byteCodeFramework : ByteCodeFramework.values()) {
+            transformClasses(byteCodeFramework, byteCodeFramework.createTransformerChainFactory());
+        }
+    }
+
+    @Test
+    public void should_transform_classes_with_fused_javassist_chain() throws Exception {
+        transformClasses(ByteCodeFramework.Javassist, new JavassistMockTransformerChainFactory(true));
+    }
+
+    private void transformClasses(ByteCodeFramework byteCodeFramework, MockTransformerChainFactory chainFactory) throws Exception {
+        // the class loader is not built by the MockClassLoaderBuilder, so the transformed classes are not cached
+        final MockClassLoader classLoader = byteCodeFramework.createClassloader(
+            new MockClassLoaderConfiguration(new String[]{MockClassLoader.MODIFY_ALL_CLASSES}, new String[0]), null
+        );
+        classLoader.setMockTransformerChain(chainFactory.createDefaultChain());
+
+        for (Class<?> clazz : CLASSES) {
+            final Class<?> transformed = Class.forName(clazz.getName(), false, classLoader);
+
+            assertThat(transformed.getClassLoader()).isSameAs(classLoader);
+            assertThat(PowerMockModified.class.isAssignableFrom(transformed))
+                .as("Class %s is modified by %s", clazz.getName(), byteCodeFramework)
+                .isTrue();
+        }
+    }
+}
@@ -5,6 +5,8 @@ import javassist.CtClass;
 import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
 import org.junit.Test;
 import org.powermock.PowerMockInternalException;
+import org.powermock.core.IndicateReloadClass;
+import org.powermock.core.classloader.annotations.PowerMockTargets;
 import org.powermock.core.classloader.javassist.JavassistMockClassLoader;
 import org.powermock.core.transformers.ClassWrapper;
 import org.powermock.core.transformers.MockTransformer;
@@ -12,9 +14,13 @@ import org.powermock.core.transformers.MockTransformerChain.FilterPredicate;
 import org.powermock.core.transformers.TestClassAwareTransformer;
 import org.powermock.core.transformers.support.DefaultMockTransformerChain;
 import org.powermock.reflect.internal.WhiteboxImpl;
+import powermock.test.support.MainMockTransformerTestSupport;
+import powermock.test.support.MainMockTransformerTestSupport.SuperClassCallSuperConstructor;
+import powermock.test.support.MainMockTransformerTestSupport.SupportClasses;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.util.Collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -58,6 +64,131 @@ public class MockClassLoaderBuilderTest {
             .isEqualTo(MockClassLoaderBuilderTest.class);
     }
     
+    @Test
+    public void should_share_transformed_classes_between_class_loaders_for_different_test_classes() throws Exception {
+        final String className = "powermock.test.support.ClassForMockClassLoaderTestCase";
+        
+        final MockClassLoader first = MockClassLoaderBuilder
+                                          .create(ByteCodeFramework.Javassist)
+                                          .forTestClass(MockClassLoaderBuilderTest.class)
+                                          .addClassesToModify(new String[]{className})
+                                          .build();
+        final MockClassLoader second = MockClassLoaderBuilder
+                                           .create(ByteCodeFramework.Javassist)
+                                           .forTestClass(MockClassLoaderTest.class)
+                                           .addClassesToModify(new String[]{className})
+                                           .build();
+        
+        assertThat(first.getTransformationFingerprint()).isEqualTo(second.getTransformationFingerprint());
+        
+        final Class<?> firstType = Class.forName(className, false, first);
+        final Class<?> secondType = Class.forName(className, false, second);
+        
+        assertThat(secondType).isNotSameAs(firstType);
+        assertThat(secondType.getClassLoader()).isSameAs(second);
+        assertThat(first.getTransformationFingerprint().isCacheable(className)).isTrue();
+        assertThat(first.getTransformationFingerprint().isCacheable(MockClassLoaderBuilderTest.class.getName())).isFalse();
+    }
+    
+    @Test
+    public void should_add_defer_constructor_to_not_prepared_super_class_of_shared_transformed_class() throws Exception {
+        final String className = SuperClassCallSuperConstructor.class.getName();
+        
+        final MockClassLoader first = MockClassLoaderBuilder
+                                          .create(ByteCodeFramework.Javassist)
+                                          .forTestClass(MockClassLoaderBuilderTest.class)
+                                          .addClassesToModify(new String[]{className})
+                                          .build();
+        final MockClassLoader second = MockClassLoaderBuilder
+                                           .create(ByteCodeFramework.Javassist)
+                                           .forTestClass(MockClassLoaderTest.class)
+                                           .addClassesToModify(new String[]{className})
+                                           .build();
+        
+        Class.forName(className, false, first);
+        final Class<?> type = Class.forName(className, false, second);
+        
+        assertThat(type.getSuperclass().getClassLoader()).isSameAs(second);
+        assertThat(type.getSuperclass().getDeclaredConstructor(IndicateReloadClass.class)).isNotNull();
+    }
+    
+    @Test
+    public void should_not_share_transformed_classes_if_extra_transformer_may_keep_state() {
+        final MockClassLoader classLoader = MockClassLoaderBuilder
+                                                .create(ByteCodeFramework.Javassist)
+                                                .forTestClass(MockClassLoaderBuilderTest.class)
+                                                .addExtraMockTransformers(new SpyMockTransformer())
+                                                .build();
+        
+        assertThat(classLoader.getTransformationFingerprint()).isNull();
+    }
+    
+    @Test
+    public void should_not_share_transformed_classes_if_test_classes_have_different_mock_targets() {
+        final String className = "powermock.test.support.ClassForMockClassLoaderTestCase";
+        
+        final MockClassLoader allCallSites = MockClassLoaderBuilder
+                                                 .create(ByteCodeFramework.Javassist)
+                                                 .forTestClass(MockClassLoaderBuilderTest.class)
+                                                 .addClassesToModify(new String[]{className})
+                                                 .build();
+        final MockClassLoader mockTargets = MockClassLoaderBuilder
+                                                .create(ByteCodeFramework.Javassist)
+                                                .forTestClass(TestClassWithMockTargets.class)
+                                                .addClassesToModify(new String[]{className})
+                                                .build();
+        
+        assertThat(mockTargets.getTransformationFingerprint())
+            .isNotNull()
+            .isNotEqualTo(allCallSites.getTransformationFingerprint());
+        assertThat(mockTargets.getTransformationFingerprint().toString())
+            .contains(className)
+            .contains("powermock.test.support.MainMockTransformerTestSupport");
+    }
+    
+    @Test
+    public void should_transform_classes_of_prepared_package_before_they_are_loaded() throws Exception {
+        final MockClassLoader classLoader = MockClassLoaderBuilder
+                                                .create(ByteCodeFramework.Javassist)
+                                                .forTestClass(MockClassLoaderBuilderTest.class)
+                                                .addClassesToModify(new String[]{MainMockTransformerTestSupport.class.getName() + "*"})
+                                                .build();
+        
+        assertThat(classLoader.transformEagerly(Collections.<String>emptyList())).isGreaterThan(1);
+        
+        final Class<?> type = Class.forName(SupportClasses.class.getName(), false, classLoader);
+        
+        assertThat(type.getClassLoader()).isSameAs(classLoader);
+        assertThat(PowerMockModified.class.isAssignableFrom(type)).isTrue();
+    }
+    
+    @Test
+    public void should_add_defer_constructor_to_not_prepared_super_class_of_eagerly_transformed_class() throws Exception {
+        final MockClassLoader classLoader = MockClassLoaderBuilder
+                                                .create(ByteCodeFramework.Javassist)
+                                                .forTestClass(MockClassLoaderBuilderTest.class)
+                                                .addClassesToModify(new String[]{SuperClassCallSuperConstructor.class.getName() + "*"})
+                                                .build();
+        
+        assertThat(classLoader.transformEagerly(Collections.<String>emptyList())).isGreaterThan(0);
+        
+        final Class<?> type = Class.forName(SuperClassCallSuperConstructor.class.getName(), false, classLoader);
+        
+        assertThat(type.getSuperclass().getDeclaredConstructor(IndicateReloadClass.class)).isNotNull();
+    }
+    
+    @Test
+    public void should_not_transform_excluded_classes_and_their_nested_classes_before_they_are_loaded() {
+        final MockClassLoader classLoader = MockClassLoaderBuilder
+                                                .create(ByteCodeFramework.Javassist)
+                                                .forTestClass(MockClassLoaderBuilderTest.class)
+                                                .addClassesToModify(new String[]{MainMockTransformerTestSupport.class.getName() + "*"})
+                                                .build();
+        
+        assertThat(classLoader.transformEagerly(Collections.singletonList(MainMockTransformerTestSupport.class.getName())))
+            .isEqualTo(0);
+    }
+    
     @Test
     public void should_throw_internal_exception_if_test_class_is_null() {
         
@@ -99,6 +230,10 @@ public class MockClassLoaderBuilderTest {
             .containsExactly(expectedParameterClass);
     }
     
+    @PowerMockTargets(fullyQualifiedNames = "powermock.test.support.MainMockTransformerTestSupport")
+    private static class TestClassWithMockTargets {
+    }
+    
     private static class SpyMockTransformer<T> implements MockTransformer<T>, TestClassAwareTransformer {
         
         private Class<?> testClass;
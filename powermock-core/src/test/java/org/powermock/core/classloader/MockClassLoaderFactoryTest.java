@@ -7,6 +7,7 @@ import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
+import org.powermock.core.classloader.MockClassLoaderFactoryTest.TestContainer.ByteBuddyTestClass;
 import org.powermock.core.classloader.MockClassLoaderFactoryTest.TestContainer.ExceptionTestClass;
 import org.powermock.core.classloader.MockClassLoaderFactoryTest.TestContainer.JavassistTestClass;
 import org.powermock.core.classloader.MockClassLoaderFactoryTest.TestContainer.PrepareEverythingForTestTestClass;
@@ -14,6 +15,7 @@ import org.powermock.core.classloader.MockClassLoaderFactoryTest.TestContainer.S
 import org.powermock.core.classloader.annotations.PrepareEverythingForTest;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.powermock.core.classloader.bytebuddy.ByteBuddyMockClassLoader;
 import org.powermock.core.classloader.javassist.JavassistMockClassLoader;
 import org.powermock.reflect.Whitebox;
 import powermock.test.support.MainMockTransformerTestSupport.SupportClasses;
@@ -95,6 +97,7 @@ public class MockClassLoaderFactoryTest {
             final ArrayList<Object[]> parameters = new ArrayList<Object[]>();
             
             parameters.add(new Object[]{JavassistTestClass.class, JavassistMockClassLoader.class});
+            parameters.add(new Object[]{ByteBuddyTestClass.class, ByteBuddyMockClassLoader.class});
             
             return parameters;
         }
@@ -214,6 +217,20 @@ public class MockClassLoaderFactoryTest {
             
         }
         
+        @PrepareForTest(value = SupportClasses.class, byteCodeFramework = ByteCodeFramework.ByteBuddy)
+        public static class ByteBuddyTestClass {
+            
+            @Test
+            @PrepareForTest(value = SupportClasses.FinalInnerClass.class, byteCodeFramework = ByteCodeFramework.ByteBuddy)
+            public void someTestWithPrepareForTest() {
+            }
+            
+            @Test
+            public void someTestWithoutPrepareForTest() {
+            }
+            
+        }
+        
         @PrepareEverythingForTest
         public static class PrepareEverythingForTestTestClass {
             
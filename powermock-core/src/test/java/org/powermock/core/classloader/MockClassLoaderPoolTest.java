@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import org.junit.Test;
+import org.powermock.core.transformers.ClassWrapper;
+import org.powermock.core.transformers.MockTransformer;
+import org.powermock.core.transformers.TestClassTransformer;
+import org.powermock.core.transformers.TestClassTransformerBuilder;
+import powermock.test.support.TestClassesForMockClassLoaderPoolTestCase.FirstTest;
+import powermock.test.support.TestClassesForMockClassLoaderPoolTestCase.OtherTest;
+import powermock.test.support.TestClassesForMockClassLoaderPoolTestCase.SecondTest;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.powermock.core.transformers.support.FilterPredicates.isInstanceOf;
+
+public class MockClassLoaderPoolTest {
+    
+    private static final String PREPARED_CLASS = "powermock.test.support.ClassForMockClassLoaderTestCase";
+    
+    private final MockClassLoaderPool pool = new MockClassLoaderPool();
+    
+    @Test
+    public void should_reuse_class_loader_for_test_class_with_same_configuration() throws Exception {
+        final MockClassLoader first = pool.getOrBuild(builderFor(FirstTest.class, PREPARED_CLASS));
+        final MockClassLoader other = pool.getOrBuild(builderFor(OtherTest.class, PREPARED_CLASS));
+        
+        assertThat(other).isSameAs(first);
+        assertThat(Class.forName(OtherTest.class.getName(), false, other).getClassLoader()).isSameAs(other);
+    }
+    
+    @Test
+    public void should_not_reuse_class_loader_for_test_class_with_different_configuration() {
+        final MockClassLoader first = pool.getOrBuild(builderFor(FirstTest.class, PREPARED_CLASS));
+        final MockClassLoader other = pool.getOrBuild(builderFor(OtherTest.class, "powermock.test.support.ClassWithLargeMethods"));
+        
+        assertThat(other).isNotSameAs(first);
+    }
+    
+    @Test
+    public void should_not_reuse_class_loader_for_test_classes_with_common_super_class() {
+        final MockClassLoader first = pool.getOrBuild(builderFor(FirstTest.class, PREPARED_CLASS));
+        final MockClassLoader second = pool.getOrBuild(builderFor(SecondTest.class, PREPARED_CLASS));
+        final MockClassLoader other = pool.getOrBuild(builderFor(OtherTest.class, PREPARED_CLASS));
+        
+        assertThat(second).isNotSameAs(first);
+        assertThat(other).isSameAs(first);
+    }
+    
+    @Test
+    public void should_not_reuse_class_loader_with_extra_transformers_which_may_keep_state() {
+        final MockClassLoader first = pool.getOrBuild(builderFor(FirstTest.class, PREPARED_CLASS).addExtraMockTransformers(new NoopMockTransformer()));
+        final MockClassLoader other = pool.getOrBuild(builderFor(OtherTest.class, PREPARED_CLASS).addExtraMockTransformers(new NoopMockTransformer()));
+        
+        assertThat(other).isNotSameAs(first);
+    }
+    
+    @Test
+    public void should_not_reuse_class_loader_for_test_classes_which_suppress_different_static_initializers() {
+        final MockClassLoader first = pool.getOrBuild(builderFor(FirstTest.class, PREPARED_CLASS)
+                                                          .addSuppressedStaticInitializers(new String[]{PREPARED_CLASS}));
+        final MockClassLoader other = pool.getOrBuild(builderFor(OtherTest.class, PREPARED_CLASS));
+        
+        assertThat(other).isNotSameAs(first);
+    }
+    
+    @Test
+    public void should_replace_test_class_transformers_of_previous_test_class() {
+        final MockClassLoader first = pool.getOrBuild(builderFor(FirstTest.class, PREPARED_CLASS)
+                                                          .addExtraMockTransformers(testClassTransformerFor(FirstTest.class)));
+        final TestClassTransformer otherTransformer = testClassTransformerFor(OtherTest.class);
+        final MockClassLoader other = pool.getOrBuild(builderFor(OtherTest.class, PREPARED_CLASS)
+                                                          .addExtraMockTransformers(otherTransformer));
+        
+        assertThat(other).isSameAs(first);
+        assertThat(other.getMockTransformerChain().filter(isInstanceOf(TestClassTransformer.class)))
+            .containsExactly(otherTransformer);
+    }
+    
+    private static TestClassTransformer testClassTransformerFor(Class<?> testClass) {
+        return TestClassTransformerBuilder.forTestClass(testClass)
+                                          .removesTestMethodAnnotation(Test.class)
+                                          .fromMethods(Collections.<Method>emptyList());
+    }
+    
+    private MockClassLoaderBuilder builderFor(Class<?> testClass, String preparedClass) {
+        return MockClassLoaderBuilder.create(ByteCodeFramework.Javassist)
+                                     .forTestClass(testClass)
+                                     .addClassesToModify(new String[]{testClass.getName(), preparedClass});
+    }
+    
+    private static class NoopMockTransformer<T> implements MockTransformer<T> {
+        @Override
+        public ClassWrapper<T> transform(ClassWrapper<T> clazz) {
+            return clazz;
+        }
+    }
+}
@@ -38,8 +38,13 @@ import org.powermock.reflect.Whitebox;
 
 import java.lang.annotation.Annotation;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static java.util.Arrays.asList;
@@ -265,6 +270,34 @@ public class MockClassLoaderTest {
         assertThat("5").isEqualTo(Whitebox.invokeMethod(object, "testString"));
     }
     
+    @Test
+    public void should_load_same_class_once_when_loaded_from_several_threads() throws Exception {
+        final String className = "powermock.test.support.ClassForMockClassLoaderTestCase";
+        final MockClassLoader mockClassLoader = mockClassLoaderFactory.getInstance(new String[]{className});
+        mockClassLoader.setMockTransformerChain(mockTransformerChain);
+        
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Class<?>>> results = new ArrayList<Future<Class<?>>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Class<?>>() {
+                    @Override
+                    public Class<?> call() throws Exception {
+                        return Class.forName(className, false, mockClassLoader);
+                    }
+                }));
+            }
+            
+            final Class<?> loadedClass = results.get(0).get();
+            assertClassIsLoaded(loadedClass, mockClassLoader);
+            for (Future<Class<?>> result : results) {
+                assertThat(result.get()).isSameAs(loadedClass);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
     
     private void assertThatInstanceCouldBeCreateAndMethodReturnMockedValue(final Class<?> clazz) throws Exception {
         Object instance = Whitebox.newInstance(clazz);
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import org.junit.Test;
+import org.powermock.core.classloader.javassist.JavassistMockClassLoader;
+import powermock.test.support.MainMockTransformerTestSupport.ConstructorCall.SupperClassThrowsException;
+import powermock.test.support.MainMockTransformerTestSupport.ParameterImpl;
+import powermock.test.support.MainMockTransformerTestSupport.SuperClassCallSuperConstructor;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TransformationDependenciesTest {
+
+    private final String className = SuperClassCallSuperConstructor.class.getName();
+
+    @Test
+    public void should_return_same_digest_for_unchanged_class_and_dependencies() throws Exception {
+        final MockClassLoader classLoader = new JavassistMockClassLoader(new String[0]);
+        final byte[] clazz = classLoader.readClassFile(className);
+
+        assertThat(TransformationDependencies.digest(classLoader, className, clazz))
+            .isEqualTo(TransformationDependencies.digest(new JavassistMockClassLoader(new String[0]), className, clazz))
+            .isNotEqualTo(TransformedClassCache.digest(clazz));
+    }
+
+    @Test
+    public void should_return_other_digest_if_super_class_has_changed() throws Exception {
+        final MockClassLoader classLoader = new JavassistMockClassLoader(new String[0]);
+        final byte[] clazz = classLoader.readClassFile(className);
+
+        final MockClassLoader changedSuperClass = new JavassistMockClassLoader(new String[0]) {
+            @Override
+            protected byte[] readClassFile(final String name) throws IOException {
+                if (name.equals(SupperClassThrowsException.class.getName())) {
+                    return super.readClassFile(ParameterImpl.class.getName());
+                }
+                return super.readClassFile(name);
+            }
+        };
+
+        assertThat(TransformationDependencies.digest(changedSuperClass, className, clazz))
+            .isNotEqualTo(TransformationDependencies.digest(classLoader, className, clazz));
+    }
+}
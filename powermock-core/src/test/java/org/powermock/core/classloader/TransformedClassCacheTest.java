@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import org.junit.Test;
+import org.powermock.core.classloader.TransformedClassCache.Fingerprint;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TransformedClassCacheTest {
+
+    private final TransformedClassCache cache = new TransformedClassCache();
+    private final Fingerprint fingerprint = new Fingerprint("chain", Collections.<String>emptyList());
+
+    @Test
+    public void should_return_transformed_bytecode_for_same_original_bytecode_and_fingerprint() {
+        final byte[] transformed = {1, 2, 3};
+        cache.put("a.B", fingerprint, TransformedClassCache.digest(new byte[]{1}), transformed);
+
+        assertThat(cache.get("a.B", new Fingerprint("chain", Collections.<String>emptyList()),
+                             TransformedClassCache.digest(new byte[]{1}))).isSameAs(transformed);
+    }
+
+    @Test
+    public void should_not_return_transformed_bytecode_if_original_bytecode_or_fingerprint_differs() {
+        cache.put("a.B", fingerprint, TransformedClassCache.digest(new byte[]{1}), new byte[]{1, 2, 3});
+
+        assertThat(cache.get("a.B", fingerprint, TransformedClassCache.digest(new byte[]{2}))).isNull();
+        assertThat(cache.get("a.B", new Fingerprint("other", Collections.<String>emptyList()),
+                             TransformedClassCache.digest(new byte[]{1}))).isNull();
+        assertThat(cache.get("a.C", fingerprint, TransformedClassCache.digest(new byte[]{1}))).isNull();
+    }
+
+    @Test
+    public void should_not_cache_excluded_classes_and_classes_nested_in_them() {
+        final Fingerprint fingerprint = new Fingerprint("chain", Arrays.asList("a.Test", "a.Outer$Test"));
+
+        assertThat(fingerprint.isCacheable("a.Test")).isFalse();
+        assertThat(fingerprint.isCacheable("a.Test$1")).isFalse();
+        assertThat(fingerprint.isCacheable("a.Outer$Test$Inner")).isFalse();
+        assertThat(fingerprint.isCacheable("a.Outer")).isTrue();
+        assertThat(fingerprint.isCacheable("a.Outer$Other")).isTrue();
+        assertThat(fingerprint.isCacheable("a.TestSupport")).isTrue();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.powermock.core.classloader.TransformedClassCache.Fingerprint;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class TransformedClassStoreTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Fingerprint fingerprint = new Fingerprint("chain", Collections.<String>emptyList());
+    private final byte[] originalDigest = TransformedClassCache.digest(new byte[]{1});
+
+    @Test
+    public void should_read_class_stored_by_another_instance() throws Exception {
+        final File directory = new File(temporaryFolder.getRoot(), "cache");
+
+        new TransformedClassStore(directory, 1024, "1.0").put("a.B", fingerprint, originalDigest, new byte[]{1, 2, 3});
+
+        final TransformedClassStore store = new TransformedClassStore(directory, 1024, "1.0");
+        assertThat(store.get("a.B", fingerprint, originalDigest)).containsExactly(1, 2, 3);
+        assertThat(directory.list()).hasSize(1);
+    }
+
+    @Test
+    public void should_not_read_class_stored_for_other_original_bytecode_or_version() throws Exception {
+        final File directory = temporaryFolder.getRoot();
+        new TransformedClassStore(directory, 1024, "1.0").put("a.B", fingerprint, originalDigest, new byte[]{1, 2, 3});
+
+        assertThat(new TransformedClassStore(directory, 1024, "2.0").get("a.B", fingerprint, originalDigest)).isNull();
+        assertThat(new TransformedClassStore(directory, 1024, "1.0").get("a.B", fingerprint, TransformedClassCache.digest(new byte[]{2})))
+            .isNull();
+    }
+
+    @Test
+    public void should_evict_least_recently_used_classes_when_size_is_exceeded() throws Exception {
+        final File directory = temporaryFolder.getRoot();
+        final TransformedClassStore store = new TransformedClassStore(directory, 250, "1.0");
+
+        store.put("a.First", fingerprint, originalDigest, new byte[100]);
+        store.put("a.Second", fingerprint, originalDigest, new byte[100]);
+        for (File file : directory.listFiles()) {
+            file.setLastModified(System.currentTimeMillis() - 60000);
+        }
+        assertThat(store.get("a.First", fingerprint, originalDigest)).isNotNull();
+
+        store.put("a.Third", fingerprint, originalDigest, new byte[80]);
+
+        assertThat(store.get("a.First", fingerprint, originalDigest)).isNotNull();
+        assertThat(store.get("a.Second", fingerprint, originalDigest)).isNull();
+        assertThat(store.get("a.Third", fingerprint, originalDigest)).isNotNull();
+    }
+}
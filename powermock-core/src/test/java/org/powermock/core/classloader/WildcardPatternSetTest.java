@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class WildcardPatternSetTest {
+
+    private final WildcardPatternSet patterns = WildcardPatternSet.compile(Arrays.asList(
+        "org.example.SomeClass",
+        "org.example.internal.*",
+        "org.powermock.core*",
+        "*Test",
+        "com.*.impl.*"
+    ));
+
+    @Test
+    public void should_match_class_names_equal_to_pattern_without_wildcard() {
+        assertThat(patterns.matches("org.example.SomeClass")).isTrue();
+        assertThat(patterns.matches("org.example.SomeClass2")).isFalse();
+        assertThat(patterns.matches("org.example.Some")).isFalse();
+    }
+
+    @Test
+    public void should_match_class_names_starting_with_prefix_of_pattern_ending_with_wildcard() {
+        assertThat(patterns.matches("org.example.internal.Foo")).isTrue();
+        assertThat(patterns.matches("org.example.internal.")).isTrue();
+        assertThat(patterns.matches("org.powermock.core.MockGateway")).isTrue();
+        assertThat(patterns.matches("org.powermock.core")).isTrue();
+        assertThat(patterns.matches("org.example.internal")).isFalse();
+        assertThat(patterns.matches("org.powermock.api.Foo")).isFalse();
+    }
+
+    @Test
+    public void should_match_class_names_with_other_patterns() {
+        assertThat(patterns.matches("org.example.SomeTest")).isTrue();
+        assertThat(patterns.matches("com.example.impl.Foo")).isTrue();
+        assertThat(patterns.matches("com.example.Foo")).isFalse();
+    }
+
+    @Test
+    public void should_match_every_class_name_with_single_wildcard() {
+        final WildcardPatternSet all = WildcardPatternSet.compile(Collections.singletonList("*"));
+
+        assertThat(all.matches("org.example.Foo")).isTrue();
+        assertThat(all.matches("")).isTrue();
+    }
+
+    @Test
+    public void should_not_match_anything_without_patterns() {
+        final WildcardPatternSet none = WildcardPatternSet.compile(Collections.<String>emptyList());
+
+        assertThat(none.matches("org.example.Foo")).isFalse();
+    }
+}
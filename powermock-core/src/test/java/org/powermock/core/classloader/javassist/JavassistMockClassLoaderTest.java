@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.classloader.javassist;
+
+import org.junit.Test;
+import org.powermock.core.IndicateReloadClass;
+import org.powermock.core.classloader.ByteCodeFramework;
+import org.powermock.core.classloader.MockClassLoaderBuilder;
+import powermock.test.support.MainMockTransformerTestSupport.SubclassOfSystemClass;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class JavassistMockClassLoaderTest {
+    
+    private static final String CLASS_NAME = "powermock.test.support.ClassForMockClassLoaderTestCase";
+    
+    @Test
+    public void should_not_keep_unmodified_classes_in_class_pool() throws Exception {
+        final JavassistMockClassLoader classLoader = new JavassistMockClassLoader(new String[0]);
+        final int classPoolSize = classLoader.getClassPoolSize();
+        
+        Class.forName(CLASS_NAME, false, classLoader);
+        
+        assertThat(classLoader.getClassPoolSize()).isEqualTo(classPoolSize);
+    }
+    
+    @Test
+    public void should_not_keep_modified_classes_in_class_pool() throws Exception {
+        final JavassistMockClassLoader classLoader = new JavassistMockClassLoader(new String[]{CLASS_NAME});
+        final int classPoolSize = classLoader.getClassPoolSize();
+        
+        Class.forName(CLASS_NAME, false, classLoader);
+        
+        assertThat(classLoader.getClassPoolSize()).isEqualTo(classPoolSize);
+    }
+    
+    @Test
+    public void should_call_default_constructor_of_system_super_class_from_defer_constructor() throws Exception {
+        final ClassLoader classLoader = MockClassLoaderBuilder.create(ByteCodeFramework.Javassist)
+                                                              .forTestClass(getClass())
+                                                              .addClassesToModify(new String[]{SubclassOfSystemClass.class.getName()})
+                                                              .build();
+        
+        final Class<?> type = Class.forName(SubclassOfSystemClass.class.getName(), false, classLoader);
+        final Object instance = type.getDeclaredConstructor(IndicateReloadClass.class).newInstance(new Object[]{null});
+        
+        assertThat(instance).isInstanceOf(type);
+    }
+}
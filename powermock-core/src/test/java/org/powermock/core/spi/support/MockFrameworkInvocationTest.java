@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.core.spi.support;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class MockFrameworkInvocationTest {
+
+    @Test
+    public void should_be_in_progress_until_outermost_invocation_is_finished() {
+        assertThat(MockFrameworkInvocation.isInProgress()).isFalse();
+
+        MockFrameworkInvocation.invocationStarted();
+        MockFrameworkInvocation.invocationStarted();
+        MockFrameworkInvocation.invocationFinished();
+
+        assertThat(MockFrameworkInvocation.isInProgress()).isTrue();
+
+        MockFrameworkInvocation.invocationFinished();
+
+        assertThat(MockFrameworkInvocation.isInProgress()).isFalse();
+    }
+
+    @Test
+    public void should_not_be_in_progress_in_other_thread() throws Exception {
+        final boolean[] inProgress = new boolean[1];
+        MockFrameworkInvocation.invocationStarted();
+        try {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    inProgress[0] = MockFrameworkInvocation.isInProgress();
+                }
+            });
+            thread.start();
+            thread.join();
+        } finally {
+            MockFrameworkInvocation.invocationFinished();
+        }
+
+        assertThat(inProgress[0]).isFalse();
+    }
+}
@@ -21,6 +21,7 @@ package org.powermock.core.test;
 import org.powermock.core.classloader.MockClassLoader;
 import org.powermock.core.classloader.MockClassLoaderConfiguration;
 import org.powermock.core.classloader.annotations.UseClassPathAdjuster;
+import org.powermock.core.classloader.bytebuddy.ByteBuddyMockClassLoader;
 import org.powermock.reflect.internal.WhiteboxImpl;
 
 import java.lang.reflect.Constructor;
@@ -51,7 +52,7 @@ public class MockClassLoaderFactory {
     }
     
     public boolean isByteBuddy(){
-        return false;
+        return ByteBuddyMockClassLoader.class.isAssignableFrom(classLoaderClass);
     }
     
     @Override
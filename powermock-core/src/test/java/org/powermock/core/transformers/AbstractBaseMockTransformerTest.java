@@ -19,6 +19,7 @@
 package org.powermock.core.transformers;
 
 import javassist.CtClass;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
@@ -29,6 +30,8 @@ import org.powermock.core.transformers.javassist.support.JavaAssistClassWrapperF
 import org.powermock.core.transformers.mock.MockGatewaySpy;
 import org.powermock.core.transformers.support.FilterPredicates;
 
+import java.util.Arrays;
+
 import static org.junit.Assume.assumeTrue;
 
 @RunWith(Parameterized.class)
@@ -54,6 +57,12 @@ abstract class AbstractBaseMockTransformerTest {
         ClassLoaderTestHelper.clearCache();
         MockGatewaySpy.clear();
         MockGatewaySpy.returnOnMethodCall(MockGateway.PROCEED);
+        resetMockTargets();
+    }
+    
+    @After
+    public void tearDown() {
+        resetMockTargets();
     }
     
     protected Class<?> loadWithMockClassLoader(final String name) throws Exception {
@@ -89,4 +98,22 @@ abstract class AbstractBaseMockTransformerTest {
             ((TestClassAwareTransformer) transformer).setTestClass(testClass);
         }
     }
+    
+    protected void setMockTargetsToTransformers(final String... mockTargets) {
+        setMockTargets(new MockTargets(Arrays.asList(mockTargets)));
+    }
+    
+    /**
+     * The transformer chain is shared by all tests of a parameter set, so the mock targets set by a test are reset
+     * to instrument all call sites again.
+     */
+    private void resetMockTargets() {
+        setMockTargets(null);
+    }
+    
+    private void setMockTargets(final MockTargets mockTargets) {
+        for (MockTransformer transformer : mockTransformerChain.filter(FilterPredicates.isInstanceOf(MockTargetsAwareTransformer.class))) {
+            ((MockTargetsAwareTransformer) transformer).setMockTargets(mockTargets);
+        }
+    }
 }
@@ -44,6 +44,8 @@ public class ClassFinalModifierMockTransformerTest extends AbstractBaseMockTrans
         Collection<Object[]> data = new ArrayList<Object[]>();
         
         data.addAll(MockTransformerTestHelper.createTransformerTestData(org.powermock.core.transformers.javassist.ClassFinalModifierMockTransformer.class));
+        data.addAll(MockTransformerTestHelper.createTransformerTestData(org.powermock.core.transformers.bytebuddy.ClassFinalModifierMockTransformer.class));
+        data.addAll(MockTransformerTestHelper.createTransformerTestData(org.powermock.core.transformers.javassist.FusedMockTransformer.class));
         
         return data;
     }
@@ -62,6 +62,7 @@ public class ConstructorCallMockTransformerTest extends AbstractBaseMockTransfor
         Collection<Object[]> data = new ArrayList<Object[]>();
     
         data.addAll(createTransformerTestDataWithMockGateway(MockGatewaySpy.class, InstrumentMockTransformer.class));
+        data.addAll(createTransformerTestDataWithMockGateway(MockGatewaySpy.class, org.powermock.core.transformers.bytebuddy.InstrumentMockTransformer.class));
         
         return data;
     }
@@ -235,6 +236,49 @@ public class ConstructorCallMockTransformerTest extends AbstractBaseMockTransfor
             .hasMessage(SupperClassThrowsException.MESSAGE);
     }
     
+    @Test
+    public void should_not_instrument_call_to_super_constructor_if_super_class_is_not_mock_target() throws Exception {
+        assumeClassLoaderMode();
+        
+        MockGatewaySpy.returnOnMethodCall(SUPPRESS);
+        setMockTargetsToTransformers(ParameterImpl.class.getName());
+        
+        Class<?> clazz = loadWithMockClassLoader(SuperClassCallSuperConstructor.class.getName());
+        
+        final Constructor<?> constructor = clazz.getConstructor(String.class, String.class, double.class);
+        
+        Throwable throwable = catchThrowable(new ThrowingCallable() {
+            @Override
+            public void call() throws Throwable {
+                try {
+                    constructor.newInstance("name", "field", 100);
+                } catch (Exception e) {
+                    throw e.getCause() == null ? e : e.getCause();
+                }
+            }
+        });
+        
+        assertThat(throwable)
+            .as("Call to super is not instrumented")
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage(SupperClassThrowsException.MESSAGE);
+        assertThat(MockGatewaySpy.constructorCalls()).isEmpty();
+    }
+    
+    @Test
+    public void should_instrument_call_to_super_constructor_if_super_class_is_mock_target() throws Exception {
+        assumeClassLoaderMode();
+        
+        MockGatewaySpy.returnOnMethodCall(SUPPRESS);
+        setMockTargetsToTransformers(SupperClassThrowsException.class.getName());
+        
+        Class<?> clazz = loadWithMockClassLoader(SuperClassCallSuperConstructor.class.getName());
+        
+        clazz.getConstructor(String.class, String.class, double.class).newInstance("name", "field", 100);
+        
+        assertThatCorrectConstructorTypeProvided();
+    }
+    
     @Test
     public void should_provide_correct_constructor_param_and_arguments() throws Exception {
         assumeClassLoaderMode();
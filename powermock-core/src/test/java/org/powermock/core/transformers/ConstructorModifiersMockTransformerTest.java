@@ -45,6 +45,7 @@ public class ConstructorModifiersMockTransformerTest extends AbstractBaseMockTra
         Collection<Object[]> data = new ArrayList<Object[]>();
         
         data.addAll(MockTransformerTestHelper.createTransformerTestData(ConstructorsMockTransformer.class));
+        data.addAll(MockTransformerTestHelper.createTransformerTestData(org.powermock.core.transformers.bytebuddy.ConstructorsMockTransformer.class));
         
         return data;
     }
@@ -21,8 +21,10 @@ package org.powermock.core.transformers;
 import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
 import org.junit.Test;
 import org.junit.runners.Parameterized;
+import org.powermock.core.classloader.bytebuddy.ByteBuddyMockClassLoader;
 import org.powermock.core.classloader.javassist.JavassistMockClassLoader;
 import org.powermock.core.test.MockClassLoaderFactory;
+import org.powermock.core.transformers.bytebuddy.ByteBuddyMockTransformerChainFactory;
 import org.powermock.core.transformers.javassist.JavassistMockTransformerChainFactory;
 import powermock.test.support.ClassWithLargeMethods;
 
@@ -33,6 +35,8 @@ import java.util.List;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
 
 public class MethodSizeMockTransformerTest extends AbstractBaseMockTransformerTest {
     
@@ -47,6 +51,16 @@ public class MethodSizeMockTransformerTest extends AbstractBaseMockTransformerTe
                 new JavassistMockTransformerChainFactory().createDefaultChain(Collections.<MockTransformer>emptyList()),
                 new MockClassLoaderFactory(JavassistMockClassLoader.class)
             });
+            data.add(new Object[]{
+                strategy,
+                new JavassistMockTransformerChainFactory(true).createDefaultChain(Collections.<MockTransformer>emptyList()),
+                new MockClassLoaderFactory(JavassistMockClassLoader.class)
+            });
+            data.add(new Object[]{
+                strategy,
+                new ByteBuddyMockTransformerChainFactory().createDefaultChain(Collections.<MockTransformer>emptyList()),
+                new MockClassLoaderFactory(ByteBuddyMockClassLoader.class)
+            });
         }
     
         return data;
@@ -67,8 +81,20 @@ public class MethodSizeMockTransformerTest extends AbstractBaseMockTransformerTe
         clazz.getMethod("init").invoke(clazz);
     }
     
+    @Test
+    public void should_not_override_method_which_is_under_jvm_limit_after_byte_buddy_instrumentation() throws Exception {
+        assumeTrue("Only the ByteBuddy prologue keeps the method under the JVM limit.", mockClassloaderFactory.isByteBuddy());
+        
+        final Class<?> clazz = loadWithMockClassLoader(ClassWithLargeMethods.MethodGreaterThanLimit.class.getName());
+        
+        // There should be no exception since method was not overridden
+        clazz.getMethod("init").invoke(clazz);
+    }
+    
     @Test
     public void should_load_class_and_override_method_greater_than_jvm_limit() throws Exception {
+        assumeFalse("The ByteBuddy prologue keeps the method under the JVM limit.", mockClassloaderFactory.isByteBuddy());
+        
         final Class<?> clazz = loadWithMockClassLoader(ClassWithLargeMethods.MethodGreaterThanLimit.class.getName());
         
         Throwable throwable = catchThrowable(new ThrowingCallable() {
@@ -57,6 +57,7 @@ public class MethodsMockTransformerTest extends AbstractBaseMockTransformerTest
         Collection<Object[]> data = new ArrayList<Object[]>();
         
         data.addAll(MockTransformerTestHelper.createOneTransformerTestData(MockGatewaySpy.class, StaticFinalNativeMethodMockTransformer.class));
+        data.addAll(MockTransformerTestHelper.createOneTransformerTestData(MockGatewaySpy.class, org.powermock.core.transformers.bytebuddy.StaticFinalNativeMethodMockTransformer.class));
         
         return data;
     }
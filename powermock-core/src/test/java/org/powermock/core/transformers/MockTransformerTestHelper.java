@@ -19,8 +19,10 @@
 package org.powermock.core.transformers;
 
 import org.powermock.core.MockGateway;
+import org.powermock.core.classloader.bytebuddy.ByteBuddyMockClassLoader;
 import org.powermock.core.classloader.javassist.JavassistMockClassLoader;
 import org.powermock.core.test.MockClassLoaderFactory;
+import org.powermock.core.transformers.bytebuddy.AbstractByteBuddyMockTransformer;
 import org.powermock.core.transformers.javassist.AbstractJavaAssistMockTransformer;
 import org.powermock.core.transformers.support.DefaultMockTransformerChain;
 import org.powermock.reflect.internal.WhiteboxImpl;
@@ -79,6 +81,9 @@ class MockTransformerTestHelper {
         if (AbstractJavaAssistMockTransformer.class.isAssignableFrom(transformerClass)){
             return new MockClassLoaderFactory(JavassistMockClassLoader.class);
         }
+        if (AbstractByteBuddyMockTransformer.class.isAssignableFrom(transformerClass)){
+            return new MockClassLoaderFactory(ByteBuddyMockClassLoader.class);
+        }
         throw new UnsupportedOperationException();
     }
     
@@ -21,6 +21,7 @@ package org.powermock.core.transformers;
 import org.junit.Test;
 import org.junit.runners.Parameterized;
 import org.powermock.core.test.MockClassLoaderFactory;
+import org.powermock.core.transformers.javassist.FusedMockTransformer;
 import org.powermock.core.transformers.javassist.StaticFinalFieldsMockTransformer;
 import org.powermock.reflect.internal.WhiteboxImpl;
 import powermock.test.support.MainMockTransformerTestSupport.SupportClasses;
@@ -43,6 +44,8 @@ public class StaticFinalFieldsMockTransformerTest extends AbstractBaseMockTransf
         Collection<Object[]> data = new ArrayList<Object[]>();
         
         data.addAll(MockTransformerTestHelper.createTransformerTestData(StaticFinalFieldsMockTransformer.class));
+        data.addAll(MockTransformerTestHelper.createTransformerTestData(org.powermock.core.transformers.bytebuddy.StaticFinalFieldsMockTransformer.class));
+        data.addAll(MockTransformerTestHelper.createTransformerTestData(FusedMockTransformer.class));
         
         return data;
     }
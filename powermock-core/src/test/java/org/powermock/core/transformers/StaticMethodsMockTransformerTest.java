@@ -42,6 +42,7 @@ public class StaticMethodsMockTransformerTest extends AbstractBaseMockTransforme
         Collection<Object[]> data = new ArrayList<Object[]>();
     
         data.addAll(MockTransformerTestHelper.createOneTransformerTestData(MockGatewaySpy.class, StaticFinalNativeMethodMockTransformer.class));
+        data.addAll(MockTransformerTestHelper.createOneTransformerTestData(MockGatewaySpy.class, org.powermock.core.transformers.bytebuddy.StaticFinalNativeMethodMockTransformer.class));
         
         return data;
     }
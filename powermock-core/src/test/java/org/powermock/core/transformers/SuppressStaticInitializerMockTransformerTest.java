@@ -24,6 +24,7 @@ import org.junit.Test;
 import org.junit.runners.Parameterized;
 import org.powermock.core.MockRepository;
 import org.powermock.core.test.MockClassLoaderFactory;
+import org.powermock.core.transformers.javassist.FusedMockTransformer;
 import org.powermock.core.transformers.javassist.SuppressStaticInitializerMockTransformer;
 import org.powermock.reflect.Whitebox;
 import powermock.test.support.MainMockTransformerTestSupport.StaticInitialization;
@@ -44,6 +45,8 @@ public class SuppressStaticInitializerMockTransformerTest extends AbstractBaseMo
         Collection<Object[]> data = new ArrayList<Object[]>();
         
         data.addAll(MockTransformerTestHelper.createTransformerTestData(SuppressStaticInitializerMockTransformer.class));
+        data.addAll(MockTransformerTestHelper.createTransformerTestData(org.powermock.core.transformers.bytebuddy.SuppressStaticInitializerMockTransformer.class));
+        data.addAll(MockTransformerTestHelper.createTransformerTestData(FusedMockTransformer.class));
         
         return data;
     }
@@ -19,6 +19,8 @@ package powermock.test.support;
 import org.powermock.core.classloader.MockClassLoaderConfiguration;
 import powermock.test.support.MainMockTransformerTestSupport.ConstructorCall.SupperClassThrowsException;
 
+import java.util.AbstractList;
+
 /**
  * This class is used when running tests for different {@link org.powermock.core.transformers.MockTransformer}. It is
  * placed in this package because classes in org.powermock.core.* are deferred by:
@@ -173,6 +175,23 @@ public class MainMockTransformerTestSupport {
         }
     }
     
+    public static class SubclassOfSystemClass extends AbstractList<String> {
+        
+        public SubclassOfSystemClass() {
+            super();
+        }
+        
+        @Override
+        public String get(final int index) {
+            throw new IndexOutOfBoundsException();
+        }
+        
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+    
     public static class ParameterImpl implements ParameterInterface {
     
     
@@ -0,0 +1,37 @@
+/*
+ *
+ *   Copyright 2017 the original author or authors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package powermock.test.support;
+
+/**
+ * Test classes used by MockClassLoaderPoolTest, located here only because package 'org.powermock.core' is always ignored.
+ */
+public class TestClassesForMockClassLoaderPoolTestCase {
+    
+    public static class BaseTest {
+    }
+    
+    public static class FirstTest extends BaseTest {
+    }
+    
+    public static class SecondTest extends BaseTest {
+    }
+    
+    public static class OtherTest {
+    }
+}
@@ -26,6 +26,11 @@ public abstract class AbstractClassTransformer {
     
     private static final List<String> ALWAYS_IGNORED = new LinkedList<String>();
     private final List<String> USER_IGNORED = Collections.synchronizedList(new LinkedList<String>());
+    
+    /*
+     * The always and user ignored patterns compiled once each time the user ignored packages change.
+     */
+    private volatile WildcardMatcher[] ignoredMatchers = WildcardMatcher.compile(merge(USER_IGNORED));
 
     static {
         ALWAYS_IGNORED.add("org.powermock.*");
@@ -46,14 +51,16 @@ public abstract class AbstractClassTransformer {
     public synchronized void setPackagesToIgnore(List<String> packagesToIgnore) {
         USER_IGNORED.clear();
         USER_IGNORED.addAll(packagesToIgnore);
+        ignoredMatchers = WildcardMatcher.compile(merge(USER_IGNORED));
     }
 
-    public void resetPackagesToIgnore() {
+    public synchronized void resetPackagesToIgnore() {
         USER_IGNORED.clear();
+        ignoredMatchers = WildcardMatcher.compile(merge(USER_IGNORED));
     }
 
     protected boolean shouldIgnore(String className) {
-        return WildcardMatcher.matchesAny(merge(USER_IGNORED), replaceSlashWithDots(className));
+        return WildcardMatcher.matchesAny(ignoredMatchers, replaceSlashWithDots(className));
     }
 
     private List<String> merge(List<String> userIgnored) {
@@ -63,6 +70,6 @@ public abstract class AbstractClassTransformer {
     }
 
     String replaceSlashWithDots(String className) {
-        return className.replaceAll("/", ".");
+        return className.replace('/', '.');
     }
 }
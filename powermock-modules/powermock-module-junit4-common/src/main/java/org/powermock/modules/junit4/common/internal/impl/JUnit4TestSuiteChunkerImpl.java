@@ -22,6 +22,7 @@ import org.junit.runner.manipulation.Filterable;
 import org.junit.runner.manipulation.NoTestsRemainException;
 import org.junit.runner.manipulation.Sortable;
 import org.junit.runner.manipulation.Sorter;
+import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunNotifier;
 import org.powermock.core.spi.PowerMockTestListener;
 import org.powermock.core.spi.testresult.TestSuiteResult;
@@ -108,7 +109,14 @@ public class JUnit4TestSuiteChunkerImpl extends AbstractTestSuiteChunkerImpl<Pow
 
 		for (PowerMockJUnitRunnerDelegate delegate : delegates) {
 			TestChunk next = iterator.next();
-			final ClassLoader key = next.getClassLoader();
+			final ClassLoader key;
+			try {
+				key = next.getClassLoader();
+			} catch (Throwable e) {
+				// The classloader of a chunk is created lazily, a failure fails only the tests of the chunk.
+				failureCount += fireTestFailures(notifier, delegate.getDescription(), e);
+				continue;
+			}
 			PowerMockJUnit4RunListener powerMockListener = new PowerMockJUnit4RunListener(key, powerMockTestNotifier);
 			notifier.addListener(powerMockListener);
 			final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
@@ -117,6 +125,7 @@ public class JUnit4TestSuiteChunkerImpl extends AbstractTestSuiteChunkerImpl<Pow
 				delegate.run(notifier);
 			} finally {
 				Thread.currentThread().setContextClassLoader(originalClassLoader);
+				notifier.removeListener(powerMockListener);
 			}
 			final int failureCountForThisPowerMockListener = powerMockListener.getFailureCount();
 			final int ignoreCountForThisPowerMockListener = powerMockListener.getIgnoreCount();
@@ -124,7 +133,6 @@ public class JUnit4TestSuiteChunkerImpl extends AbstractTestSuiteChunkerImpl<Pow
 			ignoreCount += ignoreCountForThisPowerMockListener;
 			successCount += delegate.getTestCount() - failureCountForThisPowerMockListener
 					- ignoreCountForThisPowerMockListener;
-			notifier.removeListener(powerMockListener);
 		}
 
 		final TestSuiteResult testSuiteResult = new TestSuiteResultImpl(failureCount, successCount, getTestCount(),
@@ -132,6 +140,23 @@ public class JUnit4TestSuiteChunkerImpl extends AbstractTestSuiteChunkerImpl<Pow
 		powerMockTestNotifier.notifyAfterTestSuiteEnded(testClass, allMethodsAsArray, testSuiteResult);
 	}
 
+	/**
+	 * Reports the failure for each test of the description.
+	 *
+	 * @return the number of failed tests.
+	 */
+	private static int fireTestFailures(RunNotifier notifier, Description description, Throwable failure) {
+		if (description.isTest()) {
+			notifier.fireTestFailure(new Failure(description, failure));
+			return 1;
+		}
+		int failureCount = 0;
+		for (Description child : description.getChildren()) {
+			failureCount += fireTestFailures(notifier, child, failure);
+		}
+		return failureCount;
+	}
+
     @Override
 	public boolean shouldExecuteTestForMethod(Class<?> testClass, Method potentialTestMethod) {
 		return new JUnit4TestMethodChecker(testClass, potentialTestMethod).isTestMethod();
@@ -142,6 +167,26 @@ public class JUnit4TestSuiteChunkerImpl extends AbstractTestSuiteChunkerImpl<Pow
 		return testMethodAnnotation;
 	}
 
+	/**
+	 * The runner delegate of the first chunk describes the test class, so it is created immediately. Delegates of the
+	 * other chunks, which each run a single method with its own classloader, are created when they are executed.
+	 */
+	@Override
+	protected PowerMockJUnitRunnerDelegate createDelegatorForChunk(Class<?> testClass, TestChunk chunk) throws Exception {
+		if (delegates.isEmpty() || !describesTestMethodsByName(runnerDelegateImplementationType)) {
+			return super.createDelegatorForChunk(testClass, chunk);
+		}
+		return new LazyPowerMockJUnitRunnerDelegate(this, testClass, chunk);
+	}
+
+	/*
+	 * Only the JUnit 4.4+ runner delegates, which are filterable and sortable, describe each test method by its name.
+	 * Other delegates, such as the ones running tests with a custom runner, have to be created to know their tests.
+	 */
+	private static boolean describesTestMethodsByName(Class<? extends PowerMockJUnitRunnerDelegate> runnerDelegateType) {
+		return Filterable.class.isAssignableFrom(runnerDelegateType) && Sortable.class.isAssignableFrom(runnerDelegateType);
+	}
+
 	@Override
 	protected PowerMockJUnitRunnerDelegate createDelegatorFromClassloader(ClassLoader classLoader, Class<?> testClass,
 			final List<Method> methodsToTest) throws Exception {
@@ -212,11 +257,27 @@ public class JUnit4TestSuiteChunkerImpl extends AbstractTestSuiteChunkerImpl<Pow
 
 	@Override
 	public void filter(Filter filter) throws NoTestsRemainException {
-		for (Object delegate : delegates) {
-			if (delegate instanceof Filterable) {
+		final List<TestChunk> chunks = getTestChunksEntries(getTestClasses()[0]);
+		boolean removedChunks = false;
+		for (int i = 0; i < delegates.size(); i++) {
+			final PowerMockJUnitRunnerDelegate delegate = delegates.get(i);
+			if (delegate instanceof LazyPowerMockJUnitRunnerDelegate) {
+				try {
+					((Filterable) delegate).filter(filter);
+				} catch (NoTestsRemainException e) {
+					// Remove the chunk, so its classloader is never created.
+					delegates.remove(i);
+					chunks.remove(i);
+					removedChunks = true;
+					i--;
+				}
+			} else if (delegate instanceof Filterable) {
 				((Filterable) delegate).filter(filter);
 			}
 		}
+		if (removedChunks && delegates.isEmpty()) {
+			throw new NoTestsRemainException();
+		}
 	}
 
 	@Override
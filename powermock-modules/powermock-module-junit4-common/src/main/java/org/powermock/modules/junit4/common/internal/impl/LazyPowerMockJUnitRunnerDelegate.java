@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.modules.junit4.common.internal.impl;
+
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.Filterable;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.manipulation.Sortable;
+import org.junit.runner.manipulation.Sorter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.powermock.modules.junit4.common.internal.PowerMockJUnitRunnerDelegate;
+import org.powermock.tests.utils.TestChunk;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A runner delegate which creates the classloader of its test chunk and the actual runner delegate only when the
+ * tests are executed. Until then the tests are described by the names of the test methods, the same way the
+ * JUnit 4.4+ runner delegates describe them, so filtered out chunks never load the test class.
+ */
+class LazyPowerMockJUnitRunnerDelegate implements PowerMockJUnitRunnerDelegate, Filterable, Sortable {
+
+    private final JUnit4TestSuiteChunkerImpl chunker;
+    private final Class<?> testClass;
+    private final TestChunk chunk;
+    private final List<Method> testMethods;
+    private final List<Filter> filters;
+    private final List<Sorter> sorters;
+
+    private PowerMockJUnitRunnerDelegate delegate;
+
+    LazyPowerMockJUnitRunnerDelegate(JUnit4TestSuiteChunkerImpl chunker, Class<?> testClass, TestChunk chunk) {
+        this.chunker = chunker;
+        this.testClass = testClass;
+        this.chunk = chunk;
+        this.testMethods = new ArrayList<Method>(chunk.getTestMethodsToBeExecutedByThisClassloader());
+        this.filters = new ArrayList<Filter>();
+        this.sorters = new ArrayList<Sorter>();
+    }
+
+    @Override
+    public void run(RunNotifier notifier) {
+        final PowerMockJUnitRunnerDelegate runnerDelegate;
+        try {
+            runnerDelegate = getDelegate();
+        } catch (Throwable e) {
+            for (Method method : testMethods) {
+                notifier.fireTestFailure(new Failure(methodDescription(method), e));
+            }
+            return;
+        }
+        runnerDelegate.run(notifier);
+    }
+
+    @Override
+    public synchronized Description getDescription() {
+        if (delegate != null) {
+            return delegate.getDescription();
+        }
+        final Description description = Description.createSuiteDescription(testClass.getName(), testClass.getAnnotations());
+        for (Method method : testMethods) {
+            description.addChild(methodDescription(method));
+        }
+        return description;
+    }
+
+    @Override
+    public synchronized int getTestCount() {
+        if (delegate != null) {
+            return delegate.getTestCount();
+        }
+        return testMethods.size();
+    }
+
+    @Override
+    public Class<?> getTestClass() {
+        return testClass;
+    }
+
+    @Override
+    public synchronized void filter(Filter filter) throws NoTestsRemainException {
+        if (delegate != null) {
+            if (delegate instanceof Filterable) {
+                ((Filterable) delegate).filter(filter);
+            }
+            return;
+        }
+        for (Iterator<Method> iterator = testMethods.iterator(); iterator.hasNext(); ) {
+            if (!filter.shouldRun(methodDescription(iterator.next()))) {
+                iterator.remove();
+            }
+        }
+        if (testMethods.isEmpty()) {
+            throw new NoTestsRemainException();
+        }
+        filters.add(filter);
+    }
+
+    @Override
+    public synchronized void sort(Sorter sorter) {
+        if (delegate == null) {
+            sorters.add(sorter);
+        } else if (delegate instanceof Sortable) {
+            ((Sortable) delegate).sort(sorter);
+        }
+    }
+
+    private synchronized PowerMockJUnitRunnerDelegate getDelegate() throws Throwable {
+        if (delegate == null) {
+            final PowerMockJUnitRunnerDelegate runnerDelegate = createDelegate();
+            for (Filter filter : filters) {
+                if (runnerDelegate instanceof Filterable) {
+                    ((Filterable) runnerDelegate).filter(filter);
+                }
+            }
+            for (Sorter sorter : sorters) {
+                if (runnerDelegate instanceof Sortable) {
+                    ((Sortable) runnerDelegate).sort(sorter);
+                }
+            }
+            delegate = runnerDelegate;
+        }
+        return delegate;
+    }
+
+    private PowerMockJUnitRunnerDelegate createDelegate() throws Throwable {
+        try {
+            return chunker.createDelegatorFromClassloader(chunk.getClassLoader(), testClass, testMethods);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Description methodDescription(Method method) {
+        return Description.createTestDescription(testClass, method.getName(), method.getAnnotations());
+    }
+}
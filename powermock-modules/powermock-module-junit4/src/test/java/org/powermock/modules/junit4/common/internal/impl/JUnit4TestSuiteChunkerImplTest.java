@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.powermock.modules.junit4.common.internal.impl;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.Sorter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.powermock.modules.junit4.internal.impl.PowerMockJUnit44RunnerDelegateImpl;
+import org.powermock.tests.utils.TestChunk;
+import org.powermock.tests.utils.impl.TestChunkImpl;
+import powermock.test.support.TestWithPreparedTestMethods;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class JUnit4TestSuiteChunkerImplTest {
+
+    private final Class<?> testClass = TestWithPreparedTestMethods.class;
+
+    @Test
+    public void should_create_class_loader_of_prepared_test_method_only_when_its_chunk_is_run() throws Exception {
+        final JUnit4TestSuiteChunkerImpl chunker = newChunker();
+        final TestChunkImpl chunk = getChunk(chunker, "prepared_test_method_1");
+
+        assertThat(chunker.getDescription().getChildren()).hasSize(4);
+        assertThat(chunker.getTestCount()).isEqualTo(4);
+        assertThat(chunk.isClassLoaderCreated())
+            .as("Class loader is created before the chunk is run")
+            .isFalse();
+
+        final RecordingListener listener = run(chunker);
+
+        assertThat(chunk.isClassLoaderCreated()).isTrue();
+        assertThat(listener.finished).containsOnly("test_method_1", "test_method_2", "prepared_test_method_1", "prepared_test_method_2");
+        assertThat(listener.failures).isEmpty();
+    }
+
+    @Test
+    public void should_not_create_class_loader_of_chunk_which_is_filtered_out() throws Exception {
+        final JUnit4TestSuiteChunkerImpl chunker = newChunker();
+        final TestChunkImpl chunk = getChunk(chunker, "prepared_test_method_2");
+
+        chunker.filter(excluding("prepared_test_method_2"));
+
+        assertThat(chunker.getTestChunks()).doesNotContain(chunk);
+        assertThat(chunker.getTestCount()).isEqualTo(3);
+
+        final RecordingListener listener = run(chunker);
+
+        assertThat(chunk.isClassLoaderCreated())
+            .as("Class loader of a filtered out chunk is created")
+            .isFalse();
+        assertThat(listener.finished).containsOnly("test_method_1", "test_method_2", "prepared_test_method_1");
+    }
+
+    @Test
+    public void should_fail_only_tests_of_chunk_whose_class_loader_cannot_be_created() throws Exception {
+        final JUnit4TestSuiteChunkerImpl chunker = newChunker();
+        final List<TestChunk> chunks = chunker.getTestChunksEntries(testClass);
+        final TestChunkImpl chunk = getChunk(chunker, "prepared_test_method_1");
+        chunks.set(chunks.indexOf(chunk), failingChunk(chunk.getTestMethodsToBeExecutedByThisClassloader()));
+
+        final RecordingListener listener = run(chunker);
+
+        assertThat(listener.failures).containsExactly("prepared_test_method_1");
+        assertThat(listener.finished).containsOnly("test_method_1", "test_method_2", "prepared_test_method_2");
+    }
+
+    @Test
+    public void should_filter_tests_when_delegate_of_chunk_is_created() throws Exception {
+        final LazyPowerMockJUnitRunnerDelegate delegate = newDelegate("test_method_1", "test_method_2", "prepared_test_method_1");
+
+        delegate.filter(excluding("test_method_2"));
+
+        assertThat(delegate.getTestCount()).isEqualTo(2);
+        assertThat(run(delegate).started).containsOnly("test_method_1", "prepared_test_method_1");
+        assertThat(delegate.getTestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void should_sort_tests_when_delegate_of_chunk_is_created() throws Exception {
+        final LazyPowerMockJUnitRunnerDelegate ascending = newDelegate("test_method_1", "prepared_test_method_1");
+        ascending.sort(byMethodName(false));
+        final LazyPowerMockJUnitRunnerDelegate descending = newDelegate("test_method_1", "prepared_test_method_1");
+        descending.sort(byMethodName(true));
+
+        assertThat(run(ascending).started).containsExactly("prepared_test_method_1", "test_method_1");
+        assertThat(run(descending).started).containsExactly("test_method_1", "prepared_test_method_1");
+    }
+
+    @Test
+    public void should_fail_all_tests_of_delegate_if_class_loader_of_chunk_cannot_be_created() throws Exception {
+        final LazyPowerMockJUnitRunnerDelegate delegate = new LazyPowerMockJUnitRunnerDelegate(
+            newChunker(), testClass, failingChunk(methods("prepared_test_method_1", "prepared_test_method_2"))
+        );
+
+        final RecordingListener listener = run(delegate);
+
+        assertThat(listener.failures).containsExactly("prepared_test_method_1", "prepared_test_method_2");
+        assertThat(listener.started).isEmpty();
+    }
+
+    private JUnit4TestSuiteChunkerImpl newChunker() throws Exception {
+        return new JUnit4TestSuiteChunkerImpl(testClass, PowerMockJUnit44RunnerDelegateImpl.class);
+    }
+
+    private LazyPowerMockJUnitRunnerDelegate newDelegate(String... methodNames) throws Exception {
+        return new LazyPowerMockJUnitRunnerDelegate(
+            newChunker(), testClass, new TestChunkImpl(getClass().getClassLoader(), methods(methodNames))
+        );
+    }
+
+    private TestChunkImpl getChunk(JUnit4TestSuiteChunkerImpl chunker, String methodName) throws Exception {
+        return (TestChunkImpl) chunker.getTestChunk(testClass.getMethod(methodName));
+    }
+
+    private List<Method> methods(String... methodNames) throws Exception {
+        final List<Method> methods = new ArrayList<Method>();
+        for (String methodName : methodNames) {
+            methods.add(testClass.getMethod(methodName));
+        }
+        return methods;
+    }
+
+    private static TestChunk failingChunk(List<Method> methods) {
+        return new TestChunkImpl(methods) {
+            @Override
+            protected ClassLoader createClassLoader() {
+                throw new IllegalStateException("Class loader cannot be created.");
+            }
+        };
+    }
+
+    private static Filter excluding(final String methodName) {
+        return new Filter() {
+            @Override
+            public boolean shouldRun(Description description) {
+                return !methodName.equals(description.getMethodName());
+            }
+
+            @Override
+            public String describe() {
+                return "all tests except " + methodName;
+            }
+        };
+    }
+
+    private static Sorter byMethodName(final boolean descending) {
+        return new Sorter(new Comparator<Description>() {
+            @Override
+            public int compare(Description o1, Description o2) {
+                final int result = o1.getMethodName().compareTo(o2.getMethodName());
+                return descending ? -result : result;
+            }
+        });
+    }
+
+    private static RecordingListener run(JUnit4TestSuiteChunkerImpl chunker) {
+        final RecordingListener listener = new RecordingListener();
+        final RunNotifier notifier = new RunNotifier();
+        notifier.addListener(listener);
+        chunker.run(notifier);
+        return listener;
+    }
+
+    private static RecordingListener run(LazyPowerMockJUnitRunnerDelegate delegate) {
+        final RecordingListener listener = new RecordingListener();
+        final RunNotifier notifier = new RunNotifier();
+        notifier.addListener(listener);
+        delegate.run(notifier);
+        return listener;
+    }
+
+    private static class RecordingListener extends RunListener {
+        private final List<String> started = new ArrayList<String>();
+        private final List<String> finished = new ArrayList<String>();
+        private final List<String> failures = new ArrayList<String>();
+
+        @Override
+        public void testStarted(Description description) {
+            started.add(description.getMethodName());
+        }
+
+        @Override
+        public void testFinished(Description description) {
+            finished.add(description.getMethodName());
+        }
+
+        @Override
+        public void testFailure(Failure failure) {
+            failures.add(failure.getDescription().getMethodName());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package powermock.test.support;
+
+import org.junit.Test;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+
+public class TestWithPreparedTestMethods {
+    
+    @Test
+    public void test_method_1() {
+    }
+    
+    @Test
+    public void test_method_2() {
+    
+    }
+    
+    @Test
+    @PrepareForTest(TestWithPreparedTestMethods.class)
+    public void prepared_test_method_1() {
+    }
+    
+    @Test
+    @PrepareForTest(TestWithPreparedTestMethods.class)
+    public void prepared_test_method_2() {
+    
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package samples.powermockito.junit4.stress;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import samples.stress.ClassWithStatic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+
+/**
+ * Several threads call mocked static methods at the same time, as code under test that uses a thread pool would.
+ * Each call goes through the {@code MockGateway} and reads the {@code MockRepository}, and every call has to get
+ * the value stubbed for the called method and has to be recorded by the mock. The number of threads and calls per
+ * thread can be raised with the {@code powermock.contention.threads} and {@code powermock.contention.calls} system
+ * properties to compare the run time of the test under more contention.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(ClassWithStatic.class)
+public class StaticMockContentionTest {
+
+    private static final int THREADS = Integer.getInteger("powermock.contention.threads", 8);
+    private static final int CALLS_PER_THREAD = Integer.getInteger("powermock.contention.calls", 5000);
+
+    @Test(timeout = 60000)
+    public void should_return_stubbed_value_when_mocked_static_method_is_called_from_many_threads() throws Exception {
+        mockStatic(ClassWithStatic.class);
+        when(ClassWithStatic.a()).thenReturn("A");
+        when(ClassWithStatic.b()).thenReturn("B");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(new StaticMethodCaller(start)));
+            }
+            start.countDown();
+
+            final List<String> incorrectAnswers = new ArrayList<String>();
+            for (Future<List<String>> result : results) {
+                incorrectAnswers.addAll(result.get());
+            }
+
+            assertThat(incorrectAnswers).isEmpty();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verifyStatic(ClassWithStatic.class, times(THREADS * ((CALLS_PER_THREAD + 1) / 2)));
+        ClassWithStatic.a();
+        verifyStatic(ClassWithStatic.class, times(THREADS * (CALLS_PER_THREAD / 2)));
+        ClassWithStatic.b();
+    }
+
+    /**
+     * Calls the stubbed methods alternately and returns the answers which are not the stubbed values.
+     */
+    private static class StaticMethodCaller implements Callable<List<String>> {
+        private final CountDownLatch start;
+
+        private StaticMethodCaller(CountDownLatch start) {
+            this.start = start;
+        }
+
+        @Override
+        public List<String> call() throws Exception {
+            start.await();
+            final List<String> incorrectAnswers = new ArrayList<String>();
+            for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                final boolean callA = i % 2 == 0;
+                final String answer = callA ? ClassWithStatic.a() : ClassWithStatic.b();
+                if (!(callA ? "A" : "B").equals(answer)) {
+                    incorrectAnswers.add((callA ? "a() returned " : "b() returned ") + answer);
+                }
+            }
+            return incorrectAnswers;
+        }
+    }
+}